@@ -0,0 +1,31 @@
+package org.lwjgl.opengl.swt.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler enabled, so that every result comes with its allocation rate (<code>gc.alloc.rate.norm</code> is the
+ * number of bytes allocated per operation).
+ * <p>
+ * Build with <code>mvn package</code> and run headless with:
+ * 
+ * <pre>
+ * xvfb-run -s "-screen 0 1280x1024x24" java -jar lwjgl3-swt-benchmarks/target/benchmarks.jar
+ * </pre>
+ * 
+ * Any JMH command line options, such as a benchmark name regex or <code>-f</code>, <code>-wi</code> and <code>-i</code>, are passed on.
+ * Setting <code>LIBGL_ALWAYS_SOFTWARE=1</code> forces Mesa's llvmpipe for results which do not depend on the GPU.
+ */
+public class BenchmarkMain {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
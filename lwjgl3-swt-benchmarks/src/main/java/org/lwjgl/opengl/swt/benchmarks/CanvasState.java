@@ -0,0 +1,36 @@
+package org.lwjgl.opengl.swt.benchmarks;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.layout.FillLayout;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+
+/**
+ * Base class of benchmark states owning an SWT {@link Display} and a visible {@link Shell}.
+ * <p>
+ * The display is created on the benchmark thread, which thereby becomes the SWT display thread, so state classes using this must have
+ * {@link org.openjdk.jmh.annotations.Scope#Thread} scope.
+ */
+abstract class CanvasState {
+    Display display;
+    Shell shell;
+
+    void openShell() {
+        display = new Display();
+        shell = new Shell(display, SWT.SHELL_TRIM);
+        shell.setLayout(new FillLayout());
+        shell.setSize(640, 480);
+        shell.open();
+        dispatchEvents();
+    }
+
+    void dispatchEvents() {
+        while (display.readAndDispatch())
+            ;
+    }
+
+    void closeShell() {
+        shell.dispose();
+        display.dispose();
+    }
+}
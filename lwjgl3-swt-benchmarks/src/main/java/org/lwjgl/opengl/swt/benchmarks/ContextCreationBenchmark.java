@@ -0,0 +1,93 @@
+package org.lwjgl.opengl.swt.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.lwjgl.opengl.swt.GLCanvas;
+import org.lwjgl.opengl.swt.GLData;
+import org.lwjgl.opengl.swt.GLOffscreenCanvas;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures creating and disposing of a context together with its drawable, for several {@link GLData} configurations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ContextCreationBenchmark extends CanvasState {
+
+    @Param({ "default", "core32", "core45Debug", "msaa4", "sRGB", "noDepth" })
+    public String config;
+
+    private GLData data;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        openShell();
+        data = createData(config);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        closeShell();
+    }
+
+    static GLData createData(String config) {
+        GLData data = new GLData();
+        switch (config) {
+        case "default":
+            break;
+        case "core32":
+            data.profile = GLData.Profile.CORE;
+            data.majorVersion = 3;
+            data.minorVersion = 2;
+            break;
+        case "core45Debug":
+            data.profile = GLData.Profile.CORE;
+            data.majorVersion = 4;
+            data.minorVersion = 5;
+            data.debug = true;
+            break;
+        case "msaa4":
+            data.samples = 4;
+            break;
+        case "sRGB":
+            data.sRGB = true;
+            break;
+        case "noDepth":
+            data.depthSize = 0;
+            data.alphaSize = 0;
+            break;
+        default:
+            throw new IllegalArgumentException(config);
+        }
+        return data;
+    }
+
+    @Benchmark
+    public void createCanvas() {
+        GLCanvas canvas = new GLCanvas(shell, 0, data);
+        canvas.dispose();
+    }
+
+    @Benchmark
+    public void createOffscreenCanvas() {
+        GLOffscreenCanvas canvas = new GLOffscreenCanvas(data, 256, 256);
+        canvas.dispose();
+    }
+
+}
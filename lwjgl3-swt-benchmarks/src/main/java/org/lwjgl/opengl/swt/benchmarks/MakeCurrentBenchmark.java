@@ -0,0 +1,80 @@
+package org.lwjgl.opengl.swt.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.swt.layout.GridLayout;
+import org.lwjgl.opengl.swt.GLCanvas;
+import org.lwjgl.opengl.swt.GLData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures switching between contexts of one share group, as done when rendering several canvases per frame, and querying the current context.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MakeCurrentBenchmark extends CanvasState {
+
+    @Param({ "2", "8" })
+    public int canvasCount;
+
+    private GLCanvas[] canvases;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        openShell();
+        shell.setLayout(new GridLayout(canvasCount, true));
+        GLData data = new GLData();
+        canvases = new GLCanvas[canvasCount];
+        for (int i = 0; i < canvasCount; i++) {
+            canvases[i] = new GLCanvas(shell, 0, data);
+            data.shareContext = canvases[0];
+        }
+        shell.layout();
+        dispatchEvents();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        closeShell();
+    }
+
+    /**
+     * Make the next context of the share group current, so that every call really switches contexts.
+     */
+    @Benchmark
+    public void makeCurrentChurn() {
+        canvases[next].setCurrent();
+        next = (next + 1) % canvases.length;
+    }
+
+    /**
+     * Make the already current context current again, which should return without a platform call.
+     */
+    @Benchmark
+    public void makeCurrentSame() {
+        canvases[0].setCurrent();
+    }
+
+    @Benchmark
+    public boolean isCurrent() {
+        return canvases[0].isCurrent();
+    }
+
+}
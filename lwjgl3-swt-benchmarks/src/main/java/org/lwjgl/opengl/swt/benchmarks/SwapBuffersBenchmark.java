@@ -0,0 +1,68 @@
+package org.lwjgl.opengl.swt.benchmarks;
+
+import static org.lwjgl.opengl.GL11.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.swt.GLCanvas;
+import org.lwjgl.opengl.swt.GLData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of clearing and swapping a canvas with a swap interval of 0, i.e. the per-frame overhead of the platform swap path.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SwapBuffersBenchmark extends CanvasState {
+
+    private GLCanvas canvas;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        openShell();
+        GLData data = new GLData();
+        data.swapInterval = 0;
+        canvas = new GLCanvas(shell, 0, data);
+        shell.layout();
+        dispatchEvents();
+        canvas.setCurrent();
+        canvas.glSwapInterval(0);
+        GL.createCapabilities();
+        glClearColor(0.1f, 0.2f, 0.3f, 1.0f);
+    }
+
+    @Setup(Level.Iteration)
+    public void drainEvents() {
+        // Keep the X event queue from growing while we only swap
+        dispatchEvents();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        GL.setCapabilities(null);
+        closeShell();
+    }
+
+    @Benchmark
+    public void clearAndSwap() {
+        glClear(GL_COLOR_BUFFER_BIT);
+        canvas.swapBuffers();
+    }
+
+}
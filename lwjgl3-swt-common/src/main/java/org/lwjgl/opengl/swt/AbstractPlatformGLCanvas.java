@@ -1,5 +1,6 @@
 package org.lwjgl.opengl.swt;
 
+import org.eclipse.swt.SWTException;
 import org.eclipse.swt.widgets.Composite;
 import org.lwjgl.opengl.swt.GLData.API;
 
@@ -101,6 +102,104 @@ abstract class AbstractPlatformGLCanvas implements PlatformGLCanvas {
         }
     }
 
+    public PlatformGLCanvas select(GLData attribs) {
+        if (attribs.contextCreationAPI == GLData.ContextCreationAPI.EGL)
+            throw new SWTException("EGL contexts are not supported on this platform");
+        return this;
+    }
+
+    public boolean swapBuffers(GLCanvas canvas, int[] damage) {
+        // No partial presentation on this platform, so present everything
+        return swapBuffers(canvas);
+    }
+
+    public int getBufferAge(GLCanvas canvas) {
+        return 0;
+    }
+
+    public GLCanvas.SwapControl getSwapControl(GLCanvas canvas) {
+        return GLCanvas.SwapControl.NONE;
+    }
+
+    public boolean getSyncValues(GLCanvas canvas, GLSyncValues values) {
+        return false;
+    }
+
+    public double getRefreshRate(GLCanvas canvas) {
+        return 0.0;
+    }
+
+    public long swapBuffersMsc(GLCanvas canvas, long targetMsc, long divisor, long remainder) {
+        // No scheduled swaps on this platform, so swap right away
+        swapBuffers(canvas);
+        return -1L;
+    }
+
+    public boolean waitForSbc(GLCanvas canvas, long targetSbc, GLSyncValues values) {
+        return false;
+    }
+
+    public boolean waitForVBlank(GLCanvas canvas) {
+        return false;
+    }
+
+    public void resize(GLCanvas canvas, int x, int y, int width, int height) {
+        // The drawable is the canvas itself and follows its size
+    }
+
+    public boolean drawableFollowsWidget(GLCanvas canvas) {
+        return true;
+    }
+
+    public boolean isViewable(GLCanvas canvas) {
+        // The drawable is the canvas itself, whose visibility SWT already reports
+        return true;
+    }
+
+    public long create(GLOffscreenCanvas canvas, GLData attribs, GLData effective) {
+        throw new UnsupportedOperationException("Offscreen canvases are not supported on this platform");
+    }
+
+    public boolean makeCurrent(GLOffscreenCanvas canvas, long context) {
+        throw new UnsupportedOperationException("Offscreen canvases are not supported on this platform");
+    }
+
+    public boolean releaseCurrent(GLOffscreenCanvas canvas) {
+        throw new UnsupportedOperationException("Offscreen canvases are not supported on this platform");
+    }
+
+    public boolean deleteContext(GLOffscreenCanvas canvas, long context) {
+        throw new UnsupportedOperationException("Offscreen canvases are not supported on this platform");
+    }
+
+    public boolean swapBuffers(GLOffscreenCanvas canvas) {
+        throw new UnsupportedOperationException("Offscreen canvases are not supported on this platform");
+    }
+
+    public boolean supportsPooling() {
+        return false;
+    }
+
+    public long create(GLContextPool.PooledContext pooled, GLData attribs, GLData effective, long shareContext) {
+        throw new UnsupportedOperationException("Context pools are not supported on this platform");
+    }
+
+    public long attach(GLCanvas canvas, GLContextPool.PooledContext pooled) {
+        throw new UnsupportedOperationException("Context pools are not supported on this platform");
+    }
+
+    public boolean deleteContext(GLContextPool.PooledContext pooled) {
+        throw new UnsupportedOperationException("Context pools are not supported on this platform");
+    }
+
+    public boolean isCurrent(GLCanvas canvas, long context) {
+        return isCurrent(context);
+    }
+
+    public long share(GLCanvas canvas, GLCanvas source, GLData attribs, GLData effective) {
+        throw new UnsupportedOperationException("Sharing a context between canvases is not supported on this platform");
+    }
+
 	public int checkStyle(Composite parent, int style) {
 		return style;
 	}
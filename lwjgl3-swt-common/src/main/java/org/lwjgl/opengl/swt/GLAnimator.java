@@ -0,0 +1,324 @@
+package org.lwjgl.opengl.swt;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Listener;
+
+/**
+ * Schedules frames for one or more {@link GLCanvas} instances.
+ * <p>
+ * This replaces hand-written render loops which re-post a {@link Runnable} via {@link Display#asyncExec(Runnable)} after every frame. The animator
+ * schedules at most one pending frame at any time, coalesces redraw requests, and stops scheduling entirely while none of its canvases is visible, e.g.
+ * because they are in a hidden tab or their shell is minimized. It resumes as soon as one of them is shown again.
+ * <p>
+ * Canvases are either rendered on the SWT display thread by a {@link GLRenderer} given to {@link #add(GLCanvas, GLRenderer)}, or they have their own
+ * render thread (see {@link GLCanvas#startRenderThread(GLRenderer)}) and are only paced by the animator after {@link #add(GLCanvas)}.
+ * <p>
+ * Except for {@link #requestFrame()} and {@link #requestFrame(GLCanvas)}, all methods must be called from the SWT display thread.
+ */
+public class GLAnimator {
+
+    public static enum Mode {
+        /**
+         * Render frames at a fixed rate, see {@link GLAnimator#setFrameRate(int)}.
+         */
+        FIXED_RATE,
+        /**
+         * Render the next frame as soon as the previous one has been swapped. This relies on {@link GLCanvas#swapBuffers()} being synchronized to the
+         * vertical retrace, i.e. on a swap interval of at least 1.
+         */
+        VSYNC,
+        /**
+         * Only render a canvas when it has been exposed or resized, or when a frame has been requested via {@link GLAnimator#requestFrame()}.
+         */
+        ON_DEMAND;
+    }
+
+    /**
+     * Upper bound for the frame rate in {@link Mode#VSYNC} mode, for when swapping does not block, e.g. because the window is occluded.
+     */
+    private static final long MIN_VSYNC_PERIOD_NANOS = 1000000000L / 500;
+
+    private final class Target {
+        final GLCanvas canvas;
+        final GLRenderer renderer;
+        final AtomicBoolean dirty = new AtomicBoolean(true);
+        final Runnable disposeHook;
+        boolean initialized;
+        int width = -1;
+        int height = -1;
+
+        Target(GLCanvas canvas, GLRenderer renderer) {
+            this.canvas = canvas;
+            this.renderer = renderer;
+            this.disposeHook = () -> {
+                if (initialized) {
+                    canvas.setCurrent();
+                    renderer.dispose(canvas);
+                }
+                remove(canvas);
+            };
+        }
+
+        /**
+         * Render a single frame and return whether the renderer wants another one.
+         */
+        boolean frame() {
+            if (renderer == null) {
+                canvas.requestRender();
+                return false;
+            }
+            // Coalesced resizes are applied at most once per frame, right here
+            canvas.applyPendingResize();
+            canvas.setCurrent();
+            if (!initialized) {
+                renderer.init(canvas);
+                initialized = true;
+            }
+            if (width != canvas.drawableWidth || height != canvas.drawableHeight) {
+                width = canvas.drawableWidth;
+                height = canvas.drawableHeight;
+                renderer.resized(canvas, width, height);
+            }
+            boolean again = renderer.render(canvas);
+            canvas.swapBuffers();
+            return again;
+        }
+    }
+
+    private final Display display;
+    private final Mode mode;
+    private final List<Target> targets = new CopyOnWriteArrayList<Target>();
+    private final AtomicBoolean frameRequested = new AtomicBoolean();
+    private final Runnable tick = this::tick;
+    private final Runnable wakeUp = this::wakeUp;
+    private final Listener listener = event -> requestFrame((GLCanvas) event.widget);
+    private final GLCanvas.VisibilityListener visibilityListener = (canvas, visibility) -> {
+        if (visibility == GLCanvas.Visibility.VISIBLE)
+            requestFrame(canvas);
+    };
+    private long periodNanos = 1000000000L / 60;
+    private long nextFrameTime;
+    private boolean running;
+    private boolean scheduled;
+
+    /**
+     * Create a new {@link GLAnimator} for canvases of the given {@link Display}.
+     *
+     * @param display
+     *            the {@link Display} whose thread renders the frames
+     * @param mode
+     *            the scheduling {@link Mode}
+     */
+    public GLAnimator(Display display, Mode mode) {
+        if (display == null || mode == null)
+            SWT.error(SWT.ERROR_NULL_ARGUMENT);
+        this.display = display;
+        this.mode = mode;
+    }
+
+    /**
+     * Set the number of frames per second to render in {@link Mode#FIXED_RATE} mode. The default is 60.
+     *
+     * @param framesPerSecond
+     *            the frame rate
+     */
+    public void setFrameRate(int framesPerSecond) {
+        if (framesPerSecond <= 0)
+            throw new IllegalArgumentException("Frame rate must be positive");
+        periodNanos = 1000000000L / framesPerSecond;
+    }
+
+    /**
+     * Render the given canvas on the SWT display thread with the given {@link GLRenderer}.
+     * <p>
+     * The renderer is initialized before the first frame and disposed of when the canvas is disposed, in both cases with the context current.
+     *
+     * @param canvas
+     *            the {@link GLCanvas} to render
+     * @param renderer
+     *            the {@link GLRenderer} rendering the frames
+     */
+    public void add(GLCanvas canvas, GLRenderer renderer) {
+        if (canvas == null || renderer == null)
+            SWT.error(SWT.ERROR_NULL_ARGUMENT);
+        add(new Target(canvas, renderer));
+    }
+
+    /**
+     * Pace the render thread of the given canvas by calling {@link GLCanvas#requestRender()} for every frame.
+     *
+     * @param canvas
+     *            the {@link GLCanvas} whose render thread has been started
+     */
+    public void add(GLCanvas canvas) {
+        if (canvas == null)
+            SWT.error(SWT.ERROR_NULL_ARGUMENT);
+        if (canvas.renderThread == null)
+            throw new IllegalStateException("GLCanvas has no render thread");
+        add(new Target(canvas, null));
+    }
+
+    private void add(Target target) {
+        GLCanvas canvas = target.canvas;
+        if (canvas.isDisposed())
+            SWT.error(SWT.ERROR_WIDGET_DISPOSED);
+        if (canvas.getDisplay().getThread() != Thread.currentThread())
+            SWT.error(SWT.ERROR_THREAD_INVALID_ACCESS);
+        if (find(canvas) != null)
+            throw new IllegalArgumentException("GLCanvas has already been added");
+        canvas.addListener(SWT.Resize, listener);
+        canvas.addListener(SWT.Paint, listener);
+        canvas.addVisibilityListener(visibilityListener);
+        canvas.addContextDisposeHook(target.disposeHook);
+        targets.add(target);
+        schedule();
+    }
+
+    /**
+     * Stop animating the given canvas. The {@link GLRenderer} of the canvas will not be disposed.
+     *
+     * @param canvas
+     *            the {@link GLCanvas} to remove
+     */
+    public void remove(GLCanvas canvas) {
+        Target target = find(canvas);
+        if (target == null)
+            return;
+        targets.remove(target);
+        canvas.removeContextDisposeHook(target.disposeHook);
+        if (canvas.isDisposed())
+            return;
+        canvas.removeListener(SWT.Resize, listener);
+        canvas.removeListener(SWT.Paint, listener);
+        canvas.removeVisibilityListener(visibilityListener);
+    }
+
+    /**
+     * Start scheduling frames.
+     */
+    public void start() {
+        running = true;
+        nextFrameTime = System.nanoTime();
+        schedule();
+    }
+
+    /**
+     * Stop scheduling frames. Already scheduled frames will not be rendered.
+     */
+    public void stop() {
+        running = false;
+    }
+
+    /**
+     * Request a new frame for all canvases. Requests are coalesced until the next frame.
+     * <p>
+     * This only has an effect in {@link Mode#ON_DEMAND} mode, the other modes render every frame anyway. It may be called from any thread.
+     */
+    public void requestFrame() {
+        for (Target target : targets)
+            target.dirty.set(true);
+        requestTick();
+    }
+
+    /**
+     * Request a new frame for the given canvas. Requests are coalesced until the next frame.
+     * <p>
+     * This only has an effect in {@link Mode#ON_DEMAND} mode, the other modes render every frame anyway. It may be called from any thread.
+     *
+     * @param canvas
+     *            the {@link GLCanvas} to render
+     */
+    public void requestFrame(GLCanvas canvas) {
+        Target target = find(canvas);
+        if (target == null)
+            return;
+        target.dirty.set(true);
+        requestTick();
+    }
+
+    private void requestTick() {
+        if (!frameRequested.getAndSet(true) && !display.isDisposed())
+            display.asyncExec(wakeUp);
+    }
+
+    private void wakeUp() {
+        frameRequested.set(false);
+        schedule();
+    }
+
+    private Target find(GLCanvas canvas) {
+        for (Target target : targets) {
+            if (target.canvas == canvas)
+                return target;
+        }
+        return null;
+    }
+
+    private static boolean isShowing(GLCanvas canvas) {
+        return !canvas.isDisposed() && canvas.getVisibility() == GLCanvas.Visibility.VISIBLE;
+    }
+
+    /**
+     * Schedule the next frame right away, unless one is already scheduled.
+     */
+    private void schedule() {
+        if (!running || scheduled || display.isDisposed())
+            return;
+        scheduled = true;
+        display.asyncExec(tick);
+    }
+
+    private void tick() {
+        scheduled = false;
+        if (!running)
+            return;
+        long frameStart = System.nanoTime();
+        boolean anyShowing = false;
+        boolean anyDirty = false;
+        for (Target target : targets) {
+            if (!isShowing(target.canvas))
+                continue;
+            anyShowing = true;
+            if (mode == Mode.ON_DEMAND && !target.dirty.getAndSet(false))
+                continue;
+            if (target.frame()) {
+                target.dirty.set(true);
+                anyDirty = true;
+            }
+        }
+        if (!anyShowing) {
+            // Sleep until a canvas becomes visible again or a Paint or Resize event wakes us up
+            return;
+        }
+        switch (mode) {
+        case FIXED_RATE:
+            nextFrameTime += periodNanos;
+            long now = System.nanoTime();
+            if (nextFrameTime < now) {
+                // We are late. Don't try to catch up, but drop the missed frames.
+                nextFrameTime = now;
+            }
+            scheduled = true;
+            display.timerExec((int) ((nextFrameTime - now) / 1000000L), tick);
+            break;
+        case VSYNC:
+            long elapsed = System.nanoTime() - frameStart;
+            scheduled = true;
+            if (elapsed < MIN_VSYNC_PERIOD_NANOS)
+                display.timerExec((int) ((MIN_VSYNC_PERIOD_NANOS - elapsed + 999999L) / 1000000L), tick);
+            else
+                display.asyncExec(tick);
+            break;
+        case ON_DEMAND:
+            if (anyDirty)
+                schedule();
+            break;
+        }
+    }
+
+}
@@ -1,9 +1,19 @@
 package org.lwjgl.opengl.swt;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongSupplier;
+
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.SWTException;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.internal.DPIUtil;
 import org.eclipse.swt.widgets.Canvas;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Listener;
+import org.eclipse.swt.widgets.Shell;
 import org.lwjgl.system.Platform;
 
 /**
@@ -18,8 +28,162 @@ public class GLCanvas extends Canvas {
     long context;
     long xWindow;
     long glWindow;
+    long xDisplay;
+    boolean ownsXDisplay;
+    long fbConfig;
+    long eglSurface;
+    long wlEglWindow;
+    boolean backBufferKept;
+    PlatformGLCanvas platform;
+    SharedContext sharedContext;
+    private GLCurrentContext currentIn;
+    GLRenderThread renderThread;
+    private final List<Runnable> contextDisposeHooks = new ArrayList<Runnable>();
+    private volatile SwapHook[] swapHooks = new SwapHook[0];
+    private Integer deferredSwapInterval;
+    private long swapNanos;
+    volatile int drawableWidth;
+    volatile int drawableHeight;
+    volatile GLFrameStats frameStats;
+    private ResizePolicy resizePolicy = ResizePolicy.IMMEDIATE;
+    private final Runnable resizeTask = () -> {
+        resizeScheduled = false;
+        applyPendingResize();
+    };
+    private boolean resizePending;
+    private boolean resizeScheduled;
+    private long lastResizeTime;
+    // Unknown counts as visible, so that frames rendered right after opening the shell are not lost
+    private volatile Visibility visibility = Visibility.VISIBLE;
+    private VisibilityListener[] visibilityListeners = new VisibilityListener[0];
+    private final List<Control> visibilityWatched = new ArrayList<Control>();
+    private final Runnable visibilityTask = () -> {
+        visibilityScheduled = false;
+        updateVisibility();
+    };
+    private boolean visibilityScheduled;
+    private final Listener visibilityListener = event -> {
+        switch (event.type) {
+        case SWT.Paint:
+        case SWT.Resize:
+            updateVisibility();
+            break;
+        case SWT.Dispose:
+            untrackVisibility();
+            break;
+        default:
+            // Show, Hide, Iconify and Deiconify are sent before the change has taken effect
+            if (!visibilityScheduled) {
+                visibilityScheduled = true;
+                getDisplay().asyncExec(visibilityTask);
+            }
+            break;
+        }
+    };
+
+    /**
+     * How the drawable of a {@link GLCanvas} follows the size of the widget, see {@link GLCanvas#setResizePolicy(ResizePolicy)}.
+     */
+    public static enum ResizePolicy {
+        /**
+         * Resize the drawable for every {@link SWT#Resize} event.
+         */
+        IMMEDIATE,
+        /**
+         * Resize the drawable at most once per frame, to the size of the widget at that time. All resize events which arrive before the next frame,
+         * or before the SWT event queue runs empty, are coalesced into one. Where the window system resizes the drawable with the widget, as on
+         * Windows and macOS, this behaves like {@link #IMMEDIATE}.
+         */
+        COALESCED,
+        /**
+         * Keep the drawable at its old size while the widget is being resized, and only resize it once no resize event has arrived for
+         * {@link GLCanvas#RESIZE_SETTLE_MILLIS} milliseconds. Until then, frames are rendered at the old size, so that no large multisampled
+         * framebuffer is reallocated during interactive resizing. Where the drawable is a child window, as on Linux, the old frame is clipped or
+         * padded by the widget until then. Where the drawable is the widget itself, as on Windows and macOS, the window system already resizes it
+         * with the widget, so this behaves like {@link #IMMEDIATE}.
+         */
+        DEFERRED;
+    }
+
+    /**
+     * The time without resize events after which a {@link ResizePolicy#DEFERRED} resize is applied.
+     */
+    public static final int RESIZE_SETTLE_MILLIS = 150;
+
+    /**
+     * How far the swap interval of a {@link GLCanvas} can be controlled, see {@link GLCanvas#getSwapControl()}.
+     */
+    public static enum SwapControl {
+        /**
+         * The swap interval cannot be changed.
+         */
+        NONE,
+        /**
+         * Positive swap intervals can be set, but vertical synchronization cannot be turned off, and the effective interval cannot be queried.
+         */
+        SET_ONLY,
+        /**
+         * Non-negative swap intervals can be set, 0 turning vertical synchronization off, and {@link GLCanvas#glGetSwapInterval()} reports the
+         * interval actually in effect.
+         */
+        QUERYABLE,
+        /**
+         * Like {@link #QUERYABLE}, and negative swap intervals enable adaptive vertical synchronization: a swap which misses the retrace happens right
+         * away and tears, instead of waiting for the next retrace.
+         */
+        ADAPTIVE;
+    }
+
+    /**
+     * Whether a {@link GLCanvas} can currently be seen, see {@link GLCanvas#getVisibility()}.
+     */
+    public static enum Visibility {
+        /**
+         * The canvas is showing.
+         */
+        VISIBLE,
+        /**
+         * The canvas or one of its ancestors is hidden, e.g. in a tab which is not selected, the canvas has no area, or its drawable is not mapped.
+         */
+        HIDDEN,
+        /**
+         * The shell of the canvas is minimized.
+         */
+        MINIMIZED;
+    }
+
+    /**
+     * Notified on the SWT display thread whenever the {@link Visibility} of a {@link GLCanvas} changes.
+     */
+    public static interface VisibilityListener {
+        /**
+         * @param canvas
+         *            the {@link GLCanvas} whose visibility changed
+         * @param visibility
+         *            the new {@link Visibility}
+         */
+        void visibilityChanged(GLCanvas canvas, Visibility visibility);
+    }
+
+    /**
+     * Callback invoked on the context thread around every {@link GLCanvas#swapBuffers()}, with the context being current.
+     */
+    interface SwapHook {
+        void beforeSwap(GLCanvas canvas);
+
+        void afterSwap(GLCanvas canvas);
+    }
 
-    private static PlatformGLCanvas platformCanvas;
+    /**
+     * A context used by several canvases through {@link GLData#contextSource}. It is deleted together with the last of them, which also takes over the
+     * display connection of the first one, if that owned it.
+     */
+    static final class SharedContext {
+        int canvases = 1;
+        boolean ownsXDisplay;
+    }
+
+    static PlatformGLCanvas platformCanvas;
     static {
         String platformClassName;
         switch (Platform.get()) {
@@ -60,7 +224,9 @@ public class GLCanvas extends Canvas {
      * <ul>
      * <li>ERROR_NULL_ARGUMENT when the data is null
      * <li>ERROR_UNSUPPORTED_DEPTH when the requested attributes cannot be provided
+     * <li>ERROR_INVALID_ARGUMENT when the {@link GLData#contextSource} has been disposed
      * </ul>
+     * @exception UnsupportedOperationException if a {@link GLData#contextSource} is given and the platform cannot share contexts between canvases
      */
     public GLCanvas(Composite parent, int style, GLData data) {
         super(parent, platformCanvas.checkStyle(parent, style));
@@ -69,8 +235,145 @@ public class GLCanvas extends Canvas {
         }
         if (data == null)
             SWT.error(SWT.ERROR_NULL_ARGUMENT);
-        effective = new GLData();
-        context = platformCanvas.create(this, data, effective);
+        if (data.contextSource != null) {
+            share(data);
+        } else {
+            platform = selectPlatform(data);
+            effective = new GLData();
+            context = platform.create(this, data, effective);
+        }
+        effective.renderThread = data.renderThread;
+        updateDrawableSize();
+        addListener(SWT.Resize, event -> resizeRequested());
+        trackVisibility();
+    }
+
+    /**
+     * Create a GLCanvas widget for a context taken from the given {@link GLContextPool}, so that only the window needs to be created.
+     * <p>
+     * The canvas has the attributes described in the {@link GLContextPool#getGLData() GLData} of the pool, and its context shares objects with all other
+     * contexts of the pool.
+     *
+     * @param parent a composite widget
+     * @param style the bitwise OR'ing of widget styles
+     * @param pool the pool to take the context from
+     *
+     * @exception IllegalArgumentException
+     * <ul>
+     * <li>ERROR_NULL_ARGUMENT when the pool is null
+     * <li>ERROR_UNSUPPORTED_DEPTH when the requested attributes cannot be provided
+     * </ul>
+     * @exception SWTException <ul>
+     *    <li>ERROR_WIDGET_DISPOSED - if the pool has been disposed</li>
+     * </ul>
+     */
+    public GLCanvas(Composite parent, int style, GLContextPool pool) {
+        super(parent, platformCanvas.checkStyle(parent, style));
+        if (Platform.get() == Platform.WINDOWS) {
+            platformCanvas.resetStyle(parent);
+        }
+        if (pool == null)
+            SWT.error(SWT.ERROR_NULL_ARGUMENT);
+        platform = selectPlatform(pool.data);
+        GLContextPool.PooledContext pooled;
+        try {
+            pooled = pool.take();
+        } catch (RuntimeException e) {
+            dispose();
+            throw e;
+        }
+        if (pooled != null) {
+            effective = pooled.effective;
+            context = platform.attach(this, pooled);
+        } else {
+            effective = new GLData();
+            context = platform.create(this, pool.data, effective);
+        }
+        effective.renderThread = pool.data.renderThread;
+        updateDrawableSize();
+        addListener(SWT.Resize, event -> resizeRequested());
+        trackVisibility();
+    }
+
+    /**
+     * Choose the platform implementation for the given attributes, disposing the widget if there is none.
+     */
+    private PlatformGLCanvas selectPlatform(GLData data) {
+        try {
+            return platformCanvas.select(data);
+        } catch (SWTException e) {
+            dispose();
+            throw e;
+        }
+    }
+
+    /**
+     * Create the drawable of this canvas for the context of {@link GLData#contextSource}, disposing the widget if that fails.
+     */
+    private void share(GLData data) {
+        GLCanvas source = data.contextSource;
+        try {
+            if (source.isDisposed())
+                SWT.error(SWT.ERROR_INVALID_ARGUMENT);
+            // the context can only be current in one thread at a time
+            if (data.renderThread || source.effective.renderThread)
+                throw new IllegalArgumentException("Canvases sharing a context cannot use render threads");
+            platform = source.platform;
+            effective = new GLData();
+            context = platform.share(this, source, data, effective);
+        } catch (RuntimeException e) {
+            dispose();
+            throw e;
+        }
+    }
+
+    /**
+     * Start using the context of the given canvas.
+     */
+    void joinContext(GLCanvas source) {
+        SharedContext shared = source.sharedContext;
+        if (shared == null) {
+            shared = new SharedContext();
+            // the display connection must live as long as the context
+            shared.ownsXDisplay = source.ownsXDisplay;
+            source.ownsXDisplay = false;
+            source.sharedContext = shared;
+        }
+        shared.canvases++;
+        sharedContext = shared;
+    }
+
+    /**
+     * Stop using a context shared with other canvases.
+     *
+     * @return whether the context should be deleted, because no other canvas uses it
+     */
+    boolean leaveContext() {
+        SharedContext shared = sharedContext;
+        if (shared == null)
+            return true;
+        sharedContext = null;
+        if (--shared.canvases > 0)
+            return false;
+        ownsXDisplay |= shared.ownsXDisplay;
+        return true;
+    }
+
+    /**
+     * Make sure that the calling thread is allowed to use the context of this canvas.
+     * <p>
+     * Once a render thread has been started, this is exclusively that thread. Before, it is the SWT display thread.
+     */
+    private void checkContextThread() {
+        GLRenderThread thread = renderThread;
+        if (thread == null) {
+            checkWidget();
+            return;
+        }
+        if (Thread.currentThread() != thread)
+            SWT.error(SWT.ERROR_THREAD_INVALID_ACCESS);
+        if (isDisposed())
+            SWT.error(SWT.ERROR_WIDGET_DISPOSED);
     }
 
     /**
@@ -95,41 +398,285 @@ public class GLCanvas extends Canvas {
      * false otherwise
      * @exception SWTException <ul>
      *    <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
-     *    <li>ERROR_THREAD_INVALID_ACCESS - if not called from the thread that created the receiver</li>
+     *    <li>ERROR_THREAD_INVALID_ACCESS - if not called from the thread that created the receiver or, once started, from its render thread</li>
      * </ul>
      */
     public boolean isCurrent() {
-        checkWidget();
-        return platformCanvas.isCurrent(context);
+        checkContextThread();
+        return isCurrentInThread();
     }
 
     /**
      * Sets the OpenGL context associated with this GLCanvas to be the
      * current GL context.
+     * <p>
+     * For canvases sharing one context through {@link GLData#contextSource}, this only binds the drawable of the receiver to the context.
+     * <p>
+     * The library keeps track of the context it made current in each thread, so this does nothing but read a few fields if the receiver is already
+     * current. Applications which make contexts current by other means should set the system property
+     * <code>org.lwjgl.opengl.swt.verifyCurrentContext</code> to <code>true</code>, so that the platform is asked instead.
      * 
      * @exception SWTException <ul>
      *    <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
-     *    <li>ERROR_THREAD_INVALID_ACCESS - if not called from the thread that created the receiver</li>
+     *    <li>ERROR_THREAD_INVALID_ACCESS - if not called from the thread that created the receiver or, once started, from its render thread</li>
      * </ul>
      */
     public void setCurrent() {
-        checkWidget();
-        if (platformCanvas.isCurrent(context))
+        checkContextThread();
+        if (isCurrentInThread())
+            return;
+        GLFrameStats stats = frameStats;
+        if (stats == null) {
+            makeCurrent();
             return;
-        platformCanvas.makeCurrent(this, context);
+        }
+        long start = System.nanoTime();
+        makeCurrent();
+        stats.makeCurrentCompleted(System.nanoTime() - start);
+    }
+
+    /**
+     * Returns whether the context is current in the calling thread together with the drawable of this canvas, see {@link GLCurrentContext}.
+     */
+    private boolean isCurrentInThread() {
+        if (GLCurrentContext.VERIFY)
+            return platform.isCurrent(this, context);
+        GLCurrentContext state = currentIn;
+        return state != null && state.isCurrent(context, this);
+    }
+
+    private void makeCurrent() {
+        if (platform.makeCurrent(this, context)) {
+            GLCurrentContext state = GLCurrentContext.get();
+            state.set(context, this);
+            currentIn = state;
+        }
     }
 
     /**
      * Swaps the front and back color buffers.
+     * <p>
+     * The swap itself is skipped while the canvas is not {@link Visibility#VISIBLE}.
      * 
      * @exception SWTException <ul>
      *    <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
-     *    <li>ERROR_THREAD_INVALID_ACCESS - if not called from the thread that created the receiver</li>
+     *    <li>ERROR_THREAD_INVALID_ACCESS - if not called from the thread that created the receiver or, once started, from its render thread</li>
      * </ul>
      */
     public void swapBuffers() {
-        checkWidget();
-        platformCanvas.swapBuffers(this);
+        checkContextThread();
+        restoreSwapInterval();
+        swap();
+    }
+
+    /**
+     * Swap the buffers if the canvas is visible, running the swap hooks around it.
+     *
+     * @return the time spent swapping in nanoseconds, or 0 if the canvas was not swapped
+     */
+    private long swap() {
+        swap(() -> platform.swapBuffers(this) ? 1L : 0L);
+        return swapNanos;
+    }
+
+    /**
+     * Run the given platform swap if the canvas is visible, with the swap hooks around it. Every swap method goes through here, so that they all
+     * treat hooks, visibility and {@link #swapNanos} alike.
+     *
+     * @return the result of the platform swap, or -1 if the canvas was not swapped
+     */
+    private long swap(LongSupplier platformSwap) {
+        SwapHook[] hooks = swapHooks;
+        for (int i = 0; i < hooks.length; i++)
+            hooks[i].beforeSwap(this);
+        long result = -1L;
+        swapNanos = 0L;
+        // Nobody would see the frame, and some drivers block swapping unmapped windows until a timeout
+        if (visibility == Visibility.VISIBLE) {
+            long start = System.nanoTime();
+            result = platformSwap.getAsLong();
+            swapNanos = System.nanoTime() - start;
+            GLFrameStats stats = frameStats;
+            if (stats != null)
+                stats.swapCompleted(swapNanos);
+        }
+        for (int i = 0; i < hooks.length; i++)
+            hooks[i].afterSwap(this);
+        return result;
+    }
+
+    /**
+     * Swaps the front and back color buffers, telling the window system that only the given regions of the drawable changed since the previous swap.
+     * A compositor then only needs to copy and recomposite these regions. Use {@link #getBufferAge()} to find out which regions of the back buffer
+     * have to be redrawn for the next frame.
+     * <p>
+     * The rectangles are in pixels of the drawable, with the origin at its top left corner like in SWT. Without rectangles, this is equivalent to
+     * {@link #swapBuffers()}. Like that, the swap itself is skipped while the canvas is not {@link Visibility#VISIBLE}.
+     * <p>
+     * On Linux with EGL, this requires <code>EGL_KHR_swap_buffers_with_damage</code> or <code>EGL_EXT_swap_buffers_with_damage</code>. With GLX, the
+     * whole drawable is swapped, unless the system property <code>org.lwjgl.opengl.swt.copySubBuffer</code> is <code>true</code> and
+     * <code>GLX_MESA_copy_sub_buffer</code> is available. That copies the regions to the front buffer instead of swapping, so it is not synchronized
+     * to the vertical retrace and the back buffer keeps its contents. On other platforms, the whole drawable is swapped.
+     *
+     * @param damage the changed regions of the drawable
+     * @exception IllegalArgumentException <ul>
+     *    <li>ERROR_NULL_ARGUMENT - if the damage array or one of its rectangles is null</li>
+     * </ul>
+     * @exception SWTException <ul>
+     *    <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+     *    <li>ERROR_THREAD_INVALID_ACCESS - if not called from the thread that created the receiver or, once started, from its render thread</li>
+     * </ul>
+     */
+    public void swapBuffers(Rectangle... damage) {
+        checkContextThread();
+        if (damage == null)
+            SWT.error(SWT.ERROR_NULL_ARGUMENT);
+        // Window systems count rows from the bottom, like OpenGL
+        int[] rects = new int[damage.length * 4];
+        int height = drawableHeight;
+        for (int i = 0; i < damage.length; i++) {
+            Rectangle r = damage[i];
+            if (r == null)
+                SWT.error(SWT.ERROR_NULL_ARGUMENT);
+            rects[i * 4] = r.x;
+            rects[i * 4 + 1] = height - r.y - r.height;
+            rects[i * 4 + 2] = r.width;
+            rects[i * 4 + 3] = r.height;
+        }
+        restoreSwapInterval();
+        if (rects.length > 0)
+            swap(() -> platform.swapBuffers(this, rects) ? 1L : 0L);
+        else
+            swap();
+    }
+
+    /**
+     * Swaps the front and back color buffers of several canvases as one batch, e.g. all views of a multi-view layout.
+     * <p>
+     * Each canvas is made current for its swap, and the swaps are ordered to minimize context switches: canvases using the context which is current
+     * on the calling thread come first, and canvases sharing a context through {@link GLData#contextSource} are swapped together. Only the last swap
+     * of a visible canvas is synchronized to the vertical retrace. The swap interval of the others is turned off while they take part in batches, so
+     * that all canvases are presented at the display rate instead of each waiting for a retrace of its own. This requires
+     * {@link SwapControl#QUERYABLE} swap control, without it every swap keeps its interval. The interval of a canvas is restored as soon as it is
+     * swapped last in a batch or by {@link #swapBuffers()}, and {@link #glGetSwapInterval()} reports it meanwhile.
+     * <p>
+     * Like with {@link #swapBuffers()}, canvases which are not {@link Visibility#VISIBLE} are not swapped. The canvas swapped last remains current.
+     *
+     * @param canvases the canvases to swap
+     * @return the time spent swapping the buffers of each canvas in nanoseconds, in the order of the given canvases, with 0 for canvases which were
+     *         not swapped
+     * @exception IllegalArgumentException <ul>
+     *    <li>ERROR_NULL_ARGUMENT - if the array or one of its canvases is null</li>
+     * </ul>
+     * @exception SWTException <ul>
+     *    <li>ERROR_WIDGET_DISPOSED - if one of the canvases has been disposed</li>
+     *    <li>ERROR_THREAD_INVALID_ACCESS - if not called from the thread that created the canvases or, once started, from their render thread</li>
+     * </ul>
+     */
+    public static long[] swapAll(GLCanvas... canvases) {
+        if (canvases == null)
+            SWT.error(SWT.ERROR_NULL_ARGUMENT);
+        // Check all canvases before the first swap, so that a batch is never presented partially
+        for (int i = 0; i < canvases.length; i++) {
+            if (canvases[i] == null)
+                SWT.error(SWT.ERROR_NULL_ARGUMENT);
+            canvases[i].checkContextThread();
+        }
+        int[] order = swapOrder(canvases);
+        int last = -1;
+        for (int i = 0; i < order.length; i++)
+            if (canvases[order[i]].visibility == Visibility.VISIBLE)
+                last = i;
+        long[] nanos = new long[canvases.length];
+        for (int i = 0; i < order.length; i++) {
+            GLCanvas canvas = canvases[order[i]];
+            canvas.setCurrent();
+            if (i == last)
+                canvas.restoreSwapInterval();
+            else if (i < last && canvas.visibility == Visibility.VISIBLE)
+                canvas.deferSwapInterval();
+            nanos[order[i]] = canvas.swap();
+        }
+        return nanos;
+    }
+
+    /**
+     * Order the canvases by context, starting with the context which is current on the calling thread.
+     */
+    private static int[] swapOrder(GLCanvas[] canvases) {
+        int n = canvases.length;
+        int[] order = new int[n];
+        if (n == 0)
+            return order;
+        long current = GLCurrentContext.get().context();
+        int first = 0;
+        for (int i = 0; i < n; i++) {
+            if (GLCurrentContext.VERIFY ? canvases[i].platform.isCurrent(canvases[i].context) : canvases[i].context == current) {
+                first = i;
+                break;
+            }
+        }
+        boolean[] taken = new boolean[n];
+        int count = 0;
+        for (int k = -1; k < n; k++) {
+            int i = k < 0 ? first : k;
+            if (taken[i])
+                continue;
+            taken[i] = true;
+            order[count++] = i;
+            for (int j = 0; j < n; j++) {
+                if (!taken[j] && canvases[j].context == canvases[i].context) {
+                    taken[j] = true;
+                    order[count++] = j;
+                }
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Turn off vertical synchronization for a swap in the middle of {@link #swapAll(GLCanvas...)}, remembering the interval to restore.
+     */
+    private void deferSwapInterval() {
+        Integer current = effective.swapInterval;
+        if (deferredSwapInterval != null || current != null && current.intValue() == 0)
+            return;
+        SwapControl control = platform.getSwapControl(this);
+        if (control != SwapControl.QUERYABLE && control != SwapControl.ADAPTIVE)
+            return;
+        int interval = platform.glGetSwapInterval(this);
+        if (interval != 0 && platform.glSwapInterval(this, 0))
+            deferredSwapInterval = Integer.valueOf(interval);
+    }
+
+    /**
+     * Restore the swap interval turned off by {@link #deferSwapInterval()}, if any.
+     */
+    private void restoreSwapInterval() {
+        Integer interval = deferredSwapInterval;
+        if (interval != null) {
+            deferredSwapInterval = null;
+            platform.glSwapInterval(this, interval.intValue());
+        }
+    }
+
+    /**
+     * Returns the age of the back buffer, i.e. the number of swaps ago its contents were the current frame. A renderer which keeps the damage of
+     * its recent frames only needs to redraw the damage of that many frames, and can pass just its own damage to {@link #swapBuffers(Rectangle...)}.
+     * The context must be current.
+     * <p>
+     * On Linux, this requires <code>EGL_EXT_buffer_age</code> or <code>GLX_EXT_buffer_age</code>, or <code>GLX_MESA_copy_sub_buffer</code> having
+     * been used for the previous swap.
+     *
+     * @return the age of the back buffer, or 0 if its contents are undefined or unknown and everything has to be redrawn
+     * @exception SWTException <ul>
+     *    <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+     *    <li>ERROR_THREAD_INVALID_ACCESS - if not called from the thread that created the receiver or, once started, from its render thread</li>
+     * </ul>
+     */
+    public int getBufferAge() {
+        checkContextThread();
+        return platform.getBufferAge(this);
     }
 
     /**
@@ -138,8 +685,11 @@ public class GLCanvas extends Canvas {
      * @return The current swap interval for the window associated with the current context.
      */
     public int glGetSwapInterval() {
-        checkWidget();
-        return platformCanvas.glGetSwapInterval(this);
+        checkContextThread();
+        Integer deferred = deferredSwapInterval;
+        if (deferred != null)
+            return deferred.intValue();
+        return platform.glGetSwapInterval(this);
     }
 
     /**
@@ -159,8 +709,22 @@ public class GLCanvas extends Canvas {
      * @return <code>true</code> if the implementation was able to set the swap interval
      */
     public boolean glSwapInterval(int interval) {
-        checkWidget();
-        return platformCanvas.glSwapInterval(this, interval);
+        checkContextThread();
+        deferredSwapInterval = null;
+        return platform.glSwapInterval(this, interval);
+    }
+
+    /**
+     * Returns how far the swap interval of this canvas can be controlled, depending on the swap control extensions of the platform and driver.
+     * <p>
+     * {@link GLData#swapInterval} and {@link #glSwapInterval(int)} fail for intervals this does not cover: negative ones below
+     * {@link SwapControl#ADAPTIVE}, and 0 below {@link SwapControl#QUERYABLE}.
+     *
+     * @return the {@link SwapControl} tier
+     */
+    public SwapControl getSwapControl() {
+        checkContextThread();
+        return platform.getSwapControl(this);
     }
 
     /**
@@ -171,8 +735,422 @@ public class GLCanvas extends Canvas {
      * @return <code>true</code> if the implementation had to wait for the synchronized swap; <code>false</code> otherwise
      */
     public boolean delayBeforeSwapNV(float seconds) {
+        checkContextThread();
+        return platform.delayBeforeSwapNV(this, seconds);
+    }
+
+    /**
+     * Reads the presentation counters of the canvas: the current media stream counter (MSC), i.e. the number of vertical retraces, together with the
+     * system time (UST) at which the current retrace began, and the swap buffer counter (SBC).
+     * <p>
+     * On Linux, this requires <code>GLX_OML_sync_control</code>, which Mesa implements.
+     *
+     * @param values the {@link GLSyncValues} to store the counters in
+     * @return <code>true</code> if the counters could be read; <code>false</code> if neither the platform nor the driver supports them
+     * @exception IllegalArgumentException <ul>
+     *    <li>ERROR_NULL_ARGUMENT - if the values are null</li>
+     * </ul>
+     */
+    public boolean getSyncValues(GLSyncValues values) {
+        checkContextThread();
+        if (values == null)
+            SWT.error(SWT.ERROR_NULL_ARGUMENT);
+        return platform.getSyncValues(this, values);
+    }
+
+    /**
+     * Returns the rate at which the media stream counter of the canvas increases, i.e. the refresh rate of its display.
+     *
+     * @return the refresh rate in Hz, or 0 if it is unknown
+     */
+    public double getRefreshRate() {
+        checkContextThread();
+        return platform.getRefreshRate(this);
+    }
+
+    /**
+     * Swaps the front and back color buffers at a given vertical retrace, instead of the next one.
+     * <p>
+     * The swap happens at the retrace whose media stream counter (MSC) is <code>targetMsc</code>, or, if that has already passed and
+     * <code>divisor</code> is not 0, at the next retrace whose MSC modulo <code>divisor</code> is <code>remainder</code>. The call itself returns
+     * right away; {@link #waitForSbc(long, GLSyncValues)} tells when the swap has actually happened. Swap hooks run just like for
+     * {@link #swapBuffers()}.
+     * <p>
+     * On Linux, this requires <code>GLX_OML_sync_control</code>. Without it, this is equivalent to {@link #swapBuffers()}.
+     *
+     * @param targetMsc the MSC to swap at
+     * @param divisor the divisor, or 0 to swap at <code>targetMsc</code> or right away if it has passed
+     * @param remainder the remainder, less than <code>divisor</code>
+     * @return the swap buffer counter (SBC) the swap will complete, or <code>-1</code> if the swap could not be scheduled
+     * @exception IllegalArgumentException if an argument is negative, or the remainder is not less than a positive divisor
+     */
+    public long swapBuffersMsc(long targetMsc, long divisor, long remainder) {
+        checkContextThread();
+        if (targetMsc < 0L || divisor < 0L || remainder < 0L || divisor > 0L && remainder >= divisor)
+            throw new IllegalArgumentException("Invalid target MSC, divisor or remainder");
+        return swap(() -> platform.swapBuffersMsc(this, targetMsc, divisor, remainder));
+    }
+
+    /**
+     * Blocks until the swap buffer counter (SBC) of the canvas has reached the given value, and then reads the presentation counters as of that swap.
+     * This tells exactly when a frame went on screen.
+     * <p>
+     * On Linux, this requires <code>GLX_OML_sync_control</code>.
+     *
+     * @param targetSbc the SBC to wait for, or 0 to wait for all swaps issued so far
+     * @param values the {@link GLSyncValues} to store the counters of that swap in
+     * @return <code>true</code> if the wait succeeded; <code>false</code> if neither the platform nor the driver supports it
+     * @exception IllegalArgumentException <ul>
+     *    <li>ERROR_NULL_ARGUMENT - if the values are null</li>
+     *    <li>if the target SBC is negative</li>
+     * </ul>
+     */
+    public boolean waitForSbc(long targetSbc, GLSyncValues values) {
+        checkContextThread();
+        if (values == null)
+            SWT.error(SWT.ERROR_NULL_ARGUMENT);
+        if (targetSbc < 0L)
+            throw new IllegalArgumentException("Target SBC must not be negative");
+        return platform.waitForSbc(this, targetSbc, values);
+    }
+
+    /**
+     * Blocks until the beginning of the next vertical retrace of the display. The context of the canvas must be current.
+     * <p>
+     * On Linux, this requires <code>GLX_SGI_video_sync</code>, which Mesa implements.
+     *
+     * @return <code>true</code> if the wait succeeded; <code>false</code> if neither the platform nor the driver supports it
+     */
+    public boolean waitForVBlank() {
+        checkContextThread();
+        return platform.waitForVBlank(this);
+    }
+
+    /**
+     * Start a dedicated render thread for this canvas, which from then on exclusively owns the OpenGL context and drives the given {@link GLRenderer}.
+     * <p>
+     * This requires the canvas to have been created with {@link GLData#renderThread} set to <code>true</code>. Resize, paint and dispose events of the
+     * SWT display thread are forwarded to the render thread through a lock-free queue, so that rendering heavy frames does not block event dispatch.
+     * After this call, {@link #setCurrent()}, {@link #swapBuffers()} and the swap control methods may only be called from the render thread.
+     * 
+     * @param renderer
+     *            the {@link GLRenderer} to drive from the render thread
+     * @exception IllegalArgumentException <ul>
+     *    <li>ERROR_NULL_ARGUMENT - if the renderer is null</li>
+     * </ul>
+     * @exception IllegalStateException if the canvas was not created for a render thread or the render thread has already been started
+     * @exception SWTException <ul>
+     *    <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+     *    <li>ERROR_THREAD_INVALID_ACCESS - if not called from the thread that created the receiver</li>
+     * </ul>
+     */
+    public void startRenderThread(GLRenderer renderer) {
+        checkWidget();
+        if (renderer == null)
+            SWT.error(SWT.ERROR_NULL_ARGUMENT);
+        if (!effective.renderThread)
+            throw new IllegalStateException("GLCanvas was not created with GLData.renderThread");
+        if (renderThread != null)
+            throw new IllegalStateException("Render thread has already been started");
+        // The context can only be current in one thread at a time
+        releaseCurrent();
+        GLRenderThread thread = new GLRenderThread(this, renderer);
+        thread.post(SWT.Resize, drawableWidth, drawableHeight);
+        renderThread = thread;
+        thread.start();
+    }
+
+    /**
+     * Returns the policy by which the drawable follows the size of the widget.
+     *
+     * @return the {@link ResizePolicy}
+     * @exception SWTException <ul>
+     *    <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+     *    <li>ERROR_THREAD_INVALID_ACCESS - if not called from the thread that created the receiver</li>
+     * </ul>
+     */
+    public ResizePolicy getResizePolicy() {
+        checkWidget();
+        return resizePolicy;
+    }
+
+    /**
+     * Sets the policy by which the drawable follows the size of the widget. The default is {@link ResizePolicy#IMMEDIATE}.
+     * <p>
+     * Whatever the policy, the size reported to {@link GLRenderer#resized(GLCanvas, int, int)} by a render thread or a {@link GLAnimator} is always the
+     * size the drawable has actually been given, and a resize which is still pending is applied right away when switching policies.
+     *
+     * @param policy the new {@link ResizePolicy}
+     * @exception IllegalArgumentException <ul>
+     *    <li>ERROR_NULL_ARGUMENT - if the policy is null</li>
+     * </ul>
+     * @exception SWTException <ul>
+     *    <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+     *    <li>ERROR_THREAD_INVALID_ACCESS - if not called from the thread that created the receiver</li>
+     * </ul>
+     */
+    public void setResizePolicy(ResizePolicy policy) {
         checkWidget();
-        return platformCanvas.delayBeforeSwapNV(this, seconds);
+        if (policy == null)
+            SWT.error(SWT.ERROR_NULL_ARGUMENT);
+        resizePolicy = policy;
+        if (resizePending) {
+            resizePending = false;
+            applyResize();
+        }
+    }
+
+    /**
+     * Returns whether the canvas can currently be seen. While it cannot, {@link #swapBuffers()} does not swap, its render thread does not render,
+     * and a {@link GLAnimator} does not schedule frames for it.
+     * <p>
+     * A canvas created before its shell was opened is {@link Visibility#VISIBLE} until the window system reported otherwise.
+     * <p>
+     * This method may be called from any thread.
+     *
+     * @return the current {@link Visibility}
+     */
+    public Visibility getVisibility() {
+        return visibility;
+    }
+
+    /**
+     * Adds a listener to be notified on the SWT display thread whenever the {@link Visibility} of the canvas changes.
+     *
+     * @param listener the {@link VisibilityListener} to add
+     * @exception IllegalArgumentException <ul>
+     *    <li>ERROR_NULL_ARGUMENT - if the listener is null</li>
+     * </ul>
+     * @exception SWTException <ul>
+     *    <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+     *    <li>ERROR_THREAD_INVALID_ACCESS - if not called from the thread that created the receiver</li>
+     * </ul>
+     */
+    public void addVisibilityListener(VisibilityListener listener) {
+        checkWidget();
+        if (listener == null)
+            SWT.error(SWT.ERROR_NULL_ARGUMENT);
+        VisibilityListener[] listeners = Arrays.copyOf(visibilityListeners, visibilityListeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+        visibilityListeners = listeners;
+    }
+
+    /**
+     * Removes a listener previously added via {@link #addVisibilityListener(VisibilityListener)}.
+     *
+     * @param listener the {@link VisibilityListener} to remove
+     * @exception SWTException <ul>
+     *    <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+     *    <li>ERROR_THREAD_INVALID_ACCESS - if not called from the thread that created the receiver</li>
+     * </ul>
+     */
+    public void removeVisibilityListener(VisibilityListener listener) {
+        checkWidget();
+        List<VisibilityListener> listeners = new ArrayList<VisibilityListener>(Arrays.asList(visibilityListeners));
+        listeners.remove(listener);
+        visibilityListeners = listeners.toArray(new VisibilityListener[listeners.size()]);
+    }
+
+    /**
+     * Ask the render thread to render another frame. Multiple requests before the next frame are coalesced into one.
+     * <p>
+     * This method may be called from any thread. It has no effect if no render thread has been started.
+     */
+    public void requestRender() {
+        GLRenderThread thread = renderThread;
+        if (thread != null)
+            thread.requestRender();
+    }
+
+    /**
+     * Register a hook to run on the SWT display thread when the canvas is disposed, before its context is deleted.
+     */
+    void addContextDisposeHook(Runnable hook) {
+        contextDisposeHooks.add(hook);
+    }
+
+    void removeContextDisposeHook(Runnable hook) {
+        contextDisposeHooks.remove(hook);
+    }
+
+    /**
+     * Called by the platform-specific dispose listener right before the context is deleted.
+     * <p>
+     * This stops the render thread, if any, and runs all registered dispose hooks, so that they can still release their GL resources.
+     */
+    void beforeDeleteContext() {
+        if (renderThread != null)
+            renderThread.shutdown();
+        Runnable[] hooks = contextDisposeHooks.toArray(new Runnable[contextDisposeHooks.size()]);
+        for (Runnable hook : hooks)
+            hook.run();
+        contextDisposeHooks.clear();
+        // deleting the context releases it if it is current with our drawable
+        GLCurrentContext.get().forget(this);
+    }
+
+    /**
+     * Register a hook to run around every buffer swap. This may be called from any thread.
+     */
+    synchronized void addSwapHook(SwapHook hook) {
+        SwapHook[] hooks = Arrays.copyOf(swapHooks, swapHooks.length + 1);
+        hooks[hooks.length - 1] = hook;
+        swapHooks = hooks;
+    }
+
+    /**
+     * Register a hook to run around every buffer swap before all hooks registered with {@link #addSwapHook(SwapHook)}. This is for hooks which
+     * complete the frame in the back buffer, so that hooks reading the back buffer see the final frame. This may be called from any thread.
+     */
+    synchronized void addSwapHookFirst(SwapHook hook) {
+        SwapHook[] hooks = new SwapHook[swapHooks.length + 1];
+        hooks[0] = hook;
+        System.arraycopy(swapHooks, 0, hooks, 1, swapHooks.length);
+        swapHooks = hooks;
+    }
+
+    synchronized void removeSwapHook(SwapHook hook) {
+        List<SwapHook> hooks = new ArrayList<SwapHook>(Arrays.asList(swapHooks));
+        hooks.remove(hook);
+        swapHooks = hooks.toArray(new SwapHook[hooks.size()]);
+    }
+
+    /**
+     * Listen for everything which may change the visibility of the canvas. Hidden tabs only send SWT.Hide/SWT.Show to the tab's control, which is an
+     * ancestor of the canvas, and minimizing only notifies the shell.
+     */
+    private void trackVisibility() {
+        addListener(SWT.Paint, visibilityListener);
+        addListener(SWT.Resize, visibilityListener);
+        addListener(SWT.Dispose, visibilityListener);
+        for (Control control = this; control != null; control = control.getParent()) {
+            control.addListener(SWT.Show, visibilityListener);
+            control.addListener(SWT.Hide, visibilityListener);
+            visibilityWatched.add(control);
+            if (control instanceof Shell) {
+                control.addListener(SWT.Iconify, visibilityListener);
+                control.addListener(SWT.Deiconify, visibilityListener);
+                break;
+            }
+        }
+        // Before the shell is opened, the canvas is never viewable. Opening it sends the events which determine the visibility.
+        if (getShell().isVisible())
+            updateVisibility();
+    }
+
+    private void untrackVisibility() {
+        for (Control control : visibilityWatched) {
+            if (control.isDisposed())
+                continue;
+            control.removeListener(SWT.Show, visibilityListener);
+            control.removeListener(SWT.Hide, visibilityListener);
+            control.removeListener(SWT.Iconify, visibilityListener);
+            control.removeListener(SWT.Deiconify, visibilityListener);
+        }
+        visibilityWatched.clear();
+    }
+
+    /**
+     * Determine the visibility of the canvas and notify the listeners and the render thread if it changed.
+     */
+    private void updateVisibility() {
+        if (isDisposed())
+            return;
+        Visibility current;
+        Rectangle clientArea = getClientArea();
+        if (getShell().getMinimized())
+            current = Visibility.MINIMIZED;
+        else if (!isVisible() || clientArea.width <= 0 || clientArea.height <= 0 || !platform.isViewable(this))
+            current = Visibility.HIDDEN;
+        else
+            current = Visibility.VISIBLE;
+        if (current == visibility)
+            return;
+        visibility = current;
+        GLRenderThread thread = renderThread;
+        if (thread != null)
+            thread.visibilityChanged();
+        VisibilityListener[] listeners = visibilityListeners;
+        for (int i = 0; i < listeners.length; i++)
+            listeners[i].visibilityChanged(this, current);
+    }
+
+    /**
+     * Handle an {@link SWT#Resize} event according to the resize policy.
+     */
+    private void resizeRequested() {
+        // Holding back the size is pointless if the window system already resized the drawable
+        if (resizePolicy == ResizePolicy.IMMEDIATE || platform.drawableFollowsWidget(this)) {
+            applyResize();
+            return;
+        }
+        resizePending = true;
+        lastResizeTime = System.nanoTime();
+        if (resizeScheduled)
+            return;
+        resizeScheduled = true;
+        if (resizePolicy == ResizePolicy.COALESCED)
+            // Runs once the event queue is empty, i.e. after all resize events of a drag step have been dispatched
+            getDisplay().asyncExec(resizeTask);
+        else
+            getDisplay().timerExec(RESIZE_SETTLE_MILLIS, resizeTask);
+    }
+
+    /**
+     * Apply a pending resize, unless the resize policy is {@link ResizePolicy#DEFERRED} and resize events are still arriving.
+     * <p>
+     * This runs on the SWT display thread, either scheduled by {@link #resizeRequested()} or right before a frame rendered by a {@link GLAnimator},
+     * whichever comes first.
+     */
+    void applyPendingResize() {
+        if (!resizePending || isDisposed())
+            return;
+        if (resizePolicy == ResizePolicy.DEFERRED) {
+            long remaining = RESIZE_SETTLE_MILLIS - (System.nanoTime() - lastResizeTime) / 1000000L;
+            if (remaining > 0L) {
+                if (!resizeScheduled) {
+                    resizeScheduled = true;
+                    getDisplay().timerExec((int) remaining, resizeTask);
+                }
+                return;
+            }
+        }
+        resizePending = false;
+        applyResize();
+        if (resizePolicy == ResizePolicy.DEFERRED)
+            // Frames have been rendered at the old size in the meantime
+            redraw();
+    }
+
+    /**
+     * Give the drawable the current size of the widget and tell the render thread, if any.
+     */
+    private void applyResize() {
+        Rectangle clientArea = DPIUtil.autoScaleUp(getClientArea());
+        drawableWidth = clientArea.width;
+        drawableHeight = clientArea.height;
+        platform.resize(this, clientArea.x, clientArea.y, clientArea.width, clientArea.height);
+        if (renderThread != null)
+            renderThread.post(SWT.Resize, clientArea.width, clientArea.height);
+    }
+
+    /**
+     * Remember the size of the drawable in pixels, so that it can be queried from a render thread without touching the widget.
+     */
+    private void updateDrawableSize() {
+        Rectangle clientArea = DPIUtil.autoScaleUp(getClientArea());
+        drawableWidth = clientArea.width;
+        drawableHeight = clientArea.height;
+    }
+
+    /**
+     * Release the context from the calling thread, if it is current.
+     */
+    void releaseCurrent() {
+        if (context != 0L && platform.isCurrent(context)) {
+            platform.releaseCurrent(this);
+            GLCurrentContext.get().clear();
+        }
     }
 
 }
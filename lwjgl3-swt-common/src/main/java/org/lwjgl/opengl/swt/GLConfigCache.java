@@ -0,0 +1,263 @@
+package org.lwjgl.opengl.swt;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.lwjgl.system.Platform;
+
+/**
+ * Process-wide cache of the framebuffer configurations chosen for a {@link GLData}, so that creating many canvases with the same attributes only
+ * probes the driver once.
+ * <p>
+ * Entries are keyed by a driver identity string supplied by the platform implementation and by all {@link GLData} fields which influence the choice of
+ * the configuration. Each entry stores the platform-specific identifier of the configuration (a GLX FBConfig ID or a WGL pixel format index) together
+ * with its effective framebuffer attributes.
+ * <p>
+ * By default the cache only lives in memory. If the system property <code>org.lwjgl.opengl.swt.configCache</code> is <code>disk</code>, persistent
+ * entries are also written to <code>lwjgl3-swt/glconfig.properties</code> in the user's cache directory, so that later launches skip the probing, too.
+ * A value of <code>off</code> disables the cache altogether. A stale entry does no harm: if its configuration no longer exists, the platform
+ * implementation removes it and probes again.
+ */
+final class GLConfigCache {
+
+    private static final String MODE = System.getProperty("org.lwjgl.opengl.swt.configCache", "memory");
+    private static final boolean ENABLED = !"off".equals(MODE);
+    private static final boolean PERSISTENT = "disk".equals(MODE);
+
+    /**
+     * A cached framebuffer configuration.
+     */
+    static final class Entry {
+        /**
+         * The platform-specific identifier of the configuration.
+         */
+        final int id;
+        private final int[] attribs;
+
+        private Entry(int id, int[] attribs) {
+            this.id = id;
+            this.attribs = attribs;
+        }
+
+        /**
+         * Store the cached framebuffer attributes in <code>effective</code>.
+         */
+        void applyTo(GLData effective) {
+            effective.redSize = attribs[0];
+            effective.greenSize = attribs[1];
+            effective.blueSize = attribs[2];
+            effective.alphaSize = attribs[3];
+            effective.depthSize = attribs[4];
+            effective.stencilSize = attribs[5];
+            effective.doubleBuffer = attribs[6] != 0;
+            effective.stereo = attribs[7] != 0;
+            effective.accumRedSize = attribs[8];
+            effective.accumGreenSize = attribs[9];
+            effective.accumBlueSize = attribs[10];
+            effective.accumAlphaSize = attribs[11];
+            effective.sampleBuffers = attribs[12];
+            effective.samples = attribs[13];
+            effective.pixelFormatFloat = attribs[14] != 0;
+        }
+
+        /**
+         * Check whether the framebuffer attributes reported for a configuration still match the cached ones, i.e. the identifier was not reused by an
+         * updated driver for a different configuration.
+         */
+        boolean matches(GLData effective) {
+            return attribs[0] == effective.redSize && attribs[1] == effective.greenSize && attribs[2] == effective.blueSize
+                    && attribs[3] == effective.alphaSize && attribs[4] == effective.depthSize && attribs[5] == effective.stencilSize
+                    && attribs[6] != 0 == effective.doubleBuffer && attribs[7] != 0 == effective.stereo
+                    && attribs[8] == effective.accumRedSize && attribs[9] == effective.accumGreenSize && attribs[10] == effective.accumBlueSize
+                    && attribs[11] == effective.accumAlphaSize && attribs[12] == effective.sampleBuffers && attribs[13] == effective.samples
+                    && attribs[14] != 0 == effective.pixelFormatFloat;
+        }
+
+        private String encode() {
+            StringBuilder sb = new StringBuilder().append(id);
+            for (int attrib : attribs)
+                sb.append(',').append(attrib);
+            return sb.toString();
+        }
+
+        private static Entry decode(String value) {
+            String[] parts = value.split(",");
+            if (parts.length != 16)
+                return null;
+            try {
+                int[] attribs = new int[15];
+                for (int i = 0; i < attribs.length; i++)
+                    attribs[i] = Integer.parseInt(parts[i + 1]);
+                return new Entry(Integer.parseInt(parts[0]), attribs);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    private static final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    private static boolean loaded;
+
+    private GLConfigCache() {
+    }
+
+    /**
+     * Build the cache key for the given driver, kind of drawable and requested attributes.
+     *
+     * @param driver
+     *            identifies the driver which chooses the configuration, e.g. its vendor and version strings
+     * @param drawableType
+     *            the kind of drawable the configuration is chosen for, e.g. <code>GLX_WINDOW_BIT</code>
+     * @param data
+     *            the requested attributes
+     * @return the key
+     */
+    static String key(String driver, int drawableType, GLData data) {
+        return new StringBuilder(driver).append('|').append(drawableType)
+                .append('|').append(data.redSize).append(',').append(data.greenSize).append(',').append(data.blueSize).append(',').append(data.alphaSize)
+                .append('|').append(data.depthSize).append(',').append(data.stencilSize)
+                .append('|').append(data.accumRedSize).append(',').append(data.accumGreenSize).append(',').append(data.accumBlueSize).append(',')
+                .append(data.accumAlphaSize)
+                .append('|').append(data.doubleBuffer ? 'd' : '-').append(data.stereo ? 's' : '-').append(data.sRGB ? 'c' : '-')
+                .append(data.pixelFormatFloat ? 'f' : '-')
+                .append('|').append(data.samples).append(',').append(data.colorSamplesNV)
+                .toString();
+    }
+
+    /**
+     * Look up a cached configuration.
+     *
+     * @param key
+     *            the key built by {@link #key(String, int, GLData)}
+     * @return the cached {@link Entry}, or <code>null</code> if there is none
+     */
+    static Entry get(String key) {
+        if (!ENABLED)
+            return null;
+        if (PERSISTENT)
+            load();
+        return entries.get(key);
+    }
+
+    /**
+     * Cache the configuration chosen for a key.
+     *
+     * @param key
+     *            the key built by {@link #key(String, int, GLData)}
+     * @param id
+     *            the platform-specific identifier of the configuration
+     * @param effective
+     *            the effective framebuffer attributes of the configuration
+     * @param persistent
+     *            whether the identifier remains valid in other processes, so that the entry may be written to disk
+     */
+    static void put(String key, int id, GLData effective, boolean persistent) {
+        if (!ENABLED)
+            return;
+        int[] attribs = {
+                effective.redSize, effective.greenSize, effective.blueSize, effective.alphaSize,
+                effective.depthSize, effective.stencilSize,
+                effective.doubleBuffer ? 1 : 0, effective.stereo ? 1 : 0,
+                effective.accumRedSize, effective.accumGreenSize, effective.accumBlueSize, effective.accumAlphaSize,
+                effective.sampleBuffers, effective.samples,
+                effective.pixelFormatFloat ? 1 : 0
+        };
+        Entry entry = new Entry(id, attribs);
+        Entry previous = entries.put(key, entry);
+        if (PERSISTENT && persistent && (previous == null || previous.id != id))
+            store(key, entry);
+    }
+
+    /**
+     * Forget a configuration which turned out to be stale.
+     *
+     * @param key
+     *            the key built by {@link #key(String, int, GLData)}
+     */
+    static void remove(String key) {
+        if (entries.remove(key) != null && PERSISTENT)
+            store(key, null);
+    }
+
+    private static File file() {
+        String dir;
+        switch (Platform.get()) {
+        case WINDOWS:
+            dir = System.getenv("LOCALAPPDATA");
+            break;
+        case MACOSX:
+            dir = System.getProperty("user.home") + "/Library/Caches";
+            break;
+        default:
+            dir = System.getenv("XDG_CACHE_HOME");
+            if (dir == null || dir.isEmpty())
+                dir = System.getProperty("user.home") + "/.cache";
+            break;
+        }
+        if (dir == null)
+            dir = System.getProperty("java.io.tmpdir");
+        return new File(new File(dir, "lwjgl3-swt"), "glconfig.properties");
+    }
+
+    private static synchronized void load() {
+        if (loaded)
+            return;
+        loaded = true;
+        Properties properties = read(file());
+        for (String key : properties.stringPropertyNames()) {
+            Entry entry = Entry.decode(properties.getProperty(key));
+            if (entry != null)
+                entries.putIfAbsent(key, entry);
+        }
+    }
+
+    private static Properties read(File file) {
+        Properties properties = new Properties();
+        if (file.isFile()) {
+            try (InputStream in = new FileInputStream(file)) {
+                properties.load(in);
+            } catch (IOException | IllegalArgumentException e) {
+                // A damaged cache is as good as an empty one
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * Update a single entry in the cache file. The file is re-read first to keep entries written by other processes in the meantime, and replaced
+     * atomically so that concurrent readers never see a partial file. Failures are ignored since the cache is merely an optimization.
+     */
+    private static synchronized void store(String key, Entry entry) {
+        File file = file();
+        Properties properties = read(file);
+        if (entry != null)
+            properties.setProperty(key, entry.encode());
+        else if (properties.remove(key) == null)
+            return;
+        try {
+            File dir = file.getParentFile();
+            if (!dir.isDirectory() && !dir.mkdirs())
+                return;
+            File tmp = File.createTempFile("glconfig", ".tmp", dir);
+            try (OutputStream out = new FileOutputStream(tmp)) {
+                properties.store(out, "lwjgl3-swt framebuffer configuration cache");
+            }
+            try {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                tmp.delete();
+            }
+        } catch (IOException e) {
+            // Ignore, the next launch will probe again
+        }
+    }
+
+}
@@ -0,0 +1,204 @@
+package org.lwjgl.opengl.swt;
+
+import java.util.ArrayDeque;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.SWTException;
+
+/**
+ * A pool of OpenGL contexts which are created ahead of time on a background thread, so that constructing a {@link GLCanvas} with
+ * {@link GLCanvas#GLCanvas(org.eclipse.swt.widgets.Composite, int, GLContextPool)} only has to create a window for an already existing context.
+ * <p>
+ * All contexts of a pool are in the same share group: they share objects with a hidden root context owned by the pool, which in turn shares with
+ * {@link GLData#shareContext}, if set. The pool keeps up to the given number of contexts ready and creates a replacement whenever a canvas takes one.
+ * If no context is ready, the canvas creates one synchronously, still in the share group of the pool.
+ * <p>
+ * If creating a context in the background fails, the failure is thrown by the next canvas taking a context from the pool, after which the pool
+ * tries again.
+ * <p>
+ * Pooling is currently only implemented for Linux/GLX. There, every pooled context comes with its own X display connection, which is handed over to
+ * the canvas together with the context, so canvases created from a pool may also use {@link GLData#renderThread}. On other platforms and with EGL, the
+ * pool starts no thread and canvases created from it simply create their context synchronously with the {@link GLData} of the pool.
+ */
+public class GLContextPool {
+
+    /**
+     * A context created by the platform implementation, together with everything needed to later attach it to a window.
+     */
+    static final class PooledContext {
+        final GLData effective = new GLData();
+        long context;
+        long xDisplay;
+        long fbConfig;
+        Integer swapInterval;
+    }
+
+    final GLData data;
+    private final PlatformGLCanvas platform;
+    private final int size;
+    private final ArrayDeque<PooledContext> ready = new ArrayDeque<PooledContext>();
+    private final Thread creator;
+    private PooledContext root;
+    private boolean disposed;
+    private RuntimeException failure;
+
+    /**
+     * Create a pool of contexts with the attributes described in the GLData object provided, and start filling it in the background.
+     *
+     * @param data
+     *            the requested attributes of the contexts and of the canvases they will be attached to
+     * @param size
+     *            the number of contexts to keep ready
+     * @exception IllegalArgumentException
+     *                <ul>
+     *                <li>ERROR_NULL_ARGUMENT when the data is null
+     *                <li>when the size is negative
+     *                </ul>
+     * @exception SWTException
+     *                if {@link GLData#shareContext} was created with another context creation API
+     */
+    public GLContextPool(GLData data, int size) {
+        if (data == null)
+            SWT.error(SWT.ERROR_NULL_ARGUMENT);
+        if (size < 0)
+            throw new IllegalArgumentException("Pool size must not be negative");
+        AbstractPlatformGLCanvas.validateAttributes(data);
+        this.data = data;
+        platform = GLCanvas.platformCanvas.select(data);
+        // the contexts are created on the creator thread, where the shared context could not be rejected anymore
+        if (data.shareContext != null && data.shareContext.platform != platform)
+            throw new SWTException("Objects can only be shared with canvases whose context was created with the same context creation API");
+        this.size = size;
+        if (!platform.supportsPooling()) {
+            creator = null;
+            return;
+        }
+        creator = new Thread(this::fill, "GLContextPool");
+        creator.setDaemon(true);
+        creator.start();
+    }
+
+    /**
+     * Returns the GLData object the contexts of this pool are created with.
+     *
+     * @return the requested attributes
+     */
+    public GLData getGLData() {
+        return data;
+    }
+
+    /**
+     * Returns the number of contexts which are ready to be taken.
+     *
+     * @return the number of ready contexts
+     */
+    public synchronized int getAvailable() {
+        return ready.size();
+    }
+
+    /**
+     * Stop creating contexts and delete all contexts which have not been taken yet. Canvases already created from this pool are not affected.
+     */
+    public void dispose() {
+        PooledContext[] contexts;
+        synchronized (this) {
+            if (disposed)
+                return;
+            disposed = true;
+            notifyAll();
+            contexts = ready.toArray(new PooledContext[ready.size()]);
+            ready.clear();
+        }
+        if (creator != null) {
+            try {
+                creator.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (PooledContext pooled : contexts)
+            platform.deleteContext(pooled);
+        synchronized (this) {
+            if (root != null)
+                platform.deleteContext(root);
+            root = null;
+        }
+    }
+
+    /**
+     * Take a ready context, or create one on the calling thread if none is ready.
+     *
+     * @return the context, or <code>null</code> if this platform does not support pooling
+     * @exception RuntimeException
+     *                the failure of the last attempt to create a context in the background, which is then retried
+     */
+    PooledContext take() {
+        if (creator == null)
+            return null;
+        PooledContext pooled;
+        synchronized (this) {
+            if (disposed)
+                SWT.error(SWT.ERROR_WIDGET_DISPOSED);
+            pooled = ready.poll();
+            RuntimeException e = failure;
+            failure = null;
+            notifyAll();
+            if (e != null)
+                throw e;
+        }
+        if (pooled != null)
+            return pooled;
+        return create();
+    }
+
+    private PooledContext create() {
+        long share = sharedRoot().context;
+        PooledContext pooled = new PooledContext();
+        platform.create(pooled, data, pooled.effective, share);
+        return pooled;
+    }
+
+    private synchronized PooledContext sharedRoot() {
+        if (root == null) {
+            PooledContext pooled = new PooledContext();
+            platform.create(pooled, data, pooled.effective, data.shareContext != null ? data.shareContext.context : 0L);
+            root = pooled;
+        }
+        return root;
+    }
+
+    private void fill() {
+        while (true) {
+            synchronized (this) {
+                // After a failure, wait for take() to report it before trying again
+                while (!disposed && (ready.size() >= size || failure != null)) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (disposed)
+                    return;
+            }
+            PooledContext pooled;
+            try {
+                pooled = create();
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    failure = e;
+                }
+                continue;
+            }
+            synchronized (this) {
+                if (!disposed) {
+                    ready.add(pooled);
+                    continue;
+                }
+            }
+            platform.deleteContext(pooled);
+            return;
+        }
+    }
+
+}
@@ -0,0 +1,68 @@
+package org.lwjgl.opengl.swt;
+
+/**
+ * The context and drawable which this library made current in a thread, so that finding out whether a canvas is current needs no native call.
+ * <p>
+ * Every make-current and release done by {@link GLCanvas} and {@link GLOffscreenCanvas} updates the state of the calling thread, and each canvas keeps
+ * a reference to the state of the thread it was last made current in. A redundant {@link GLCanvas#setCurrent()} then only reads a few fields.
+ * <p>
+ * Contexts made current behind the back of this library, e.g. by other libraries or by calling GLX, WGL or EGL directly, are not seen. Applications
+ * doing that should set the system property <code>org.lwjgl.opengl.swt.verifyCurrentContext</code> to <code>true</code>, which makes every check
+ * ask the platform instead.
+ */
+final class GLCurrentContext {
+
+    static final boolean VERIFY = Boolean.getBoolean("org.lwjgl.opengl.swt.verifyCurrentContext");
+
+    private static final ThreadLocal<GLCurrentContext> current = ThreadLocal.withInitial(GLCurrentContext::new);
+
+    private final Thread thread = Thread.currentThread();
+    private long context;
+    private Object drawable;
+
+    /**
+     * Returns the state of the calling thread.
+     */
+    static GLCurrentContext get() {
+        return current.get();
+    }
+
+    /**
+     * Returns whether this is the state of the calling thread and has the given context and drawable current.
+     */
+    boolean isCurrent(long context, Object drawable) {
+        return thread == Thread.currentThread() && this.context == context && this.drawable == drawable;
+    }
+
+    /**
+     * Returns the context current in the thread of this state, or 0.
+     */
+    long context() {
+        return context;
+    }
+
+    /**
+     * Record that the given context was made current with the given drawable.
+     */
+    void set(long context, Object drawable) {
+        this.context = context;
+        this.drawable = drawable;
+    }
+
+    /**
+     * Record that no context is current anymore.
+     */
+    void clear() {
+        context = 0L;
+        drawable = null;
+    }
+
+    /**
+     * Record that the given drawable is going away, which releases its context if it is current with it.
+     */
+    void forget(Object drawable) {
+        if (this.drawable == drawable)
+            clear();
+    }
+
+}
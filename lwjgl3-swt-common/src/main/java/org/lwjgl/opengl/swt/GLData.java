@@ -88,6 +88,10 @@ public class GLData {
         NONE, FLUSH;
     }
 
+    public static enum ContextCreationAPI {
+        NATIVE, EGL;
+    }
+
     /**
      * The major GL context version to use. It defaults to 0 for "not specified".
      */
@@ -113,7 +117,8 @@ public class GLData {
      */
     public boolean debug;
     /**
-     * Set the swap interval. It defaults to <code>null</code> for "not specified".
+     * Set the swap interval. It defaults to <code>null</code> for "not specified". Negative values request adaptive vsync, see
+     * {@link GLCanvas.SwapControl#ADAPTIVE}. Creating the canvas fails if the swap interval cannot be set.
      */
     public Integer swapInterval;
     /**
@@ -160,5 +165,33 @@ public class GLData {
      * The default is <code>false</code>.
      */
     public boolean noErrorContext;
+    /**
+     * Whether the context will be driven by a dedicated render thread instead of the SWT display thread.
+     * See {@link GLCanvas#startRenderThread(GLRenderer)}. The default is <code>false</code>.
+     */
+    public boolean renderThread;
+    /**
+     * The API used to create the context and its drawable. {@link ContextCreationAPI#NATIVE NATIVE} is GLX on Linux, WGL on Windows and NSOpenGL on
+     * macOS. {@link ContextCreationAPI#EGL EGL} is currently supported on Linux only, both on X11 and on Wayland.
+     * <p>
+     * It defaults to <code>null</code> for "not specified", which uses EGL on Linux if the system property
+     * <code>org.lwjgl.opengl.swt.contextCreationAPI</code> is <code>egl</code> or GTK does not run on X11, and the native API otherwise. A
+     * {@link GLOffscreenCanvas} created with EGL is headless and needs neither an X server nor GTK.
+     * <p>
+     * LWJGL loads OpenGL functions through GLX by default. Applications using EGL with {@link API#GL} should load them through EGL instead, e.g. by
+     * calling <code>GL.create(EGL.getFunctionProvider())</code> before creating the first canvas.
+     */
+    public ContextCreationAPI contextCreationAPI;
+    /**
+     * The {@link GLCanvas} whose context should be used by the canvas created with <code>this</code> GLData, instead of creating a context of its own.
+     * Unlike with {@link #shareContext}, the canvases then share all context state, including container objects like vertex array and framebuffer
+     * objects, and switching between them with {@link GLCanvas#setCurrent()} only rebinds the drawable, which is considerably cheaper than switching
+     * contexts.
+     * <p>
+     * The new canvas gets the frame buffer configuration and context attributes of the source canvas, so all other attributes except
+     * {@link #swapInterval} are ignored. Neither canvas can use a {@link #renderThread}. The context is deleted when the last canvas using it is
+     * disposed. This is currently supported on Linux only, with both GLX and EGL. It defaults to <code>null</code>.
+     */
+    public GLCanvas contextSource;
 
 }
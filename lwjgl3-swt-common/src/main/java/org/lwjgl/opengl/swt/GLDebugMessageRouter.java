@@ -0,0 +1,337 @@
+package org.lwjgl.opengl.swt;
+
+import static org.lwjgl.opengl.GL11C.*;
+import static org.lwjgl.opengl.GL43C.*;
+import static org.lwjgl.system.MemoryUtil.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.eclipse.swt.SWT;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL43C;
+import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.opengl.GLDebugMessageCallback;
+import org.lwjgl.opengl.KHRDebug;
+
+/**
+ * Routes the debug messages of a {@link GLCanvas} created with {@link GLData#debug} to {@link Listener}s on a background thread, so that debug
+ * contexts stay fast enough to keep their performance warnings in production.
+ * <p>
+ * The debug message callback runs on whichever thread the driver emits a message on, often in the middle of a GL call. It only copies the message into
+ * the next slot of a ring buffer allocated off-heap up front, and returns. Each message ID (per source and type) is passed on at most once per rate
+ * limit interval. Repeats within the interval are only counted, and the count is reported with the next message of that ID which is passed on. If all
+ * slots of the ring are still waiting to be delivered, messages are dropped and counted instead, see {@link #getDroppedMessages()}. A daemon thread
+ * drains the ring and calls the listeners, so neither the context thread nor the driver ever waits for them.
+ * <p>
+ * This requires OpenGL 4.3 or <code>KHR_debug</code>, and {@link GL#createCapabilities()} to have been called for the context. Messages longer than
+ * {@link #MAX_MESSAGE_LENGTH} bytes are truncated at the last UTF-8 character boundary before that.
+ */
+public class GLDebugMessageRouter {
+
+    /**
+     * Receives the debug messages passed on by the router.
+     */
+    public static interface Listener {
+        /**
+         * Called on the drain thread of the router for every message passed on, in the order the messages were emitted.
+         *
+         * @param canvas
+         *            the {@link GLCanvas} whose context emitted the message
+         * @param source
+         *            the source of the message, e.g. <code>GL_DEBUG_SOURCE_API</code>
+         * @param type
+         *            the type of the message, e.g. <code>GL_DEBUG_TYPE_PERFORMANCE</code>
+         * @param id
+         *            the ID of the message
+         * @param severity
+         *            the severity of the message, e.g. <code>GL_DEBUG_SEVERITY_MEDIUM</code>
+         * @param message
+         *            the message text
+         * @param suppressed
+         *            the number of messages with the same ID that were suppressed by the rate limit since the previous one was passed on
+         */
+        void messageReceived(GLCanvas canvas, int source, int type, int id, int severity, String message, int suppressed);
+    }
+
+    /**
+     * The maximum length of a message in bytes. Longer messages are truncated.
+     */
+    public static final int MAX_MESSAGE_LENGTH = 1000;
+
+    private static final int HEADER_SIZE = 24;
+    private static final int SLOT_SIZE = HEADER_SIZE + MAX_MESSAGE_LENGTH;
+    private static final int ID_TABLE_SIZE = 1024;
+    private static final long DRAIN_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(50L);
+
+    private final GLCanvas canvas;
+    private final long rateLimitNanos;
+    private final int slotCount;
+    private final ByteBuffer ring;
+    private final long ringAddress;
+    private final GLDebugMessageCallback callback;
+    private final Runnable disposeHook = this::contextDisposed;
+    private final Thread drainer;
+    private volatile Listener[] listeners = new Listener[0];
+    private volatile boolean running = true;
+    private volatile long droppedMessages;
+
+    // Written by the drain thread only
+    private volatile long tail;
+
+    // Guarded by the producer lock, the callback may be called on several driver threads
+    private final Object producerLock = new Object();
+    private volatile long head;
+    private final long[] idKeys = new long[ID_TABLE_SIZE];
+    private final long[] idPassed = new long[ID_TABLE_SIZE];
+    private final int[] idSuppressed = new int[ID_TABLE_SIZE];
+
+    /**
+     * Install a debug message callback in the context of the given canvas, which from then on routes its messages to the listeners of this router.
+     * <p>
+     * This must be called on the context thread of the canvas, which is made current.
+     *
+     * @param canvas
+     *            the {@link GLCanvas} whose messages to route
+     * @param capacity
+     *            the number of messages the ring buffer can hold until they are delivered
+     * @param rateLimitMillis
+     *            the minimum time in milliseconds between two messages with the same ID which are passed on, or 0 to pass on every message
+     * @exception IllegalArgumentException <ul>
+     *    <li>ERROR_NULL_ARGUMENT - if the canvas is null</li>
+     *    <li>if the capacity is not positive or the ring buffer would exceed 2 GB, or the rate limit is negative</li>
+     * </ul>
+     * @exception IllegalStateException if the canvas was not created with {@link GLData#debug}
+     * @exception UnsupportedOperationException if the context supports neither OpenGL 4.3 nor <code>KHR_debug</code>
+     */
+    public GLDebugMessageRouter(GLCanvas canvas, int capacity, long rateLimitMillis) {
+        if (canvas == null)
+            SWT.error(SWT.ERROR_NULL_ARGUMENT);
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity must be positive");
+        if (capacity > Integer.MAX_VALUE / SLOT_SIZE)
+            throw new IllegalArgumentException("Capacity must not exceed " + Integer.MAX_VALUE / SLOT_SIZE);
+        if (rateLimitMillis < 0L)
+            throw new IllegalArgumentException("Rate limit must not be negative");
+        canvas.setCurrent();
+        if (!canvas.effective.debug)
+            throw new IllegalStateException("GLCanvas was not created with GLData.debug");
+        GLCapabilities caps = GL.getCapabilities();
+        if (!caps.OpenGL43 && !caps.GL_KHR_debug)
+            throw new UnsupportedOperationException("Debug message routing requires OpenGL 4.3 or KHR_debug");
+        this.canvas = canvas;
+        this.rateLimitNanos = TimeUnit.MILLISECONDS.toNanos(rateLimitMillis);
+        this.slotCount = capacity;
+        this.ring = BufferUtils.createByteBuffer(capacity * SLOT_SIZE);
+        this.ringAddress = memAddress(ring);
+        this.callback = GLDebugMessageCallback.create((source, type, id, severity, length, message, userParam) -> enqueue(source, type, id,
+                severity, length, message));
+        drainer = new Thread(this::drain, "GLDebugMessageRouter");
+        drainer.setDaemon(true);
+        drainer.start();
+        if (caps.OpenGL43)
+            GL43C.glDebugMessageCallback(callback, NULL);
+        else
+            KHRDebug.glDebugMessageCallback(callback, NULL);
+        glEnable(GL_DEBUG_OUTPUT);
+        canvas.addContextDisposeHook(disposeHook);
+    }
+
+    /**
+     * @return the {@link GLCanvas} whose messages are routed
+     */
+    public GLCanvas getCanvas() {
+        return canvas;
+    }
+
+    /**
+     * Returns the number of messages which were dropped because the ring buffer was full.
+     *
+     * @return the number of dropped messages
+     */
+    public long getDroppedMessages() {
+        return droppedMessages;
+    }
+
+    /**
+     * Add a listener to be notified of the messages passed on. This may be called from any thread.
+     *
+     * @param listener
+     *            the {@link Listener} to add
+     */
+    public synchronized void addListener(Listener listener) {
+        if (listener == null)
+            SWT.error(SWT.ERROR_NULL_ARGUMENT);
+        Listener[] copy = Arrays.copyOf(listeners, listeners.length + 1);
+        copy[copy.length - 1] = listener;
+        listeners = copy;
+    }
+
+    /**
+     * Remove a listener previously added via {@link #addListener(Listener)}. This may be called from any thread.
+     *
+     * @param listener
+     *            the {@link Listener} to remove
+     */
+    public synchronized void removeListener(Listener listener) {
+        List<Listener> copy = new ArrayList<Listener>(Arrays.asList(listeners));
+        copy.remove(listener);
+        listeners = copy.toArray(new Listener[copy.size()]);
+    }
+
+    /**
+     * Uninstall the debug message callback. Messages which are already in the ring buffer are still delivered.
+     * <p>
+     * This must be called on the context thread of the canvas. If it is not called, the router is disposed together with the context.
+     */
+    public void dispose() {
+        if (!detach())
+            return;
+        canvas.setCurrent();
+        if (GL.getCapabilities().OpenGL43)
+            GL43C.glDebugMessageCallback(null, NULL);
+        else
+            KHRDebug.glDebugMessageCallback(null, NULL);
+        callback.free();
+    }
+
+    private void contextDisposed() {
+        if (!detach())
+            return;
+        // The driver may still emit messages while the context is being deleted, right after this hook
+        canvas.getDisplay().asyncExec(callback::free);
+    }
+
+    /**
+     * Stop routing messages and let the drain thread finish.
+     *
+     * @return whether the router was still running
+     */
+    private boolean detach() {
+        synchronized (producerLock) {
+            if (!running)
+                return false;
+            running = false;
+        }
+        canvas.removeContextDisposeHook(disposeHook);
+        LockSupport.unpark(drainer);
+        return true;
+    }
+
+    /**
+     * Copy a message into the ring buffer, called by the driver.
+     */
+    private void enqueue(int source, int type, int id, int severity, int length, long message) {
+        long now = System.nanoTime();
+        boolean wasEmpty;
+        synchronized (producerLock) {
+            if (!running)
+                return;
+            int suppressed = 0;
+            int entry = idEntry(((long) (source & 0xFFFF) << 48) | ((long) (type & 0xFFFF) << 32) | (id & 0xFFFFFFFFL), now);
+            if (entry >= 0) {
+                if (now - idPassed[entry] < rateLimitNanos) {
+                    idSuppressed[entry]++;
+                    return;
+                }
+                suppressed = idSuppressed[entry];
+                idSuppressed[entry] = 0;
+                idPassed[entry] = now;
+            }
+            long seq = head;
+            wasEmpty = seq == tail;
+            if (seq - tail >= slotCount) {
+                droppedMessages++;
+                if (entry >= 0)
+                    idSuppressed[entry] = suppressed;
+                return;
+            }
+            if (length < 0)
+                length = memLengthNT1(memByteBuffer(message, MAX_MESSAGE_LENGTH));
+            int n = Math.min(length, MAX_MESSAGE_LENGTH);
+            // Do not cut a multi-byte UTF-8 sequence, whose continuation bytes are 10xxxxxx
+            if (n < length)
+                while (n > 0 && (memGetByte(message + n) & 0xC0) == 0x80)
+                    n--;
+            int offset = (int) (seq % slotCount) * SLOT_SIZE;
+            ring.putInt(offset, source);
+            ring.putInt(offset + 4, type);
+            ring.putInt(offset + 8, id);
+            ring.putInt(offset + 12, severity);
+            ring.putInt(offset + 16, n);
+            ring.putInt(offset + 20, suppressed);
+            memCopy(message, ringAddress + offset + HEADER_SIZE, n);
+            // Publishes the slot to the drain thread
+            head = seq + 1;
+        }
+        if (wasEmpty)
+            LockSupport.unpark(drainer);
+    }
+
+    /**
+     * Find the rate limit entry of a message key, adding it if it is new.
+     *
+     * @return the index of the entry, or -1 if the table is full and the message is not rate-limited
+     */
+    private int idEntry(long key, long now) {
+        int mask = ID_TABLE_SIZE - 1;
+        int start = (int) (key ^ key >>> 29) * 0x9E3779B9 >>> 22 & mask;
+        for (int i = 0; i < ID_TABLE_SIZE; i++) {
+            int index = start + i & mask;
+            if (idKeys[index] == key)
+                return index;
+            if (idKeys[index] == 0L) {
+                idKeys[index] = key;
+                // Let the first message of an ID pass
+                idPassed[index] = now - rateLimitNanos;
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Deliver the messages of the ring buffer to the listeners until the router is detached and the ring is empty.
+     */
+    private void drain() {
+        ByteBuffer slots = ring.duplicate();
+        byte[] bytes = new byte[MAX_MESSAGE_LENGTH];
+        while (true) {
+            long seq = tail;
+            if (seq == head) {
+                if (!running)
+                    return;
+                LockSupport.parkNanos(this, DRAIN_INTERVAL_NANOS);
+                continue;
+            }
+            int offset = (int) (seq % slotCount) * SLOT_SIZE;
+            int source = slots.getInt(offset);
+            int type = slots.getInt(offset + 4);
+            int id = slots.getInt(offset + 8);
+            int severity = slots.getInt(offset + 12);
+            int length = slots.getInt(offset + 16);
+            int suppressed = slots.getInt(offset + 20);
+            slots.position(offset + HEADER_SIZE);
+            slots.get(bytes, 0, length);
+            // Hands the slot back to the producers
+            tail = seq + 1;
+            String message = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            Listener[] current = listeners;
+            for (int i = 0; i < current.length; i++) {
+                try {
+                    current[i].messageReceived(canvas, source, type, id, severity, message, suppressed);
+                } catch (RuntimeException e) {
+                    Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,331 @@
+package org.lwjgl.opengl.swt;
+
+import static org.lwjgl.opengl.GL11C.*;
+import static org.lwjgl.opengl.GL21C.*;
+import static org.lwjgl.opengl.GL30C.*;
+
+import org.eclipse.swt.SWT;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+
+/**
+ * Renders the frames of a {@link GLCanvas} at a variable fraction of its drawable size and upscales them to the drawable on every
+ * {@link GLCanvas#swapBuffers()}, so that fill-rate-bound scenes keep their frame time on high-resolution displays.
+ * <p>
+ * While this is attached, frames are rendered into an internal framebuffer object of {@link #getWidth()} x {@link #getHeight()} pixels, which is bound
+ * after construction and again after every swap. Renderers must therefore set their viewport to that size instead of the size reported to
+ * {@link GLRenderer#resized(GLCanvas, int, int)}, and call {@link #bind()} instead of binding framebuffer zero. Right before each swap, the framebuffer
+ * object is resolved, if multisampled, and blitted to the back buffer with linear filtering. As a scaled blit cannot target a multisampled window, the
+ * canvas itself must not be multisampled; request samples for the internal framebuffer instead.
+ * <p>
+ * A governor picks the scale from the GPU frame times recorded by the {@link GLFrameStats} of the canvas, which is created if the canvas has none. It
+ * averages the frame times over a few frames and then chooses the scale whose pixel count would meet {@link #setTargetFrameTime(long) the target frame
+ * time}, within {@link #setScaleBounds(float, float) the configured bounds}. Scaling down happens in one step, scaling up only halfway at a time, and
+ * changes smaller than {@value #HYSTERESIS} are ignored, so that the framebuffer object is not reallocated every few frames. Setting equal bounds fixes
+ * the scale.
+ * <p>
+ * This requires OpenGL 3.0 or <code>ARB_framebuffer_object</code>. All methods except the getters and setters of the governor must be called on the
+ * context thread of the canvas, with its context being current.
+ */
+public class GLDynamicResolution {
+
+    /**
+     * The number of GPU frame times averaged before the governor reconsiders the scale.
+     */
+    private static final int ADJUST_FRAMES = 8;
+
+    /**
+     * The number of GPU frame times ignored after a change of scale, as timer query results arrive a few frames late.
+     */
+    private static final int SETTLE_FRAMES = 4;
+
+    /**
+     * The smallest change of scale the governor applies.
+     */
+    public static final float HYSTERESIS = 0.05f;
+
+    private final GLCanvas canvas;
+    private final GLFrameStats stats;
+    private final boolean ownsStats;
+    private final int samples;
+    private final int colorFormat;
+    private final boolean depthStencil;
+    private final GLCanvas.SwapHook swapHook = new GLCanvas.SwapHook() {
+        public void beforeSwap(GLCanvas canvas) {
+            upscale();
+        }
+
+        public void afterSwap(GLCanvas canvas) {
+            bind();
+        }
+    };
+    private final GLFrameStats.Listener statsListener = (stats, swapNanos, intervalNanos, gpuNanos) -> govern(gpuNanos);
+    private final Runnable disposeHook = this::detach;
+    private volatile float minScale = 0.5f;
+    private volatile float maxScale = 1.0f;
+    private volatile long targetNanos = 1000000000L / 60;
+    private volatile float scale = 1.0f;
+    private volatile int width;
+    private volatile int height;
+
+    // Only accessed on the context thread
+    private int framebuffer;
+    private int colorBuffer;
+    private int depthStencilBuffer;
+    private int resolveFramebuffer;
+    private int resolveBuffer;
+    private int drawableWidth;
+    private int drawableHeight;
+    private boolean inFrame;
+    private double averageNanos;
+    private int averaged;
+    private int skip;
+    private boolean disposed;
+
+    /**
+     * Start rendering the frames of the given canvas into an internal framebuffer object, and bind it.
+     *
+     * @param canvas
+     *            the {@link GLCanvas} whose context is current
+     * @param samples
+     *            the number of samples of the internal framebuffer, or 0 for none
+     * @exception IllegalArgumentException
+     *                <ul>
+     *                <li>ERROR_NULL_ARGUMENT when the canvas is null
+     *                <li>when the number of samples is negative or the canvas is multisampled
+     *                </ul>
+     * @exception UnsupportedOperationException
+     *                if the context supports neither OpenGL 3.0 nor <code>ARB_framebuffer_object</code>
+     */
+    public GLDynamicResolution(GLCanvas canvas, int samples) {
+        if (canvas == null)
+            SWT.error(SWT.ERROR_NULL_ARGUMENT);
+        if (samples < 0)
+            throw new IllegalArgumentException("Number of samples must not be negative");
+        GLData effective = canvas.effective;
+        if (effective.sampleBuffers > 0 && effective.samples > 0)
+            throw new IllegalArgumentException("Dynamic resolution requires a canvas without multisampling");
+        GLCapabilities caps = GL.getCapabilities();
+        if (!caps.OpenGL30 && !caps.GL_ARB_framebuffer_object)
+            throw new UnsupportedOperationException("Dynamic resolution requires OpenGL 3.0 or ARB_framebuffer_object");
+        this.canvas = canvas;
+        this.samples = samples;
+        colorFormat = effective.sRGB ? GL_SRGB8_ALPHA8 : GL_RGBA8;
+        depthStencil = effective.depthSize > 0 || effective.stencilSize > 0;
+        GLFrameStats existing = canvas.frameStats;
+        ownsStats = existing == null;
+        stats = ownsStats ? new GLFrameStats(canvas) : existing;
+        stats.addListener(statsListener);
+        // The upscaled frame must be in the back buffer before other hooks, like a GLFrameReader, read it
+        canvas.addSwapHookFirst(swapHook);
+        canvas.addContextDisposeHook(disposeHook);
+        bind();
+    }
+
+    /**
+     * Returns the width frames are currently rendered at.
+     *
+     * @return the width of the internal framebuffer in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height frames are currently rendered at.
+     *
+     * @return the height of the internal framebuffer in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the current fraction of the drawable size frames are rendered at.
+     *
+     * @return the scale
+     */
+    public float getScale() {
+        return scale;
+    }
+
+    /**
+     * Sets the range the governor may choose the scale from. The defaults are 0.5 and 1. A maximum above 1 allows supersampling when the GPU has time
+     * to spare. This may be called from any thread and takes effect with the next frame.
+     *
+     * @param min
+     *            the smallest scale
+     * @param max
+     *            the largest scale
+     * @exception IllegalArgumentException
+     *                if <code>min</code> is not positive or greater than <code>max</code>
+     */
+    public void setScaleBounds(float min, float max) {
+        if (!(min > 0.0f) || min > max)
+            throw new IllegalArgumentException("Scale bounds must satisfy 0 < min <= max");
+        minScale = min;
+        maxScale = max;
+        scale = Math.min(Math.max(scale, min), max);
+    }
+
+    /**
+     * Sets the GPU time per frame the governor aims at. The default is one 60th of a second. This may be called from any thread.
+     *
+     * @param nanos
+     *            the target frame time in nanoseconds
+     * @exception IllegalArgumentException
+     *                if the frame time is not positive
+     */
+    public void setTargetFrameTime(long nanos) {
+        if (nanos <= 0L)
+            throw new IllegalArgumentException("Target frame time must be positive");
+        targetNanos = nanos;
+    }
+
+    /**
+     * Bind the internal framebuffer object, reallocating it first if the drawable size or the scale changed. This happens automatically after every
+     * swap, so it only needs to be called after having bound another framebuffer.
+     */
+    public void bind() {
+        checkNotDisposed();
+        int dw = canvas.drawableWidth;
+        int dh = canvas.drawableHeight;
+        float s = scale;
+        int w = Math.max(1, Math.round(dw * s));
+        int h = Math.max(1, Math.round(dh * s));
+        if (framebuffer == 0 || w != width || h != height) {
+            allocate(w, h);
+            width = w;
+            height = h;
+        }
+        drawableWidth = dw;
+        drawableHeight = dh;
+        glBindFramebuffer(GL_FRAMEBUFFER, framebuffer);
+        inFrame = true;
+    }
+
+    private void allocate(int w, int h) {
+        if (framebuffer == 0) {
+            framebuffer = glGenFramebuffers();
+            colorBuffer = glGenRenderbuffers();
+            if (depthStencil)
+                depthStencilBuffer = glGenRenderbuffers();
+            if (samples > 0) {
+                resolveFramebuffer = glGenFramebuffers();
+                resolveBuffer = glGenRenderbuffers();
+            }
+        }
+        glBindRenderbuffer(GL_RENDERBUFFER, colorBuffer);
+        glRenderbufferStorageMultisample(GL_RENDERBUFFER, samples, colorFormat, w, h);
+        if (depthStencil) {
+            glBindRenderbuffer(GL_RENDERBUFFER, depthStencilBuffer);
+            glRenderbufferStorageMultisample(GL_RENDERBUFFER, samples, GL_DEPTH24_STENCIL8, w, h);
+        }
+        glBindFramebuffer(GL_FRAMEBUFFER, framebuffer);
+        glFramebufferRenderbuffer(GL_FRAMEBUFFER, GL_COLOR_ATTACHMENT0, GL_RENDERBUFFER, colorBuffer);
+        if (depthStencil)
+            glFramebufferRenderbuffer(GL_FRAMEBUFFER, GL_DEPTH_STENCIL_ATTACHMENT, GL_RENDERBUFFER, depthStencilBuffer);
+        if (samples > 0) {
+            glBindRenderbuffer(GL_RENDERBUFFER, resolveBuffer);
+            glRenderbufferStorage(GL_RENDERBUFFER, colorFormat, w, h);
+            glBindFramebuffer(GL_FRAMEBUFFER, resolveFramebuffer);
+            glFramebufferRenderbuffer(GL_FRAMEBUFFER, GL_COLOR_ATTACHMENT0, GL_RENDERBUFFER, resolveBuffer);
+        }
+        glBindRenderbuffer(GL_RENDERBUFFER, 0);
+    }
+
+    /**
+     * Blit the frame to the back buffer, resolving it first if the internal framebuffer is multisampled.
+     */
+    private void upscale() {
+        if (!inFrame)
+            return;
+        inFrame = false;
+        // The scissor test applies to blits as well, and the renderer may have left it enabled for a smaller region
+        boolean scissorTest = glIsEnabled(GL_SCISSOR_TEST);
+        if (scissorTest)
+            glDisable(GL_SCISSOR_TEST);
+        int source = framebuffer;
+        if (samples > 0) {
+            // A multisampled framebuffer can only be resolved into one of the same size
+            glBindFramebuffer(GL_READ_FRAMEBUFFER, framebuffer);
+            glBindFramebuffer(GL_DRAW_FRAMEBUFFER, resolveFramebuffer);
+            glBlitFramebuffer(0, 0, width, height, 0, 0, width, height, GL_COLOR_BUFFER_BIT, GL_NEAREST);
+            source = resolveFramebuffer;
+        }
+        glBindFramebuffer(GL_READ_FRAMEBUFFER, source);
+        glBindFramebuffer(GL_DRAW_FRAMEBUFFER, 0);
+        glBlitFramebuffer(0, 0, width, height, 0, 0, drawableWidth, drawableHeight, GL_COLOR_BUFFER_BIT,
+                width == drawableWidth && height == drawableHeight ? GL_NEAREST : GL_LINEAR);
+        glBindFramebuffer(GL_FRAMEBUFFER, 0);
+        if (scissorTest)
+            glEnable(GL_SCISSOR_TEST);
+    }
+
+    /**
+     * Feed the GPU time of a frame to the governor.
+     */
+    private void govern(long gpuNanos) {
+        if (gpuNanos < 0L)
+            return;
+        if (skip > 0) {
+            skip--;
+            return;
+        }
+        averageNanos = averaged == 0 ? gpuNanos : averageNanos + (gpuNanos - averageNanos) / (averaged + 1);
+        if (++averaged < ADJUST_FRAMES)
+            return;
+        averaged = 0;
+        float min = minScale, max = maxScale, current = scale;
+        // The cost of a fill-rate-bound frame is proportional to its pixel count, i.e. to the square of the scale
+        float desired = current * (float) Math.sqrt(targetNanos / Math.max(averageNanos, 1.0));
+        if (desired > current)
+            desired = current + (desired - current) * 0.5f;
+        desired = Math.min(Math.max(desired, min), max);
+        if (Math.abs(desired - current) < HYSTERESIS && desired != min && desired != max)
+            return;
+        if (desired == current)
+            return;
+        scale = desired;
+        skip = SETTLE_FRAMES;
+    }
+
+    private void checkNotDisposed() {
+        if (disposed)
+            SWT.error(SWT.ERROR_WIDGET_DISPOSED);
+    }
+
+    /**
+     * Stop rendering into the internal framebuffer object and delete it. Framebuffer zero is bound afterwards.
+     * <p>
+     * This must be called on the context thread of the canvas. If it is not called, the framebuffer object is freed together with the context.
+     */
+    public void dispose() {
+        if (disposed)
+            return;
+        detach();
+        canvas.setCurrent();
+        glBindFramebuffer(GL_FRAMEBUFFER, 0);
+        if (framebuffer != 0) {
+            glDeleteFramebuffers(framebuffer);
+            glDeleteRenderbuffers(colorBuffer);
+            if (depthStencilBuffer != 0)
+                glDeleteRenderbuffers(depthStencilBuffer);
+            if (resolveFramebuffer != 0) {
+                glDeleteFramebuffers(resolveFramebuffer);
+                glDeleteRenderbuffers(resolveBuffer);
+            }
+            framebuffer = colorBuffer = depthStencilBuffer = resolveFramebuffer = resolveBuffer = 0;
+        }
+        if (ownsStats)
+            stats.dispose();
+    }
+
+    private void detach() {
+        disposed = true;
+        canvas.removeSwapHook(swapHook);
+        canvas.removeContextDisposeHook(disposeHook);
+        stats.removeListener(statsListener);
+    }
+
+}
@@ -0,0 +1,220 @@
+package org.lwjgl.opengl.swt;
+
+import static org.lwjgl.opengl.GL11C.*;
+import static org.lwjgl.opengl.GL15C.*;
+import static org.lwjgl.opengl.GL21C.*;
+import static org.lwjgl.opengl.GL30C.*;
+import static org.lwjgl.opengl.GL32C.*;
+
+import java.nio.ByteBuffer;
+
+import org.eclipse.swt.SWT;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+
+/**
+ * Asynchronously reads back every frame rendered into a {@link GLCanvas}, without stalling the pipeline like a synchronous <code>glReadPixels</code>.
+ * <p>
+ * Right before each {@link GLCanvas#swapBuffers()}, the back buffer is copied into the next free pixel buffer object of a ring, followed by a fence.
+ * The back buffer is read regardless of the framebuffer bindings of the renderer, and after a {@link GLDynamicResolution} of the canvas has upscaled
+ * the frame into it.
+ * Frames whose fence has signaled are mapped and handed to the {@link Callback} during a later swap, so pixels typically arrive one or two frames late.
+ * The context thread never waits for the GPU: if all buffers of the ring are still in flight, the frame is not captured and counted as dropped instead.
+ * Buffer objects and mapped {@link ByteBuffer} instances are reused, so steady-state capture allocates nothing.
+ * <p>
+ * Pixels are read as <code>GL_RGBA</code>/<code>GL_UNSIGNED_BYTE</code>, bottom row first. This requires a desktop OpenGL context supporting OpenGL 3.2
+ * or <code>ARB_sync</code> and <code>ARB_map_buffer_range</code>, and {@link GL#createCapabilities()} to have been called for it.
+ */
+public class GLFrameReader {
+
+    /**
+     * Receives the pixels of captured frames.
+     */
+    public static interface Callback {
+        /**
+         * Called on the context thread from within {@link GLCanvas#swapBuffers()} for each captured frame, in the order the frames were rendered.
+         *
+         * @param canvas
+         *            the {@link GLCanvas} the frame was rendered into
+         * @param pixels
+         *            a direct buffer holding <code>width * height * 4</code> bytes of RGBA pixels. It must not be written to and is only valid until
+         *            this method returns.
+         * @param width
+         *            the width of the frame in pixels
+         * @param height
+         *            the height of the frame in pixels
+         */
+        void frameRead(GLCanvas canvas, ByteBuffer pixels, int width, int height);
+    }
+
+    private static final class Slot {
+        int pbo;
+        long fence;
+        long capacity;
+        int width;
+        int height;
+        ByteBuffer mapped;
+    }
+
+    private final GLCanvas canvas;
+    private final Callback callback;
+    private final Slot[] slots;
+    private final GLCanvas.SwapHook swapHook = new GLCanvas.SwapHook() {
+        public void beforeSwap(GLCanvas canvas) {
+            capture();
+        }
+
+        public void afterSwap(GLCanvas canvas) {
+        }
+    };
+    private final Runnable disposeHook = this::detach;
+    private boolean initialized;
+    private int writeIndex;
+    private int readIndex;
+    private int pending;
+    private volatile long droppedFrames;
+
+    /**
+     * Start capturing the frames of the given canvas.
+     *
+     * @param canvas
+     *            the {@link GLCanvas} to capture
+     * @param bufferCount
+     *            the number of pixel buffer objects in the ring. Two or three are usually enough to never drop a frame.
+     * @param callback
+     *            the {@link Callback} to receive the frames
+     */
+    public GLFrameReader(GLCanvas canvas, int bufferCount, Callback callback) {
+        if (canvas == null || callback == null)
+            SWT.error(SWT.ERROR_NULL_ARGUMENT);
+        if (bufferCount < 1)
+            throw new IllegalArgumentException("Buffer count must be positive");
+        this.canvas = canvas;
+        this.callback = callback;
+        this.slots = new Slot[bufferCount];
+        for (int i = 0; i < bufferCount; i++)
+            slots[i] = new Slot();
+        canvas.addSwapHook(swapHook);
+        canvas.addContextDisposeHook(disposeHook);
+    }
+
+    /**
+     * Returns the number of frames that were not captured because all buffers were still in flight.
+     *
+     * @return the number of dropped frames
+     */
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /**
+     * Stop capturing and delete all GL objects. Frames which have not been delivered yet are discarded.
+     * <p>
+     * This must be called on the context thread of the canvas. If it is not called, the GL objects are freed together with the context.
+     */
+    public void dispose() {
+        detach();
+        if (!initialized)
+            return;
+        canvas.setCurrent();
+        for (Slot slot : slots) {
+            if (slot.fence != 0L)
+                glDeleteSync(slot.fence);
+            glDeleteBuffers(slot.pbo);
+            slot.fence = 0L;
+            slot.pbo = 0;
+            slot.mapped = null;
+        }
+        pending = 0;
+        initialized = false;
+    }
+
+    private void detach() {
+        canvas.removeSwapHook(swapHook);
+        canvas.removeContextDisposeHook(disposeHook);
+    }
+
+    private void init() {
+        GLCapabilities caps = GL.getCapabilities();
+        if (!caps.OpenGL32 && !(caps.GL_ARB_sync && caps.GL_ARB_map_buffer_range))
+            throw new UnsupportedOperationException("Asynchronous frame readback requires OpenGL 3.2 or ARB_sync and ARB_map_buffer_range");
+        for (Slot slot : slots)
+            slot.pbo = glGenBuffers();
+        initialized = true;
+    }
+
+    private void capture() {
+        if (!initialized)
+            init();
+        int previousBinding = glGetInteger(GL_PIXEL_PACK_BUFFER_BINDING);
+        deliverCompleted();
+        int width = canvas.drawableWidth;
+        int height = canvas.drawableHeight;
+        if (width <= 0 || height <= 0) {
+            glBindBuffer(GL_PIXEL_PACK_BUFFER, previousBinding);
+            return;
+        }
+        if (pending == slots.length) {
+            droppedFrames++;
+            glBindBuffer(GL_PIXEL_PACK_BUFFER, previousBinding);
+            return;
+        }
+        Slot slot = slots[writeIndex];
+        glBindBuffer(GL_PIXEL_PACK_BUFFER, slot.pbo);
+        long size = (long) width * height * 4;
+        if (slot.capacity < size) {
+            glBufferData(GL_PIXEL_PACK_BUFFER, size, GL_STREAM_READ);
+            slot.capacity = size;
+            slot.mapped = null;
+        }
+        slot.width = width;
+        slot.height = height;
+        int previousAlignment = glGetInteger(GL_PACK_ALIGNMENT);
+        // The renderer may have left its own framebuffer object bound for reading, but the frame to capture is the one about to be swapped
+        int previousReadFramebuffer = glGetInteger(GL_READ_FRAMEBUFFER_BINDING);
+        glBindFramebuffer(GL_READ_FRAMEBUFFER, 0);
+        int previousReadBuffer = glGetInteger(GL_READ_BUFFER);
+        glReadBuffer(canvas.effective.doubleBuffer ? GL_BACK : GL_FRONT);
+        glPixelStorei(GL_PACK_ALIGNMENT, 4);
+        glReadPixels(0, 0, width, height, GL_RGBA, GL_UNSIGNED_BYTE, 0L);
+        glPixelStorei(GL_PACK_ALIGNMENT, previousAlignment);
+        glReadBuffer(previousReadBuffer);
+        glBindFramebuffer(GL_READ_FRAMEBUFFER, previousReadFramebuffer);
+        slot.fence = glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+        writeIndex = (writeIndex + 1) % slots.length;
+        pending++;
+        glBindBuffer(GL_PIXEL_PACK_BUFFER, previousBinding);
+    }
+
+    /**
+     * Hand all frames whose fence has already signaled to the callback, without waiting for the others.
+     */
+    private void deliverCompleted() {
+        while (pending > 0) {
+            Slot slot = slots[readIndex];
+            int status = glClientWaitSync(slot.fence, 0, 0L);
+            if (status == GL_TIMEOUT_EXPIRED)
+                break;
+            glDeleteSync(slot.fence);
+            slot.fence = 0L;
+            readIndex = (readIndex + 1) % slots.length;
+            pending--;
+            if (status == GL_WAIT_FAILED)
+                continue;
+            long size = (long) slot.width * slot.height * 4;
+            glBindBuffer(GL_PIXEL_PACK_BUFFER, slot.pbo);
+            // Passing the previously mapped buffer makes LWJGL return it again if the mapping did not move
+            ByteBuffer pixels = glMapBufferRange(GL_PIXEL_PACK_BUFFER, 0L, size, GL_MAP_READ_BIT, slot.mapped);
+            if (pixels == null)
+                continue;
+            slot.mapped = pixels;
+            pixels.clear();
+            try {
+                callback.frameRead(canvas, pixels, slot.width, slot.height);
+            } finally {
+                glUnmapBuffer(GL_PIXEL_PACK_BUFFER);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,484 @@
+package org.lwjgl.opengl.swt;
+
+import static org.lwjgl.opengl.GL15C.*;
+import static org.lwjgl.opengl.GL33C.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.eclipse.swt.SWT;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+
+/**
+ * Frame-time instrumentation for a {@link GLCanvas}.
+ * <p>
+ * Once created, this records for every frame:
+ * <ul>
+ * <li>the CPU time the platform swap took within {@link GLCanvas#swapBuffers()}, which includes waiting for the vertical retrace or for the driver
+ * to throttle,</li>
+ * <li>the CPU time spent in {@link GLCanvas#setCurrent()} when it actually switches contexts,</li>
+ * <li>the GPU time of the frame, measured with a <code>GL_TIME_ELAPSED</code> query from the end of one swap to the beginning of the next, and</li>
+ * <li>the interval between two consecutive swaps, i.e. the frame pacing.</li>
+ * </ul>
+ * Frames whose swap was skipped because the canvas was not {@link GLCanvas.Visibility#VISIBLE visible} are not recorded.
+ * <p>
+ * Timer query results are read without waiting, a few frames after they were issued, through a small ring of query objects. GPU times are only
+ * recorded for desktop OpenGL contexts supporting OpenGL 3.3 or <code>ARB_timer_query</code>; as only one <code>GL_TIME_ELAPSED</code> query can be
+ * active at a time, the application must not use its own ones while GPU timing is active.
+ * <p>
+ * Samples go into lock-free {@link Histogram}s, which may be read from any thread, and are reported to {@link Listener}s on the context thread.
+ * {@link #registerMBean(String)} additionally exposes summaries through JMX.
+ */
+public class GLFrameStats implements GLFrameStatsMXBean {
+
+    /**
+     * Receives the samples of every frame.
+     */
+    public static interface Listener {
+        /**
+         * Called on the context thread from within {@link GLCanvas#swapBuffers()}, right after the platform swapped the buffers and before the
+         * swap hooks run.
+         *
+         * @param stats
+         *            the {@link GLFrameStats} recording the frame
+         * @param swapNanos
+         *            the CPU time the platform swap took
+         * @param intervalNanos
+         *            the time since the previous swap, or <code>-1</code> for the first frame
+         * @param gpuNanos
+         *            the GPU time of the most recent frame whose timer query completed since the last call, or <code>-1</code> if none did
+         */
+        void frameCompleted(GLFrameStats stats, long swapNanos, long intervalNanos, long gpuNanos);
+    }
+
+    /**
+     * A lock-free histogram of durations in nanoseconds with power-of-two buckets.
+     * <p>
+     * Bucket <code>i</code> counts samples in <code>[2<sup>i-1</sup>, 2<sup>i</sup>)</code>, bucket 0 counts zero durations.
+     */
+    public static final class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            if (nanos < 0L)
+                nanos = 0L;
+            buckets.incrementAndGet(Math.min(64 - Long.numberOfLeadingZeros(nanos), 63));
+            count.incrementAndGet();
+            sum.addAndGet(nanos);
+            long current;
+            while (nanos > (current = max.get()) && !max.compareAndSet(current, nanos))
+                ;
+        }
+
+        /**
+         * @return the number of samples
+         */
+        public long getCount() {
+            return count.get();
+        }
+
+        /**
+         * @return the mean of all samples in nanoseconds, or 0 if there are none
+         */
+        public double getMean() {
+            long n = count.get();
+            return n == 0L ? 0.0 : (double) sum.get() / n;
+        }
+
+        /**
+         * @return the largest sample in nanoseconds
+         */
+        public long getMax() {
+            return max.get();
+        }
+
+        /**
+         * Returns an upper bound of the given percentile, i.e. the exclusive upper end of the bucket which contains it.
+         *
+         * @param percentile
+         *            the percentile in <code>[0, 100]</code>
+         * @return the upper bound in nanoseconds, or 0 if there are no samples
+         */
+        public long getPercentile(double percentile) {
+            if (percentile < 0.0 || percentile > 100.0)
+                throw new IllegalArgumentException("Percentile must be in [0, 100]");
+            long[] counts = getBucketCounts();
+            long total = 0L;
+            for (long c : counts)
+                total += c;
+            if (total == 0L)
+                return 0L;
+            long rank = Math.max(1L, (long) Math.ceil(total * percentile / 100.0));
+            long seen = 0L;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank)
+                    return i == 0 ? 0L : Math.min(max.get(), i == 63 ? Long.MAX_VALUE : 1L << i);
+            }
+            return max.get();
+        }
+
+        /**
+         * @return a snapshot of the bucket counts
+         */
+        public long[] getBucketCounts() {
+            long[] counts = new long[buckets.length()];
+            for (int i = 0; i < counts.length; i++)
+                counts[i] = buckets.get(i);
+            return counts;
+        }
+
+        /**
+         * Remove all samples. Samples recorded concurrently may be partially lost.
+         */
+        public void reset() {
+            for (int i = 0; i < buckets.length(); i++)
+                buckets.set(i, 0L);
+            count.set(0L);
+            sum.set(0L);
+            max.set(0L);
+        }
+    }
+
+    private static final int QUERY_COUNT = 4;
+
+    private final GLCanvas canvas;
+    private final Histogram swapTime = new Histogram();
+    private final Histogram makeCurrentTime = new Histogram();
+    private final Histogram gpuTime = new Histogram();
+    private final Histogram frameInterval = new Histogram();
+    private final GLCanvas.SwapHook swapHook = new GLCanvas.SwapHook() {
+        public void beforeSwap(GLCanvas canvas) {
+            swapped = false;
+            endGpuQuery();
+        }
+
+        public void afterSwap(GLCanvas canvas) {
+            if (!swapped) {
+                // Neither the GPU time of a frame that was not presented nor the interval spanning it is a sample
+                if (lastQuery != -1)
+                    discarded[lastQuery] = true;
+                lastSwapEnd = -1L;
+            }
+            beginGpuQuery();
+        }
+    };
+    private final Runnable disposeHook = this::detach;
+    private volatile Listener[] listeners = new Listener[0];
+    private ObjectName objectName;
+
+    // Only accessed on the context thread
+    private int[] queries;
+    private boolean gpuTimingSupported = true;
+    private int queryWriteIndex;
+    private int queryReadIndex;
+    private int queriesPending;
+    private boolean queryActive;
+    private final boolean[] discarded = new boolean[QUERY_COUNT];
+    private int lastQuery = -1;
+    private boolean swapped;
+    private long lastSwapEnd = -1L;
+
+    /**
+     * Start recording frame statistics for the given canvas.
+     *
+     * @param canvas
+     *            the {@link GLCanvas} to instrument
+     */
+    public GLFrameStats(GLCanvas canvas) {
+        if (canvas == null)
+            SWT.error(SWT.ERROR_NULL_ARGUMENT);
+        this.canvas = canvas;
+        canvas.frameStats = this;
+        canvas.addSwapHook(swapHook);
+        canvas.addContextDisposeHook(disposeHook);
+    }
+
+    /**
+     * @return the {@link GLCanvas} being instrumented
+     */
+    public GLCanvas getCanvas() {
+        return canvas;
+    }
+
+    /**
+     * @return the CPU time the platform swap took within {@link GLCanvas#swapBuffers()}
+     */
+    public Histogram getSwapTime() {
+        return swapTime;
+    }
+
+    /**
+     * @return the CPU time spent in {@link GLCanvas#setCurrent()} when switching contexts
+     */
+    public Histogram getMakeCurrentTime() {
+        return makeCurrentTime;
+    }
+
+    /**
+     * @return the GPU time per frame
+     */
+    public Histogram getGpuTime() {
+        return gpuTime;
+    }
+
+    /**
+     * @return the time between two consecutive swaps
+     */
+    public Histogram getFrameInterval() {
+        return frameInterval;
+    }
+
+    /**
+     * Add a listener to be notified of the samples of every frame. This may be called from any thread.
+     *
+     * @param listener
+     *            the {@link Listener} to add
+     */
+    public synchronized void addListener(Listener listener) {
+        if (listener == null)
+            SWT.error(SWT.ERROR_NULL_ARGUMENT);
+        Listener[] copy = Arrays.copyOf(listeners, listeners.length + 1);
+        copy[copy.length - 1] = listener;
+        listeners = copy;
+    }
+
+    /**
+     * Remove a listener previously added via {@link #addListener(Listener)}. This may be called from any thread.
+     *
+     * @param listener
+     *            the {@link Listener} to remove
+     */
+    public synchronized void removeListener(Listener listener) {
+        List<Listener> copy = new ArrayList<Listener>(Arrays.asList(listeners));
+        copy.remove(listener);
+        listeners = copy.toArray(new Listener[copy.size()]);
+    }
+
+    /**
+     * Register this instance with the platform MBean server as <code>org.lwjgl.opengl.swt:type=GLFrameStats,name=<i>name</i></code>. It is
+     * unregistered again by {@link #dispose()} or when the canvas is disposed.
+     *
+     * @param name
+     *            the name distinguishing this canvas from others
+     * @exception IllegalStateException
+     *                if the registration failed, e.g. because the name is already taken
+     */
+    public synchronized void registerMBean(String name) {
+        if (name == null)
+            SWT.error(SWT.ERROR_NULL_ARGUMENT);
+        if (objectName != null)
+            throw new IllegalStateException("Already registered as " + objectName);
+        try {
+            ObjectName objectName = new ObjectName("org.lwjgl.opengl.swt:type=GLFrameStats,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            this.objectName = objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Unable to register MBean", e);
+        }
+    }
+
+    private synchronized void unregisterMBean() {
+        if (objectName == null)
+            return;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(objectName);
+        } catch (JMException e) {
+            // already gone
+        }
+        objectName = null;
+    }
+
+    /**
+     * Stop recording and delete the timer queries. This must be called on the context thread of the canvas. If it is not called, the queries are freed
+     * together with the context.
+     */
+    public void dispose() {
+        detach();
+        if (queries == null)
+            return;
+        canvas.setCurrent();
+        if (queryActive)
+            glEndQuery(GL_TIME_ELAPSED);
+        glDeleteQueries(queries);
+        queries = null;
+        queryActive = false;
+        queriesPending = 0;
+        lastQuery = -1;
+        Arrays.fill(discarded, false);
+    }
+
+    private void detach() {
+        if (canvas.frameStats == this)
+            canvas.frameStats = null;
+        canvas.removeSwapHook(swapHook);
+        canvas.removeContextDisposeHook(disposeHook);
+        unregisterMBean();
+    }
+
+    /**
+     * Called by {@link GLCanvas#setCurrent()} after it switched contexts.
+     */
+    void makeCurrentCompleted(long nanos) {
+        makeCurrentTime.record(nanos);
+    }
+
+    private boolean initQueries() {
+        if (queries != null)
+            return true;
+        if (!gpuTimingSupported)
+            return false;
+        GLCapabilities caps;
+        try {
+            caps = GL.getCapabilities();
+        } catch (IllegalStateException e) {
+            // no desktop OpenGL capabilities, e.g. an OpenGL ES context
+            caps = null;
+        }
+        if (caps == null || !caps.OpenGL33 && !caps.GL_ARB_timer_query) {
+            gpuTimingSupported = false;
+            return false;
+        }
+        queries = new int[QUERY_COUNT];
+        glGenQueries(queries);
+        return true;
+    }
+
+    private void endGpuQuery() {
+        lastQuery = -1;
+        if (queryActive) {
+            glEndQuery(GL_TIME_ELAPSED);
+            queryActive = false;
+            lastQuery = queryWriteIndex;
+            queryWriteIndex = (queryWriteIndex + 1) % QUERY_COUNT;
+            queriesPending++;
+        }
+    }
+
+    private void beginGpuQuery() {
+        if (!initQueries())
+            return;
+        if (queriesPending == QUERY_COUNT) {
+            // The GPU is lagging behind by more frames than we have queries, so skip timing this frame
+            return;
+        }
+        glBeginQuery(GL_TIME_ELAPSED, queries[queryWriteIndex]);
+        queryActive = true;
+    }
+
+    /**
+     * Collect all available query results without waiting and return the most recent one, or <code>-1</code>.
+     */
+    private long collectGpuTimes() {
+        long latest = -1L;
+        while (queriesPending > 0) {
+            int query = queries[queryReadIndex];
+            if (glGetQueryObjecti(query, GL_QUERY_RESULT_AVAILABLE) == 0)
+                break;
+            if (discarded[queryReadIndex]) {
+                discarded[queryReadIndex] = false;
+            } else {
+                latest = glGetQueryObjecti64(query, GL_QUERY_RESULT);
+                gpuTime.record(latest);
+            }
+            queryReadIndex = (queryReadIndex + 1) % QUERY_COUNT;
+            queriesPending--;
+        }
+        return latest;
+    }
+
+    /**
+     * Called by {@link GLCanvas} with the time the platform swap took, only for frames that were actually swapped.
+     */
+    void swapCompleted(long swapNanos) {
+        swapped = true;
+        long swapEnd = System.nanoTime();
+        swapTime.record(swapNanos);
+        long intervalNanos = -1L;
+        if (lastSwapEnd != -1L) {
+            intervalNanos = swapEnd - lastSwapEnd;
+            frameInterval.record(intervalNanos);
+        }
+        lastSwapEnd = swapEnd;
+        long gpuNanos = queries != null ? collectGpuTimes() : -1L;
+        Listener[] ls = listeners;
+        for (int i = 0; i < ls.length; i++)
+            ls[i].frameCompleted(this, swapNanos, intervalNanos, gpuNanos);
+    }
+
+    public long getFrameCount() {
+        return swapTime.getCount();
+    }
+
+    public double getSwapTimeMeanMicros() {
+        return swapTime.getMean() / 1E3;
+    }
+
+    public long getSwapTimeP99Micros() {
+        return swapTime.getPercentile(99.0) / 1000L;
+    }
+
+    public long getSwapTimeMaxMicros() {
+        return swapTime.getMax() / 1000L;
+    }
+
+    public double getMakeCurrentTimeMeanMicros() {
+        return makeCurrentTime.getMean() / 1E3;
+    }
+
+    public long getMakeCurrentTimeMaxMicros() {
+        return makeCurrentTime.getMax() / 1000L;
+    }
+
+    public double getGpuTimeMeanMicros() {
+        return gpuTime.getMean() / 1E3;
+    }
+
+    public long getGpuTimeP99Micros() {
+        return gpuTime.getPercentile(99.0) / 1000L;
+    }
+
+    public long getGpuTimeMaxMicros() {
+        return gpuTime.getMax() / 1000L;
+    }
+
+    public double getFrameIntervalMeanMicros() {
+        return frameInterval.getMean() / 1E3;
+    }
+
+    public long getFrameIntervalP50Micros() {
+        return frameInterval.getPercentile(50.0) / 1000L;
+    }
+
+    public long getFrameIntervalP99Micros() {
+        return frameInterval.getPercentile(99.0) / 1000L;
+    }
+
+    public long getFrameIntervalMaxMicros() {
+        return frameInterval.getMax() / 1000L;
+    }
+
+    /**
+     * Remove all samples from all histograms.
+     */
+    public void reset() {
+        swapTime.reset();
+        makeCurrentTime.reset();
+        gpuTime.reset();
+        frameInterval.reset();
+    }
+
+}
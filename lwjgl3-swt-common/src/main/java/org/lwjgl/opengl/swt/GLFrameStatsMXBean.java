@@ -0,0 +1,36 @@
+package org.lwjgl.opengl.swt;
+
+/**
+ * JMX management interface of {@link GLFrameStats}. All times are in microseconds. Percentiles are upper bounds, with power-of-two resolution.
+ */
+public interface GLFrameStatsMXBean {
+
+    long getFrameCount();
+
+    double getSwapTimeMeanMicros();
+
+    long getSwapTimeP99Micros();
+
+    long getSwapTimeMaxMicros();
+
+    double getMakeCurrentTimeMeanMicros();
+
+    long getMakeCurrentTimeMaxMicros();
+
+    double getGpuTimeMeanMicros();
+
+    long getGpuTimeP99Micros();
+
+    long getGpuTimeMaxMicros();
+
+    double getFrameIntervalMeanMicros();
+
+    long getFrameIntervalP50Micros();
+
+    long getFrameIntervalP99Micros();
+
+    long getFrameIntervalMaxMicros();
+
+    void reset();
+
+}
@@ -0,0 +1,203 @@
+package org.lwjgl.opengl.swt;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.SWTException;
+
+/**
+ * An OpenGL context together with an offscreen drawable of a fixed size, which does not need a widget, a visible shell or a running SWT
+ * {@link org.eclipse.swt.widgets.Display}.
+ * <p>
+ * This is meant for batch and server-side rendering, e.g. under Xvfb with Mesa llvmpipe. The drawable is created with the same {@link GLData} attribute
+ * handling as a {@link GLCanvas}, and the context can share objects with a {@link GLCanvas} via {@link GLData#shareContext}. Rendering results are read
+ * back with <code>glReadPixels</code> or rendered into user-created framebuffer objects.
+ * <p>
+ * Currently only Linux is supported. With GLX, the drawable is a GLX pbuffer on a dedicated X display connection. With EGL, selected by
+ * {@link GLData#contextCreationAPI}, the context is created headless on a GPU device or Mesa's surfaceless platform, so neither an X server nor GTK
+ * is needed, and the drawable is a framebuffer object, see {@link #getFramebuffer()}. On other platforms the constructor throws an
+ * {@link UnsupportedOperationException}.
+ * <p>
+ * Instances are not bound to a specific thread, but the context can only be current in one thread at a time. It is up to the caller to make sure that
+ * the methods of an instance are not called concurrently.
+ */
+public class GLOffscreenCanvas {
+    GLData effective;
+    long context;
+    long xDisplay;
+    long fbConfig;
+    long drawable;
+    int framebuffer;
+    PlatformGLCanvas platform;
+    private GLCurrentContext currentIn;
+    final int width;
+    final int height;
+
+    /**
+     * Create an offscreen drawable of the given size and a context for it, using the attributes described in the GLData object provided.
+     *
+     * @param data
+     *            the requested attributes of the drawable and context
+     * @param width
+     *            the width of the drawable in pixels
+     * @param height
+     *            the height of the drawable in pixels
+     * @exception IllegalArgumentException
+     *                <ul>
+     *                <li>ERROR_NULL_ARGUMENT when the data is null
+     *                <li>when the width or height is not positive
+     *                </ul>
+     * @exception UnsupportedOperationException
+     *                if offscreen drawables are not supported on this platform
+     */
+    public GLOffscreenCanvas(GLData data, int width, int height) {
+        if (data == null)
+            SWT.error(SWT.ERROR_NULL_ARGUMENT);
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("Offscreen canvas size must be positive");
+        this.width = width;
+        this.height = height;
+        platform = GLCanvas.platformCanvas.select(data);
+        effective = new GLData();
+        context = platform.create(this, data, effective);
+    }
+
+    private void checkNotDisposed() {
+        if (context == 0L)
+            SWT.error(SWT.ERROR_WIDGET_DISPOSED);
+    }
+
+    /**
+     * Returns a GLData object describing the created context.
+     *
+     * @return GLData description of the OpenGL context attributes
+     * @exception SWTException <ul>
+     *    <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+     * </ul>
+     */
+    public GLData getGLData() {
+        checkNotDisposed();
+        return effective;
+    }
+
+    /**
+     * Returns the width of the drawable in pixels.
+     *
+     * @return the width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the drawable in pixels.
+     *
+     * @return the height
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the framebuffer object which is the drawable of a headless context. It is bound to <code>GL_FRAMEBUFFER</code> when the context is
+     * created, and has to be bound again after rendering into other framebuffer objects.
+     *
+     * @return the name of the framebuffer object, or 0 if the drawable is the default framebuffer
+     * @exception SWTException <ul>
+     *    <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+     * </ul>
+     */
+    public int getFramebuffer() {
+        checkNotDisposed();
+        return framebuffer;
+    }
+
+    /**
+     * Returns a boolean indicating whether the receiver's OpenGL context is the current context of the calling thread.
+     *
+     * @return true if the receiver holds the current OpenGL context, false otherwise
+     * @exception SWTException <ul>
+     *    <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+     * </ul>
+     */
+    public boolean isCurrent() {
+        checkNotDisposed();
+        return isCurrentInThread();
+    }
+
+    /**
+     * Makes the OpenGL context of the receiver current in the calling thread, with the offscreen drawable as draw and read drawable.
+     *
+     * @exception SWTException <ul>
+     *    <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+     * </ul>
+     */
+    public void setCurrent() {
+        checkNotDisposed();
+        if (isCurrentInThread())
+            return;
+        if (platform.makeCurrent(this, context)) {
+            GLCurrentContext state = GLCurrentContext.get();
+            state.set(context, this);
+            currentIn = state;
+        }
+    }
+
+    /**
+     * Returns whether the context is current in the calling thread, see {@link GLCurrentContext}.
+     */
+    private boolean isCurrentInThread() {
+        if (GLCurrentContext.VERIFY)
+            return platform.isCurrent(context);
+        GLCurrentContext state = currentIn;
+        return state != null && state.isCurrent(context, this);
+    }
+
+    /**
+     * Releases the OpenGL context of the receiver from the calling thread, so that it can be made current in another thread.
+     *
+     * @exception SWTException <ul>
+     *    <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+     * </ul>
+     */
+    public void releaseCurrent() {
+        checkNotDisposed();
+        if (platform.isCurrent(context)) {
+            platform.releaseCurrent(this);
+            GLCurrentContext.get().clear();
+        }
+    }
+
+    /**
+     * Swaps the front and back color buffers of a double-buffered drawable. This has no effect for single-buffered drawables.
+     *
+     * @exception SWTException <ul>
+     *    <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+     * </ul>
+     */
+    public void swapBuffers() {
+        checkNotDisposed();
+        platform.swapBuffers(this);
+    }
+
+    /**
+     * Returns whether the receiver has been disposed.
+     *
+     * @return true if the receiver has been disposed, false otherwise
+     */
+    public boolean isDisposed() {
+        return context == 0L;
+    }
+
+    /**
+     * Deletes the context and the offscreen drawable. If the context is current in the calling thread, it is released first.
+     * <p>
+     * Calling this method on a disposed receiver has no effect.
+     */
+    public void dispose() {
+        if (context == 0L)
+            return;
+        platform.deleteContext(this, context);
+        GLCurrentContext.get().forget(this);
+        context = 0L;
+    }
+
+}
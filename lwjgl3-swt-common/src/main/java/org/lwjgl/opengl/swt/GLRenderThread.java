@@ -0,0 +1,116 @@
+package org.lwjgl.opengl.swt;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import org.eclipse.swt.SWT;
+
+/**
+ * The dedicated thread owning the context of a {@link GLCanvas} created with {@link GLData#renderThread}.
+ * <p>
+ * The SWT display thread hands resize, paint and dispose events over through a lock-free queue and never waits for a frame to finish, except when the
+ * canvas is being disposed.
+ */
+class GLRenderThread extends Thread {
+
+    private static final class Event {
+        final int type;
+        final int width;
+        final int height;
+
+        Event(int type, int width, int height) {
+            this.type = type;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private final GLCanvas canvas;
+    private final GLRenderer renderer;
+    private final ConcurrentLinkedQueue<Event> events = new ConcurrentLinkedQueue<Event>();
+    private final AtomicBoolean renderRequested = new AtomicBoolean(true);
+
+    GLRenderThread(GLCanvas canvas, GLRenderer renderer) {
+        super("GLCanvas render thread");
+        this.canvas = canvas;
+        this.renderer = renderer;
+        setDaemon(true);
+    }
+
+    /**
+     * Enqueue the given SWT event type for the render thread. Only {@link SWT#Resize}, {@link SWT#Paint} and {@link SWT#Dispose} are understood.
+     */
+    void post(int type, int width, int height) {
+        events.offer(new Event(type, width, height));
+        LockSupport.unpark(this);
+    }
+
+    void requestRender() {
+        if (!renderRequested.getAndSet(true))
+            LockSupport.unpark(this);
+    }
+
+    /**
+     * Wake the render thread up to reconsider whether to render, as the visibility of the canvas changed.
+     */
+    void visibilityChanged() {
+        LockSupport.unpark(this);
+    }
+
+    /**
+     * Tell the render thread to dispose of the renderer and wait for it to terminate.
+     */
+    void shutdown() {
+        post(SWT.Dispose, 0, 0);
+        boolean interrupted = false;
+        while (isAlive()) {
+            try {
+                join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    public void run() {
+        canvas.setCurrent();
+        try {
+            renderer.init(canvas);
+            while (true) {
+                Event event;
+                Event resize = null;
+                while ((event = events.poll()) != null) {
+                    switch (event.type) {
+                    case SWT.Resize:
+                        // Only the last of several queued resizes matters
+                        resize = event;
+                        renderRequested.set(true);
+                        break;
+                    case SWT.Paint:
+                        renderRequested.set(true);
+                        break;
+                    case SWT.Dispose:
+                        renderer.dispose(canvas);
+                        return;
+                    }
+                }
+                if (resize != null)
+                    renderer.resized(canvas, resize.width, resize.height);
+                // While the canvas cannot be seen, keep render requests pending until it can
+                if (canvas.getVisibility() == GLCanvas.Visibility.VISIBLE && renderRequested.getAndSet(false)) {
+                    if (renderer.render(canvas))
+                        renderRequested.set(true);
+                    canvas.swapBuffers();
+                } else {
+                    LockSupport.park(this);
+                }
+            }
+        } finally {
+            canvas.releaseCurrent();
+        }
+    }
+
+}
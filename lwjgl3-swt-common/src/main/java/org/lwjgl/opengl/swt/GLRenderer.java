@@ -0,0 +1,55 @@
+package org.lwjgl.opengl.swt;
+
+/**
+ * Callback interface for rendering into a {@link GLCanvas}, either from its dedicated render thread or from a {@link GLAnimator}.
+ * <p>
+ * All methods are invoked with the context of the canvas being current. When invoked on a render thread, they must not call
+ * {@link org.eclipse.swt.widgets.Display#syncExec(Runnable)}, since the SWT display thread waits for the render thread to finish when the canvas is
+ * being disposed.
+ *
+ * @see GLCanvas#startRenderThread(GLRenderer)
+ * @see GLAnimator#add(GLCanvas, GLRenderer)
+ */
+public interface GLRenderer {
+
+    /**
+     * Called once after the render thread made the context current, before any other method is called.
+     * <p>
+     * This is the place to create the GL capabilities for the render thread and to create GL resources.
+     *
+     * @param canvas
+     *            the {@link GLCanvas} being rendered to
+     */
+    void init(GLCanvas canvas);
+
+    /**
+     * Called whenever the drawable of the canvas changed its size.
+     *
+     * @param canvas
+     *            the {@link GLCanvas} being rendered to
+     * @param width
+     *            the new width of the drawable in pixels
+     * @param height
+     *            the new height of the drawable in pixels
+     */
+    void resized(GLCanvas canvas, int width, int height);
+
+    /**
+     * Render a single frame. The buffers are swapped by the render thread after this method returns.
+     *
+     * @param canvas
+     *            the {@link GLCanvas} being rendered to
+     * @return <code>true</code> if another frame should be rendered right away (e.g. because of an ongoing animation); <code>false</code> if the render
+     *         thread should wait for the next event or for {@link GLCanvas#requestRender()}
+     */
+    boolean render(GLCanvas canvas);
+
+    /**
+     * Called once when the canvas is being disposed, while the context is still current. This is the place to delete GL resources.
+     *
+     * @param canvas
+     *            the {@link GLCanvas} being rendered to
+     */
+    void dispose(GLCanvas canvas);
+
+}
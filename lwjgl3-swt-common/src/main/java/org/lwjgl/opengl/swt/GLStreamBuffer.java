@@ -0,0 +1,285 @@
+package org.lwjgl.opengl.swt;
+
+import static org.lwjgl.opengl.GL15C.*;
+import static org.lwjgl.opengl.GL30C.*;
+import static org.lwjgl.opengl.GL32C.*;
+import static org.lwjgl.opengl.GL44C.*;
+import static org.lwjgl.opengl.GL46C.*;
+
+import java.nio.ByteBuffer;
+
+import org.eclipse.swt.SWT;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+
+/**
+ * A buffer object for streaming dynamic data, such as vertices, from the CPU to the GPU every frame of a {@link GLCanvas}.
+ * <p>
+ * If the context supports OpenGL 4.4 or <code>ARB_buffer_storage</code>, the buffer object holds a ring of one region per frame in flight and is mapped
+ * persistently and coherently once. {@link #begin()} returns the region of the current frame, and right before the next {@link GLCanvas#swapBuffers()}
+ * a fence is inserted behind all commands of the frame. A region is only handed out again after its fence has signaled, so the CPU never overwrites
+ * data the GPU still reads, and the driver neither copies the data nor synchronizes implicitly. {@link #getOffset()} tells where the region of the
+ * current frame starts within the buffer object.
+ * <p>
+ * Otherwise, the buffer object is orphaned and mapped again every frame, which lets the driver hand out fresh storage while the GPU still reads the old
+ * one. In that case the offset is always zero, and {@link #end()} must be called to unmap the buffer object before drawing from it.
+ * <p>
+ * In both cases the returned {@link ByteBuffer} instances are reused, so steady-state streaming allocates nothing. All methods must be called on the
+ * context thread of the canvas, with its context being current.
+ */
+public class GLStreamBuffer {
+
+    /**
+     * Regions start at multiples of this, which satisfies the offset alignment requirements of all buffer binding points in practice.
+     */
+    private static final int ALIGNMENT = 256;
+
+    private final GLCanvas canvas;
+    private final int target;
+    private final long frameSize;
+    private final long regionSize;
+    private final boolean persistent;
+    private final int buffer;
+    private final ByteBuffer[] regions;
+    private final long[] fences;
+    private final GLCanvas.SwapHook swapHook = new GLCanvas.SwapHook() {
+        public void beforeSwap(GLCanvas canvas) {
+            fence();
+        }
+
+        public void afterSwap(GLCanvas canvas) {
+        }
+    };
+    private final Runnable disposeHook = this::detach;
+    private ByteBuffer mapped;
+    private ByteBuffer previousMapping;
+    private int index;
+    private boolean inFrame;
+    private boolean disposed;
+
+    /**
+     * Create the buffer object and map it.
+     *
+     * @param canvas
+     *            the {@link GLCanvas} whose context is current
+     * @param target
+     *            the binding point used to create and, without <code>ARB_buffer_storage</code>, to map the buffer object, e.g.
+     *            <code>GL_ARRAY_BUFFER</code>, <code>GL_PIXEL_UNPACK_BUFFER</code> or <code>GL_SHADER_STORAGE_BUFFER</code>. Any buffer target
+     *            supported by the context may be used.
+     * @param frameSize
+     *            the maximum number of bytes written per frame
+     * @param frames
+     *            the number of frames the GPU may lag behind before {@link #begin()} waits, usually two or three
+     * @exception IllegalArgumentException
+     *                <ul>
+     *                <li>ERROR_NULL_ARGUMENT when the canvas is null
+     *                <li>when the frame size or number of frames is not positive
+     *                <li>when the target is not a buffer target
+     *                </ul>
+     */
+    public GLStreamBuffer(GLCanvas canvas, int target, long frameSize, int frames) {
+        if (canvas == null)
+            SWT.error(SWT.ERROR_NULL_ARGUMENT);
+        if (frameSize <= 0L || frames < 1)
+            throw new IllegalArgumentException("Frame size and number of frames must be positive");
+        this.canvas = canvas;
+        this.target = target;
+        this.frameSize = frameSize;
+        GLCapabilities caps = GL.getCapabilities();
+        persistent = caps.OpenGL44 || caps.GL_ARB_buffer_storage;
+        int previousBinding = glGetInteger(bindingOf(target));
+        buffer = glGenBuffers();
+        glBindBuffer(target, buffer);
+        if (persistent) {
+            regionSize = (frameSize + ALIGNMENT - 1) & -ALIGNMENT;
+            long size = regionSize * frames;
+            int flags = GL_MAP_WRITE_BIT | GL_MAP_PERSISTENT_BIT | GL_MAP_COHERENT_BIT;
+            glBufferStorage(target, size, flags);
+            ByteBuffer ring = glMapBufferRange(target, 0L, size, flags);
+            if (ring == null) {
+                glBindBuffer(target, previousBinding);
+                glDeleteBuffers(buffer);
+                throw new IllegalStateException("Failed to map stream buffer");
+            }
+            regions = new ByteBuffer[frames];
+            for (int i = 0; i < frames; i++) {
+                ring.limit((int) (i * regionSize + frameSize)).position((int) (i * regionSize));
+                regions[i] = ring.slice();
+            }
+            fences = new long[frames];
+        } else {
+            regionSize = frameSize;
+            glBufferData(target, frameSize, GL_STREAM_DRAW);
+            regions = null;
+            fences = null;
+        }
+        glBindBuffer(target, previousBinding);
+        canvas.addSwapHook(swapHook);
+        canvas.addContextDisposeHook(disposeHook);
+    }
+
+    private static int bindingOf(int target) {
+        switch (target) {
+        case GL_ARRAY_BUFFER:
+            return GL_ARRAY_BUFFER_BINDING;
+        case GL_ELEMENT_ARRAY_BUFFER:
+            return GL_ELEMENT_ARRAY_BUFFER_BINDING;
+        case GL_PIXEL_PACK_BUFFER:
+            return GL_PIXEL_PACK_BUFFER_BINDING;
+        case GL_PIXEL_UNPACK_BUFFER:
+            return GL_PIXEL_UNPACK_BUFFER_BINDING;
+        case GL_TRANSFORM_FEEDBACK_BUFFER:
+            return GL_TRANSFORM_FEEDBACK_BUFFER_BINDING;
+        case GL_UNIFORM_BUFFER:
+            return GL_UNIFORM_BUFFER_BINDING;
+        case GL_TEXTURE_BUFFER:
+            return GL_TEXTURE_BUFFER_BINDING;
+        case GL_COPY_READ_BUFFER:
+            return GL_COPY_READ_BUFFER_BINDING;
+        case GL_COPY_WRITE_BUFFER:
+            return GL_COPY_WRITE_BUFFER_BINDING;
+        case GL_DRAW_INDIRECT_BUFFER:
+            return GL_DRAW_INDIRECT_BUFFER_BINDING;
+        case GL_ATOMIC_COUNTER_BUFFER:
+            return GL_ATOMIC_COUNTER_BUFFER_BINDING;
+        case GL_DISPATCH_INDIRECT_BUFFER:
+            return GL_DISPATCH_INDIRECT_BUFFER_BINDING;
+        case GL_SHADER_STORAGE_BUFFER:
+            return GL_SHADER_STORAGE_BUFFER_BINDING;
+        case GL_QUERY_BUFFER:
+            return GL_QUERY_BUFFER_BINDING;
+        case GL_PARAMETER_BUFFER:
+            return GL_PARAMETER_BUFFER_BINDING;
+        default:
+            throw new IllegalArgumentException("Not a buffer target: " + target);
+        }
+    }
+
+    /**
+     * Returns the name of the buffer object.
+     *
+     * @return the buffer object
+     */
+    public int getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Returns whether the buffer object is persistently mapped, or orphaned every frame.
+     *
+     * @return true if <code>ARB_buffer_storage</code> is used
+     */
+    public boolean isPersistent() {
+        return persistent;
+    }
+
+    /**
+     * Returns the offset of the region of the current frame within the buffer object, in bytes.
+     *
+     * @return the offset to pass to e.g. <code>glVertexAttribPointer</code>
+     */
+    public long getOffset() {
+        return persistent ? index * regionSize : 0L;
+    }
+
+    /**
+     * Returns the region of the current frame to write into, waiting for the GPU only if it has not finished the frame which last used it.
+     * <p>
+     * Calling this again within the same frame returns the same region, with its position reset. Without <code>ARB_buffer_storage</code>, this binds
+     * the buffer object to the target given at construction.
+     *
+     * @return a direct buffer of the frame size given at construction
+     */
+    public ByteBuffer begin() {
+        checkNotDisposed();
+        if (!persistent) {
+            glBindBuffer(target, buffer);
+            if (mapped == null) {
+                // Orphan the old storage, which the GPU may still read
+                glBufferData(target, frameSize, GL_STREAM_DRAW);
+                mapped = glMapBuffer(target, GL_WRITE_ONLY, frameSize, previousMapping);
+                if (mapped == null)
+                    throw new IllegalStateException("Failed to map stream buffer");
+                previousMapping = mapped;
+            }
+            inFrame = true;
+            mapped.clear();
+            return mapped;
+        }
+        if (!inFrame) {
+            long fence = fences[index];
+            if (fence != 0L) {
+                while (glClientWaitSync(fence, GL_SYNC_FLUSH_COMMANDS_BIT, 1000000000L) == GL_TIMEOUT_EXPIRED)
+                    ;
+                glDeleteSync(fence);
+                fences[index] = 0L;
+            }
+            inFrame = true;
+        }
+        ByteBuffer region = regions[index];
+        region.clear();
+        return region;
+    }
+
+    /**
+     * Finish writing the region of the current frame. This is required before drawing from the buffer object if it is not persistently mapped, and has
+     * no effect otherwise. Without <code>ARB_buffer_storage</code>, this binds the buffer object to the target given at construction.
+     */
+    public void end() {
+        checkNotDisposed();
+        if (!persistent && mapped != null) {
+            glBindBuffer(target, buffer);
+            glUnmapBuffer(target);
+            mapped = null;
+        }
+    }
+
+    /**
+     * Protect the region of the current frame with a fence and move on to the next one.
+     */
+    private void fence() {
+        if (!inFrame)
+            return;
+        inFrame = false;
+        if (!persistent) {
+            end();
+            return;
+        }
+        fences[index] = glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+        index = (index + 1) % regions.length;
+    }
+
+    private void checkNotDisposed() {
+        if (disposed)
+            SWT.error(SWT.ERROR_WIDGET_DISPOSED);
+    }
+
+    /**
+     * Delete the buffer object and all fences.
+     * <p>
+     * This must be called on the context thread of the canvas. If it is not called, the buffer object is freed together with the context.
+     */
+    public void dispose() {
+        if (disposed)
+            return;
+        detach();
+        canvas.setCurrent();
+        if (fences != null) {
+            for (int i = 0; i < fences.length; i++) {
+                if (fences[i] != 0L)
+                    glDeleteSync(fences[i]);
+                fences[i] = 0L;
+            }
+        }
+        glDeleteBuffers(buffer);
+        mapped = null;
+        previousMapping = null;
+    }
+
+    private void detach() {
+        disposed = true;
+        canvas.removeSwapHook(swapHook);
+        canvas.removeContextDisposeHook(disposeHook);
+    }
+
+}
@@ -0,0 +1,30 @@
+package org.lwjgl.opengl.swt;
+
+/**
+ * The presentation counters of a {@link GLCanvas}, as defined by <code>OML_sync_control</code>.
+ * <p>
+ * See {@link GLCanvas#getSyncValues(GLSyncValues)} and {@link GLCanvas#waitForSbc(long, GLSyncValues)}.
+ */
+public class GLSyncValues {
+
+    /**
+     * The unadjusted system time in microseconds at which the vertical retrace counted by {@link #msc} began. Its epoch is unspecified, but it
+     * is monotonic and the same for all canvases on the same display.
+     */
+    public long ust;
+
+    /**
+     * The media stream counter, i.e. the number of vertical retraces of the display the canvas is on.
+     */
+    public long msc;
+
+    /**
+     * The swap buffer counter, i.e. the number of completed buffer swaps of the canvas.
+     */
+    public long sbc;
+
+    public String toString() {
+        return "GLSyncValues[ust=" + ust + ", msc=" + msc + ", sbc=" + sbc + "]";
+    }
+
+}
@@ -0,0 +1,319 @@
+package org.lwjgl.opengl.swt;
+
+import static org.lwjgl.opengl.GL11C.*;
+import static org.lwjgl.opengl.GL32C.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.SWTError;
+import org.eclipse.swt.SWTException;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.system.Platform;
+
+/**
+ * Runs OpenGL uploads, such as filling textures and buffer objects, on worker threads with hidden contexts that share objects with a {@link GLCanvas}.
+ * <p>
+ * Each worker owns a {@link GLOffscreenCanvas} created with {@link GLData#shareContext} set to the canvas. After an {@link Upload} has issued its
+ * commands, the worker inserts a fence sync and flushes, so that the fence reaches the GPU without waiting for it. Completed uploads are handed to their
+ * {@link Callback} on the context thread of the canvas once their fence has signaled, which is checked without blocking whenever {@link #poll()} is
+ * called, and automatically right after every {@link GLCanvas#swapBuffers()}. The objects created by an upload are therefore complete when its callback
+ * runs and can be used by the canvas right away, without any <code>glFinish</code>. An upload which threw an exception is reported by the next explicit
+ * call of {@link #poll()}, never from within a swap, where it would keep the remaining swap hooks from running.
+ * <p>
+ * Fences require OpenGL 3.2 or <code>ARB_sync</code>. Without them, workers fall back to <code>glFinish</code> on their own context, which still keeps
+ * the canvas from stalling. As the workers are {@link GLOffscreenCanvas} instances, this is currently only supported on Linux with GLX.
+ */
+public class GLUploadExecutor {
+
+    /**
+     * An upload to run on a worker thread.
+     *
+     * @param <T>
+     *            the type of the result, e.g. the name of the created texture
+     */
+    public static interface Upload<T> {
+        /**
+         * Issue the OpenGL commands of the upload. The context of the worker is current and {@link GL#createCapabilities()} has been called for it.
+         *
+         * @return the result to hand to the {@link Callback}
+         */
+        T upload();
+    }
+
+    /**
+     * Receives the result of a completed {@link Upload}.
+     *
+     * @param <T>
+     *            the type of the result
+     */
+    public static interface Callback<T> {
+        /**
+         * Called on the context thread of the canvas, with its context being current, once all commands of the upload have completed.
+         *
+         * @param result
+         *            the result of {@link Upload#upload()}
+         */
+        void uploaded(T result);
+    }
+
+    private static final class Task<T> {
+        final Upload<T> upload;
+        final Callback<T> callback;
+        T result;
+        Throwable failure;
+        long fence;
+
+        Task(Upload<T> upload, Callback<T> callback) {
+            this.upload = upload;
+            this.callback = callback;
+        }
+
+        void deliver() {
+            callback.uploaded(result);
+        }
+    }
+
+    private static final Task<Object> SHUTDOWN = new Task<Object>(null, null);
+
+    private final GLCanvas canvas;
+    private final GLOffscreenCanvas[] contexts;
+    private final Thread[] workers;
+    private final LinkedBlockingQueue<Task<?>> tasks = new LinkedBlockingQueue<Task<?>>();
+    private final ConcurrentLinkedQueue<Task<?>> uploaded = new ConcurrentLinkedQueue<Task<?>>();
+    private final List<Task<?>> pending = new ArrayList<Task<?>>();
+    private final List<Task<?>> failed = new ArrayList<Task<?>>();
+    private final GLCanvas.SwapHook swapHook = new GLCanvas.SwapHook() {
+        public void beforeSwap(GLCanvas canvas) {
+        }
+
+        public void afterSwap(GLCanvas canvas) {
+            deliver();
+        }
+    };
+    private final Runnable disposeHook = this::shutdown;
+    private volatile boolean disposed;
+
+    /**
+     * Create the worker contexts and start the worker threads.
+     *
+     * @param canvas
+     *            the {@link GLCanvas} to share objects with
+     * @param threads
+     *            the number of worker threads, each with its own context
+     * @exception IllegalArgumentException
+     *                <ul>
+     *                <li>ERROR_NULL_ARGUMENT when the canvas is null
+     *                <li>when the number of threads is not positive
+     *                </ul>
+     * @exception SWTError <ul>
+     *    <li>ERROR_NOT_IMPLEMENTED - if not running on Linux, as the workers are {@link GLOffscreenCanvas} instances</li>
+     * </ul>
+     * @exception UnsupportedOperationException
+     *                if the context of the canvas was created with EGL
+     */
+    public GLUploadExecutor(GLCanvas canvas, int threads) {
+        if (canvas == null)
+            SWT.error(SWT.ERROR_NULL_ARGUMENT);
+        if (threads < 1)
+            throw new IllegalArgumentException("Thread count must be positive");
+        if (Platform.get() != Platform.LINUX)
+            SWT.error(SWT.ERROR_NOT_IMPLEMENTED);
+        // headless EGL contexts cannot share objects with a context on a window system display
+        if (canvas.effective.contextCreationAPI == GLData.ContextCreationAPI.EGL)
+            throw new UnsupportedOperationException("Upload workers cannot share objects with canvases whose context was created with EGL");
+        this.canvas = canvas;
+        GLData data = workerData(canvas.effective);
+        data.shareContext = canvas;
+        contexts = new GLOffscreenCanvas[threads];
+        workers = new Thread[threads];
+        try {
+            for (int i = 0; i < threads; i++)
+                contexts[i] = new GLOffscreenCanvas(data, 1, 1);
+        } catch (RuntimeException e) {
+            for (GLOffscreenCanvas context : contexts)
+                if (context != null)
+                    context.dispose();
+            throw e;
+        }
+        for (int i = 0; i < threads; i++) {
+            GLOffscreenCanvas context = contexts[i];
+            workers[i] = new Thread(() -> work(context), "GLUploadExecutor-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+        canvas.addSwapHook(swapHook);
+        canvas.addContextDisposeHook(disposeHook);
+    }
+
+    /**
+     * Request a context of the same client API and version as the canvas, but without any framebuffer of its own worth mentioning.
+     */
+    private static GLData workerData(GLData effective) {
+        GLData data = new GLData();
+        data.api = effective.api;
+        data.majorVersion = effective.majorVersion;
+        data.minorVersion = effective.minorVersion;
+        data.profile = effective.profile;
+        data.forwardCompatible = effective.forwardCompatible;
+        data.debug = effective.debug;
+        data.robustness = effective.robustness;
+        data.contextCreationAPI = effective.contextCreationAPI;
+        data.doubleBuffer = false;
+        data.alphaSize = 0;
+        data.depthSize = 0;
+        return data;
+    }
+
+    /**
+     * Queue an upload. This may be called from any thread.
+     *
+     * @param upload
+     *            the {@link Upload} to run on a worker thread
+     * @param callback
+     *            the {@link Callback} to hand the result to on the context thread of the canvas
+     * @exception IllegalArgumentException
+     *                <ul>
+     *                <li>ERROR_NULL_ARGUMENT when the upload or callback is null
+     *                </ul>
+     * @exception IllegalStateException
+     *                if the executor has been disposed
+     */
+    public <T> void submit(Upload<T> upload, Callback<T> callback) {
+        if (upload == null || callback == null)
+            SWT.error(SWT.ERROR_NULL_ARGUMENT);
+        if (disposed)
+            throw new IllegalStateException("Upload executor has been disposed");
+        tasks.add(new Task<T>(upload, callback));
+    }
+
+    /**
+     * Hand all uploads whose commands have completed to their callbacks, without waiting for the others.
+     * <p>
+     * This must be called on the context thread of the canvas, with its context being current.
+     *
+     * @return the number of uploads which are still in flight
+     * @exception SWTException <ul>
+     *    <li>ERROR_FAILED_EXEC - if an upload threw an exception, which is then the cause. This may have completed in an earlier automatic poll after a
+     *    swap. Further failed uploads are reported by the next calls.</li>
+     * </ul>
+     */
+    public int poll() {
+        int inFlight = deliver();
+        if (!failed.isEmpty())
+            SWT.error(SWT.ERROR_FAILED_EXEC, failed.remove(0).failure);
+        return inFlight;
+    }
+
+    /**
+     * Hand all uploads whose commands have completed to their callbacks, and keep those which failed for {@link #poll()} to report.
+     */
+    private int deliver() {
+        Task<?> task;
+        while ((task = uploaded.poll()) != null)
+            pending.add(task);
+        for (int i = 0; i < pending.size(); i++) {
+            task = pending.get(i);
+            if (task.fence != 0L) {
+                if (glClientWaitSync(task.fence, 0, 0L) == GL_TIMEOUT_EXPIRED)
+                    continue;
+                glDeleteSync(task.fence);
+                task.fence = 0L;
+            }
+            pending.remove(i--);
+            if (task.failure != null)
+                failed.add(task);
+            else
+                task.deliver();
+        }
+        return pending.size() + tasks.size();
+    }
+
+    /**
+     * Stop the worker threads and delete their contexts. Queued uploads which have not started yet are discarded, and results which have not been
+     * delivered yet are dropped. The objects they created remain in the share group.
+     * <p>
+     * This is called automatically when the canvas is disposed. Otherwise, it must be called on the context thread of the canvas.
+     */
+    public void dispose() {
+        if (disposed)
+            return;
+        shutdown();
+        Task<?> task;
+        while ((task = uploaded.poll()) != null)
+            pending.add(task);
+        if (!pending.isEmpty()) {
+            canvas.setCurrent();
+            for (Task<?> t : pending)
+                if (t.fence != 0L)
+                    glDeleteSync(t.fence);
+            pending.clear();
+        }
+    }
+
+    /**
+     * Stop the worker threads and delete their contexts. Fences of undelivered uploads are left to be deleted together with the share group.
+     */
+    private void shutdown() {
+        if (disposed)
+            return;
+        disposed = true;
+        canvas.removeSwapHook(swapHook);
+        canvas.removeContextDisposeHook(disposeHook);
+        tasks.clear();
+        for (int i = 0; i < workers.length; i++)
+            tasks.add(SHUTDOWN);
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (GLOffscreenCanvas context : contexts)
+            context.dispose();
+    }
+
+    private void work(GLOffscreenCanvas context) {
+        context.setCurrent();
+        GLCapabilities caps = GL.createCapabilities();
+        boolean fences = caps.OpenGL32 || caps.GL_ARB_sync;
+        try {
+            while (true) {
+                Task<?> task;
+                try {
+                    task = tasks.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (task == SHUTDOWN)
+                    return;
+                run(task, fences);
+                uploaded.add(task);
+            }
+        } finally {
+            GL.setCapabilities(null);
+            context.releaseCurrent();
+        }
+    }
+
+    private static <T> void run(Task<T> task, boolean fences) {
+        try {
+            task.result = task.upload.upload();
+        } catch (Throwable t) {
+            task.failure = t;
+        }
+        if (fences) {
+            task.fence = glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+            // Make sure the fence reaches the GPU, or the canvas could wait for it forever
+            glFlush();
+        } else {
+            glFinish();
+        }
+    }
+
+}
@@ -9,22 +9,91 @@ import org.eclipse.swt.widgets.Composite;
  */
 interface PlatformGLCanvas {
 
+    /**
+     * Returns the implementation which creates contexts for the given attributes, e.g. one for {@link GLData#contextCreationAPI}.
+     */
+    PlatformGLCanvas select(GLData attribs);
+
     long create(GLCanvas canvas, GLData attribs, GLData effective);
 
     boolean isCurrent(long context);
 
+    /**
+     * Returns whether the context is current together with the drawable of the canvas, which differs from {@link #isCurrent(long)} for a context
+     * shared through {@link GLData#contextSource}.
+     */
+    boolean isCurrent(GLCanvas canvas, long context);
+
     boolean makeCurrent(GLCanvas canvas, long context);
 
+    boolean releaseCurrent(GLCanvas canvas);
+
     boolean deleteContext(GLCanvas canvas, long context);
 
     boolean swapBuffers(GLCanvas canvas);
 
+    /**
+     * Swap buffers with the given damage, as x, y, width and height of each rectangle in window coordinates with the origin at the bottom left.
+     */
+    boolean swapBuffers(GLCanvas canvas, int[] damage);
+
+    int getBufferAge(GLCanvas canvas);
+
     public int glGetSwapInterval(GLCanvas canvas);
 
     public boolean glSwapInterval(GLCanvas canvas, int interval);
 
+    GLCanvas.SwapControl getSwapControl(GLCanvas canvas);
+
     boolean delayBeforeSwapNV(GLCanvas canvas, float seconds);
 
+    boolean getSyncValues(GLCanvas canvas, GLSyncValues values);
+
+    double getRefreshRate(GLCanvas canvas);
+
+    long swapBuffersMsc(GLCanvas canvas, long targetMsc, long divisor, long remainder);
+
+    boolean waitForSbc(GLCanvas canvas, long targetSbc, GLSyncValues values);
+
+    boolean waitForVBlank(GLCanvas canvas);
+
+    void resize(GLCanvas canvas, int x, int y, int width, int height);
+
+    boolean isViewable(GLCanvas canvas);
+
+    /**
+     * Returns whether the window system resizes the drawable of the canvas together with the widget, so that {@link #resize(GLCanvas, int, int, int, int)}
+     * has nothing to defer.
+     */
+    boolean drawableFollowsWidget(GLCanvas canvas);
+
+    long create(GLOffscreenCanvas canvas, GLData attribs, GLData effective);
+
+    boolean makeCurrent(GLOffscreenCanvas canvas, long context);
+
+    boolean releaseCurrent(GLOffscreenCanvas canvas);
+
+    boolean deleteContext(GLOffscreenCanvas canvas, long context);
+
+    boolean swapBuffers(GLOffscreenCanvas canvas);
+
+    /**
+     * Returns whether {@link #create(GLContextPool.PooledContext, GLData, GLData, long)} and {@link #attach(GLCanvas, GLContextPool.PooledContext)}
+     * are implemented, so that a {@link GLContextPool} can create contexts ahead of time.
+     */
+    boolean supportsPooling();
+
+    long create(GLContextPool.PooledContext pooled, GLData attribs, GLData effective, long shareContext);
+
+    long attach(GLCanvas canvas, GLContextPool.PooledContext pooled);
+
+    boolean deleteContext(GLContextPool.PooledContext pooled);
+
+    /**
+     * Create the drawable of the canvas for the context of the source canvas and return that context.
+     */
+    long share(GLCanvas canvas, GLCanvas source, GLData attribs, GLData effective);
+
     int checkStyle(Composite parent, int style);
 
     void resetStyle(Composite parent);
@@ -1,6 +1,7 @@
 package org.lwjgl.vulkan.swt;
 
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.SWTException;
 import org.eclipse.swt.widgets.Canvas;
 import org.eclipse.swt.widgets.Composite;
 import org.lwjgl.system.Platform;
@@ -19,6 +20,9 @@ public class VKCanvas extends Canvas {
         case WINDOWS:
             platformClassName = "org.lwjgl.vulkan.swt.PlatformWin32VKCanvas";
             break;
+        case LINUX:
+            platformClassName = "org.lwjgl.vulkan.swt.PlatformLinuxVKCanvas";
+            break;
         default:
             throw new AssertionError("NYI");
         }
@@ -40,6 +44,12 @@ public class VKCanvas extends Canvas {
      */
     public long surface;
 
+    /**
+     * The child window presenting the surface and its X id, on Linux.
+     */
+    long gdkWindow;
+    long xWindow;
+
     /**
      * Create a {@link VKCanvas} widget using the attributes described in the supplied {@link VKData} object.
      *
@@ -49,6 +59,8 @@ public class VKCanvas extends Canvas {
      *            the bitwise OR'ing of widget styles
      * @param data
      *            the necessary data to create a VKCanvas
+     * @exception SWTException
+     *                if the surface cannot be created, e.g. on Linux when GTK does not run on X11
      */
     public VKCanvas(Composite parent, int style, VKData data) {
         super(parent, platformCanvas.checkStyle(parent, style));
@@ -57,7 +69,12 @@ public class VKCanvas extends Canvas {
         }
         if (data == null)
             SWT.error(SWT.ERROR_NULL_ARGUMENT);
-        surface = platformCanvas.create(this, data);
+        try {
+            surface = platformCanvas.create(this, data);
+        } catch (SWTException e) {
+            dispose();
+            throw e;
+        }
     }
 
     /**
@@ -0,0 +1,442 @@
+package org.lwjgl.vulkan.swt;
+
+import static org.lwjgl.system.MemoryStack.*;
+import static org.lwjgl.vulkan.KHRSurface.*;
+import static org.lwjgl.vulkan.KHRSwapchain.*;
+import static org.lwjgl.vulkan.VK10.*;
+
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.SWTException;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.internal.DPIUtil;
+import org.eclipse.swt.widgets.Listener;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.vulkan.VkCommandBuffer;
+import org.lwjgl.vulkan.VkDevice;
+import org.lwjgl.vulkan.VkFenceCreateInfo;
+import org.lwjgl.vulkan.VkImageViewCreateInfo;
+import org.lwjgl.vulkan.VkPhysicalDevice;
+import org.lwjgl.vulkan.VkPresentInfoKHR;
+import org.lwjgl.vulkan.VkQueue;
+import org.lwjgl.vulkan.VkSemaphoreCreateInfo;
+import org.lwjgl.vulkan.VkSubmitInfo;
+import org.lwjgl.vulkan.VkSurfaceCapabilitiesKHR;
+import org.lwjgl.vulkan.VkSurfaceFormatKHR;
+import org.lwjgl.vulkan.VkSwapchainCreateInfoKHR;
+
+/**
+ * Manages the swapchain of a {@link VKCanvas} and the synchronization of a fixed number of frames in flight.
+ * <p>
+ * Each frame consists of {@link #acquire()}, recording a command buffer for the acquired image, {@link #submit(VkCommandBuffer)} and {@link #present()}.
+ * Every frame slot owns an image-acquired semaphore, a render-finished semaphore and a fence, which are created once and reused. The CPU only waits
+ * for the fence of the frame slot it is about to reuse, i.e. when it is more than <code>framesInFlight</code> frames ahead of the GPU, and never for
+ * the queue to become idle.
+ * <p>
+ * The swapchain is recreated on the next {@link #acquire()} after the canvas has been resized, or when the surface reports it to be out of date. Since
+ * the images change then, the frame slots are drained first and all {@link RecreateListener}s are notified, so that they can recreate their
+ * framebuffers and command buffers.
+ * <p>
+ * Command buffers submitted via {@link #submit(VkCommandBuffer)} must leave the acquired image in the <code>VK_IMAGE_LAYOUT_PRESENT_SRC_KHR</code> layout,
+ * typically through the final layout of a render pass whose initial layout is <code>VK_IMAGE_LAYOUT_UNDEFINED</code>. All methods must be called from the
+ * SWT display thread. The queue must support both graphics and presentation to the surface of the canvas.
+ */
+public class VKSwapchain {
+
+    /**
+     * Notified after the swapchain has been (re)created.
+     */
+    public static interface RecreateListener {
+        /**
+         * Called after the swapchain images have changed. No frame is in flight at this point, so resources depending on the previous images can be
+         * destroyed right away.
+         *
+         * @param swapchain
+         *            the {@link VKSwapchain}
+         */
+        void recreated(VKSwapchain swapchain);
+    }
+
+    private final VKCanvas canvas;
+    private final VkPhysicalDevice physicalDevice;
+    private final VkDevice device;
+    private final VkQueue queue;
+    private final long[] imageAcquiredSemaphores;
+    private final long[] renderFinishedSemaphores;
+    private final long[] fences;
+    private final List<RecreateListener> listeners = new ArrayList<RecreateListener>();
+    private final Listener resizeListener = event -> mustRecreate = true;
+    private int presentMode = VK_PRESENT_MODE_FIFO_KHR;
+    private int format;
+    private int colorSpace;
+    private long swapchain;
+    private long[] images = new long[0];
+    private long[] imageViews = new long[0];
+    private long[] imageFences = new long[0];
+    private int width;
+    private int height;
+    private boolean mustRecreate = true;
+    private int frame;
+    private int imageIndex = -1;
+
+    /**
+     * Create a swapchain manager for the given canvas. The swapchain itself is created on the first {@link #acquire()}.
+     *
+     * @param canvas
+     *            the {@link VKCanvas} whose surface to present to
+     * @param physicalDevice
+     *            the physical device of <code>device</code>
+     * @param device
+     *            the logical device
+     * @param queue
+     *            the queue to submit and present on
+     * @param framesInFlight
+     *            the maximum number of frames the CPU may be ahead of the GPU. Two is a good default.
+     */
+    public VKSwapchain(VKCanvas canvas, VkPhysicalDevice physicalDevice, VkDevice device, VkQueue queue, int framesInFlight) {
+        if (canvas == null || physicalDevice == null || device == null || queue == null)
+            SWT.error(SWT.ERROR_NULL_ARGUMENT);
+        if (framesInFlight < 1)
+            throw new IllegalArgumentException("Frames in flight must be positive");
+        this.canvas = canvas;
+        this.physicalDevice = physicalDevice;
+        this.device = device;
+        this.queue = queue;
+        imageAcquiredSemaphores = new long[framesInFlight];
+        renderFinishedSemaphores = new long[framesInFlight];
+        fences = new long[framesInFlight];
+        chooseSurfaceFormat();
+        try (MemoryStack stack = stackPush()) {
+            VkSemaphoreCreateInfo sci = VkSemaphoreCreateInfo.callocStack(stack)
+                    .sType(VK_STRUCTURE_TYPE_SEMAPHORE_CREATE_INFO);
+            VkFenceCreateInfo fci = VkFenceCreateInfo.callocStack(stack)
+                    .sType(VK_STRUCTURE_TYPE_FENCE_CREATE_INFO)
+                    .flags(VK_FENCE_CREATE_SIGNALED_BIT);
+            LongBuffer pHandle = stack.mallocLong(1);
+            for (int i = 0; i < framesInFlight; i++) {
+                check(vkCreateSemaphore(device, sci, null, pHandle), "vkCreateSemaphore");
+                imageAcquiredSemaphores[i] = pHandle.get(0);
+                check(vkCreateSemaphore(device, sci, null, pHandle), "vkCreateSemaphore");
+                renderFinishedSemaphores[i] = pHandle.get(0);
+                check(vkCreateFence(device, fci, null, pHandle), "vkCreateFence");
+                fences[i] = pHandle.get(0);
+            }
+        }
+        canvas.addListener(SWT.Resize, resizeListener);
+    }
+
+    private static void check(int err, String function) {
+        if (err != VK_SUCCESS)
+            throw new SWTException("Calling " + function + " failed with error: " + err);
+    }
+
+    private void chooseSurfaceFormat() {
+        try (MemoryStack stack = stackPush()) {
+            IntBuffer pCount = stack.mallocInt(1);
+            check(vkGetPhysicalDeviceSurfaceFormatsKHR(physicalDevice, canvas.surface, pCount, null), "vkGetPhysicalDeviceSurfaceFormatsKHR");
+            if (pCount.get(0) == 0)
+                throw new SWTException("The physical device supports no format for the surface of the canvas");
+            VkSurfaceFormatKHR.Buffer formats = VkSurfaceFormatKHR.mallocStack(pCount.get(0), stack);
+            check(vkGetPhysicalDeviceSurfaceFormatsKHR(physicalDevice, canvas.surface, pCount, formats), "vkGetPhysicalDeviceSurfaceFormatsKHR");
+            format = formats.get(0).format();
+            colorSpace = formats.get(0).colorSpace();
+            for (int i = 0; i < formats.remaining(); i++) {
+                if (formats.get(i).format() == VK_FORMAT_B8G8R8A8_UNORM && formats.get(i).colorSpace() == VK_COLOR_SPACE_SRGB_NONLINEAR_KHR) {
+                    format = VK_FORMAT_B8G8R8A8_UNORM;
+                    colorSpace = VK_COLOR_SPACE_SRGB_NONLINEAR_KHR;
+                    break;
+                }
+            }
+            if (format == VK_FORMAT_UNDEFINED)
+                format = VK_FORMAT_B8G8R8A8_UNORM;
+        }
+    }
+
+    /**
+     * Add a listener to be notified whenever the swapchain has been (re)created.
+     *
+     * @param listener
+     *            the {@link RecreateListener}
+     */
+    public void addRecreateListener(RecreateListener listener) {
+        if (listener == null)
+            SWT.error(SWT.ERROR_NULL_ARGUMENT);
+        listeners.add(listener);
+    }
+
+    public void removeRecreateListener(RecreateListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Set the presentation mode to use from the next swapchain recreation on, which is triggered right away. The default is
+     * <code>VK_PRESENT_MODE_FIFO_KHR</code>, which is always supported.
+     *
+     * @param presentMode
+     *            one of the <code>VK_PRESENT_MODE_*_KHR</code> constants
+     */
+    public void setPresentMode(int presentMode) {
+        this.presentMode = presentMode;
+        mustRecreate = true;
+    }
+
+    /**
+     * @return the format of the swapchain images
+     */
+    public int getFormat() {
+        return format;
+    }
+
+    /**
+     * @return the width of the swapchain images in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of the swapchain images in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the number of swapchain images
+     */
+    public int getImageCount() {
+        return images.length;
+    }
+
+    /**
+     * @param index
+     *            the image index
+     * @return the swapchain image with the given index
+     */
+    public long getImage(int index) {
+        return images[index];
+    }
+
+    /**
+     * @param index
+     *            the image index
+     * @return a 2D color image view of the swapchain image with the given index
+     */
+    public long getImageView(int index) {
+        return imageViews[index];
+    }
+
+    /**
+     * @return the index of the current frame slot in <code>[0, framesInFlight)</code>, e.g. to select per-frame resources such as uniform buffers
+     */
+    public int getFrameIndex() {
+        return frame;
+    }
+
+    /**
+     * Wait until the current frame slot is free again and acquire the next swapchain image, recreating the swapchain first if necessary.
+     *
+     * @return the index of the acquired image, or <code>-1</code> if the canvas currently has no area to present to
+     */
+    public int acquire() {
+        if (imageIndex != -1)
+            throw new IllegalStateException("Image " + imageIndex + " has already been acquired");
+        for (int attempt = 0; attempt < 2; attempt++) {
+            if (mustRecreate && !recreate())
+                return -1;
+            try (MemoryStack stack = stackPush()) {
+                check(vkWaitForFences(device, fences[frame], true, -1L), "vkWaitForFences");
+                IntBuffer pImageIndex = stack.mallocInt(1);
+                int err = vkAcquireNextImageKHR(device, swapchain, -1L, imageAcquiredSemaphores[frame], VK_NULL_HANDLE, pImageIndex);
+                if (err == VK_ERROR_OUT_OF_DATE_KHR) {
+                    mustRecreate = true;
+                    continue;
+                }
+                if (err == VK_SUBOPTIMAL_KHR)
+                    mustRecreate = true;
+                else
+                    check(err, "vkAcquireNextImageKHR");
+                int index = pImageIndex.get(0);
+                // The image may still be used by an older frame slot if there are fewer images than frames in flight
+                if (imageFences[index] != VK_NULL_HANDLE && imageFences[index] != fences[frame])
+                    check(vkWaitForFences(device, imageFences[index], true, -1L), "vkWaitForFences");
+                imageFences[index] = fences[frame];
+                imageIndex = index;
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Submit the given command buffer for the acquired image. It waits for the image to be available and signals the fence of the current frame slot.
+     *
+     * @param commandBuffer
+     *            the command buffer rendering into the image returned by {@link #acquire()}
+     */
+    public void submit(VkCommandBuffer commandBuffer) {
+        if (imageIndex == -1)
+            throw new IllegalStateException("No image has been acquired");
+        try (MemoryStack stack = stackPush()) {
+            VkSubmitInfo submitInfo = VkSubmitInfo.callocStack(stack)
+                    .sType(VK_STRUCTURE_TYPE_SUBMIT_INFO)
+                    .waitSemaphoreCount(1)
+                    .pWaitSemaphores(stack.longs(imageAcquiredSemaphores[frame]))
+                    .pWaitDstStageMask(stack.ints(VK_PIPELINE_STAGE_COLOR_ATTACHMENT_OUTPUT_BIT))
+                    .pCommandBuffers(stack.pointers(commandBuffer))
+                    .pSignalSemaphores(stack.longs(renderFinishedSemaphores[frame]));
+            check(vkResetFences(device, fences[frame]), "vkResetFences");
+            check(vkQueueSubmit(queue, submitInfo, fences[frame]), "vkQueueSubmit");
+        }
+    }
+
+    /**
+     * Present the acquired image once the submitted command buffer has finished, and advance to the next frame slot. This does not wait for the GPU.
+     */
+    public void present() {
+        if (imageIndex == -1)
+            throw new IllegalStateException("No image has been acquired");
+        try (MemoryStack stack = stackPush()) {
+            VkPresentInfoKHR presentInfo = VkPresentInfoKHR.callocStack(stack)
+                    .sType(VK_STRUCTURE_TYPE_PRESENT_INFO_KHR)
+                    .pWaitSemaphores(stack.longs(renderFinishedSemaphores[frame]))
+                    .swapchainCount(1)
+                    .pSwapchains(stack.longs(swapchain))
+                    .pImageIndices(stack.ints(imageIndex));
+            int err = vkQueuePresentKHR(queue, presentInfo);
+            if (err == VK_ERROR_OUT_OF_DATE_KHR || err == VK_SUBOPTIMAL_KHR)
+                mustRecreate = true;
+            else
+                check(err, "vkQueuePresentKHR");
+        } finally {
+            imageIndex = -1;
+            frame = (frame + 1) % fences.length;
+        }
+    }
+
+    /**
+     * Wait for the fences of all frame slots, i.e. until no frame is in flight anymore.
+     */
+    private void waitForFrames() {
+        try (MemoryStack stack = stackPush()) {
+            check(vkWaitForFences(device, stack.longs(fences), true, -1L), "vkWaitForFences");
+        }
+    }
+
+    private void destroyImageViews() {
+        for (long imageView : imageViews)
+            vkDestroyImageView(device, imageView, null);
+        imageViews = new long[0];
+    }
+
+    /**
+     * Create a new swapchain for the current size of the surface.
+     *
+     * @return <code>false</code> if the surface has zero size and no swapchain could be created
+     */
+    private boolean recreate() {
+        if (canvas.isDisposed())
+            return false;
+        try (MemoryStack stack = stackPush()) {
+            VkSurfaceCapabilitiesKHR caps = VkSurfaceCapabilitiesKHR.mallocStack(stack);
+            check(vkGetPhysicalDeviceSurfaceCapabilitiesKHR(physicalDevice, canvas.surface, caps), "vkGetPhysicalDeviceSurfaceCapabilitiesKHR");
+            int newWidth = caps.currentExtent().width();
+            int newHeight = caps.currentExtent().height();
+            if (newWidth == -1) {
+                // The surface size is determined by the swapchain
+                Rectangle clientArea = DPIUtil.autoScaleUp(canvas.getClientArea());
+                newWidth = Math.max(caps.minImageExtent().width(), Math.min(caps.maxImageExtent().width(), clientArea.width));
+                newHeight = Math.max(caps.minImageExtent().height(), Math.min(caps.maxImageExtent().height(), clientArea.height));
+            }
+            if (newWidth <= 0 || newHeight <= 0)
+                return false;
+            int imageCount = caps.minImageCount() + 1;
+            if (caps.maxImageCount() > 0 && imageCount > caps.maxImageCount())
+                imageCount = caps.maxImageCount();
+            int preTransform = (caps.supportedTransforms() & VK_SURFACE_TRANSFORM_IDENTITY_BIT_KHR) != 0 ? VK_SURFACE_TRANSFORM_IDENTITY_BIT_KHR
+                    : caps.currentTransform();
+
+            // The previous images and views must not be in use anymore when we destroy them
+            waitForFrames();
+
+            VkSwapchainCreateInfoKHR sci = VkSwapchainCreateInfoKHR.callocStack(stack)
+                    .sType(VK_STRUCTURE_TYPE_SWAPCHAIN_CREATE_INFO_KHR)
+                    .surface(canvas.surface)
+                    .minImageCount(imageCount)
+                    .imageFormat(format)
+                    .imageColorSpace(colorSpace)
+                    .imageUsage(VK_IMAGE_USAGE_COLOR_ATTACHMENT_BIT)
+                    .preTransform(preTransform)
+                    .imageArrayLayers(1)
+                    .imageSharingMode(VK_SHARING_MODE_EXCLUSIVE)
+                    .presentMode(presentMode)
+                    .oldSwapchain(swapchain)
+                    .clipped(true)
+                    .compositeAlpha(VK_COMPOSITE_ALPHA_OPAQUE_BIT_KHR);
+            sci.imageExtent().width(newWidth).height(newHeight);
+            LongBuffer pSwapchain = stack.mallocLong(1);
+            check(vkCreateSwapchainKHR(device, sci, null, pSwapchain), "vkCreateSwapchainKHR");
+            destroyImageViews();
+            if (swapchain != VK_NULL_HANDLE)
+                vkDestroySwapchainKHR(device, swapchain, null);
+            swapchain = pSwapchain.get(0);
+            width = newWidth;
+            height = newHeight;
+
+            IntBuffer pImageCount = stack.mallocInt(1);
+            check(vkGetSwapchainImagesKHR(device, swapchain, pImageCount, null), "vkGetSwapchainImagesKHR");
+            LongBuffer pImages = stack.mallocLong(pImageCount.get(0));
+            check(vkGetSwapchainImagesKHR(device, swapchain, pImageCount, pImages), "vkGetSwapchainImagesKHR");
+            images = new long[pImages.remaining()];
+            imageViews = new long[images.length];
+            imageFences = new long[images.length];
+            VkImageViewCreateInfo ivci = VkImageViewCreateInfo.callocStack(stack)
+                    .sType(VK_STRUCTURE_TYPE_IMAGE_VIEW_CREATE_INFO)
+                    .viewType(VK_IMAGE_VIEW_TYPE_2D)
+                    .format(format);
+            ivci.subresourceRange()
+                    .aspectMask(VK_IMAGE_ASPECT_COLOR_BIT)
+                    .levelCount(1)
+                    .layerCount(1);
+            LongBuffer pImageView = stack.mallocLong(1);
+            for (int i = 0; i < images.length; i++) {
+                images[i] = pImages.get(i);
+                ivci.image(images[i]);
+                check(vkCreateImageView(device, ivci, null, pImageView), "vkCreateImageView");
+                imageViews[i] = pImageView.get(0);
+            }
+        }
+        mustRecreate = false;
+        for (RecreateListener listener : new ArrayList<RecreateListener>(listeners))
+            listener.recreated(this);
+        return true;
+    }
+
+    /**
+     * Wait for all frames in flight and destroy the swapchain, the image views and all synchronization objects.
+     * <p>
+     * The surface of the canvas is not destroyed, as it is owned by the application, which created the instance it belongs to. Destroy it with
+     * <code>vkDestroySurfaceKHR</code> after this method, while the native window of the canvas still exists, e.g. in an {@link SWT#Dispose}
+     * listener of the canvas.
+     */
+    public void dispose() {
+        if (!canvas.isDisposed())
+            canvas.removeListener(SWT.Resize, resizeListener);
+        waitForFrames();
+        destroyImageViews();
+        if (swapchain != VK_NULL_HANDLE) {
+            vkDestroySwapchainKHR(device, swapchain, null);
+            swapchain = VK_NULL_HANDLE;
+        }
+        for (int i = 0; i < fences.length; i++) {
+            vkDestroySemaphore(device, imageAcquiredSemaphores[i], null);
+            vkDestroySemaphore(device, renderFinishedSemaphores[i], null);
+            vkDestroyFence(device, fences[i], null);
+        }
+    }
+
+}
@@ -19,8 +19,6 @@ import java.nio.IntBuffer;
 import java.nio.LongBuffer;
 
 import org.eclipse.swt.SWT;
-import org.eclipse.swt.events.ControlEvent;
-import org.eclipse.swt.events.ControlAdapter;
 import org.eclipse.swt.layout.FillLayout;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Event;
@@ -42,23 +40,15 @@ import org.lwjgl.vulkan.VkDevice;
 import org.lwjgl.vulkan.VkDeviceCreateInfo;
 import org.lwjgl.vulkan.VkDeviceQueueCreateInfo;
 import org.lwjgl.vulkan.VkFramebufferCreateInfo;
-import org.lwjgl.vulkan.VkImageMemoryBarrier;
-import org.lwjgl.vulkan.VkImageViewCreateInfo;
 import org.lwjgl.vulkan.VkInstance;
 import org.lwjgl.vulkan.VkInstanceCreateInfo;
 import org.lwjgl.vulkan.VkPhysicalDevice;
-import org.lwjgl.vulkan.VkPresentInfoKHR;
 import org.lwjgl.vulkan.VkQueue;
 import org.lwjgl.vulkan.VkQueueFamilyProperties;
 import org.lwjgl.vulkan.VkRect2D;
 import org.lwjgl.vulkan.VkRenderPassBeginInfo;
 import org.lwjgl.vulkan.VkRenderPassCreateInfo;
-import org.lwjgl.vulkan.VkSemaphoreCreateInfo;
-import org.lwjgl.vulkan.VkSubmitInfo;
 import org.lwjgl.vulkan.VkSubpassDescription;
-import org.lwjgl.vulkan.VkSurfaceCapabilitiesKHR;
-import org.lwjgl.vulkan.VkSurfaceFormatKHR;
-import org.lwjgl.vulkan.VkSwapchainCreateInfoKHR;
 import org.lwjgl.vulkan.VkViewport;
 
 /**
@@ -79,11 +69,6 @@ public class ClearScreenDemo {
      */
     private static final int VK_FLAGS_NONE = 0;
 
-    /**
-     * This is just -1L, but it is nicer as a symbolic constant.
-     */
-    private static final long UINT64_MAX = 0xFFFFFFFFFFFFFFFFL;
-
     /**
      * Create a Vulkan {@link VkInstance} using LWJGL 3.
      * <p>
@@ -242,99 +227,6 @@ public class ClearScreenDemo {
         return ret;
     }
 
-    private static class ColorFormatAndSpace {
-        int colorFormat;
-        int colorSpace;
-    }
-
-    private static ColorFormatAndSpace getColorFormatAndSpace(VkPhysicalDevice physicalDevice, long surface) {
-        IntBuffer pQueueFamilyPropertyCount = memAllocInt(1);
-        vkGetPhysicalDeviceQueueFamilyProperties(physicalDevice, pQueueFamilyPropertyCount, null);
-        int queueCount = pQueueFamilyPropertyCount.get(0);
-        VkQueueFamilyProperties.Buffer queueProps = VkQueueFamilyProperties.calloc(queueCount);
-        vkGetPhysicalDeviceQueueFamilyProperties(physicalDevice, pQueueFamilyPropertyCount, queueProps);
-        memFree(pQueueFamilyPropertyCount);
-
-        // Iterate over each queue to learn whether it supports presenting:
-        IntBuffer supportsPresent = memAllocInt(queueCount);
-        for (int i = 0; i < queueCount; i++) {
-            supportsPresent.position(i);
-            int err = vkGetPhysicalDeviceSurfaceSupportKHR(physicalDevice, i, surface, supportsPresent);
-            if (err != VK_SUCCESS) {
-                throw new AssertionError("Failed to physical device surface support: " + translateVulkanResult(err));
-            }
-        }
-
-        // Search for a graphics and a present queue in the array of queue families, try to find one that supports both
-        int graphicsQueueNodeIndex = Integer.MAX_VALUE;
-        int presentQueueNodeIndex = Integer.MAX_VALUE;
-        for (int i = 0; i < queueCount; i++) {
-            if ((queueProps.get(i).queueFlags() & VK_QUEUE_GRAPHICS_BIT) != 0) {
-                if (graphicsQueueNodeIndex == Integer.MAX_VALUE) {
-                    graphicsQueueNodeIndex = i;
-                }
-                if (supportsPresent.get(i) == VK_TRUE) {
-                    graphicsQueueNodeIndex = i;
-                    presentQueueNodeIndex = i;
-                    break;
-                }
-            }
-        }
-        queueProps.free();
-        if (presentQueueNodeIndex == Integer.MAX_VALUE) {
-            // If there's no queue that supports both present and graphics try to find a separate present queue
-            for (int i = 0; i < queueCount; ++i) {
-                if (supportsPresent.get(i) == VK_TRUE) {
-                    presentQueueNodeIndex = i;
-                    break;
-                }
-            }
-        }
-        memFree(supportsPresent);
-
-        // Generate error if could not find both a graphics and a present queue
-        if (graphicsQueueNodeIndex == Integer.MAX_VALUE) {
-            throw new AssertionError("No graphics queue found");
-        }
-        if (presentQueueNodeIndex == Integer.MAX_VALUE) {
-            throw new AssertionError("No presentation queue found");
-        }
-        if (graphicsQueueNodeIndex != presentQueueNodeIndex) {
-            throw new AssertionError("Presentation queue != graphics queue");
-        }
-
-        // Get list of supported formats
-        IntBuffer pFormatCount = memAllocInt(1);
-        int err = vkGetPhysicalDeviceSurfaceFormatsKHR(physicalDevice, surface, pFormatCount, null);
-        int formatCount = pFormatCount.get(0);
-        if (err != VK_SUCCESS) {
-            throw new AssertionError("Failed to query number of physical device surface formats: " + translateVulkanResult(err));
-        }
-
-        VkSurfaceFormatKHR.Buffer surfFormats = VkSurfaceFormatKHR.calloc(formatCount);
-        err = vkGetPhysicalDeviceSurfaceFormatsKHR(physicalDevice, surface, pFormatCount, surfFormats);
-        memFree(pFormatCount);
-        if (err != VK_SUCCESS) {
-            throw new AssertionError("Failed to query physical device surface formats: " + translateVulkanResult(err));
-        }
-
-        // If the format list includes just one entry of VK_FORMAT_UNDEFINED, the surface has no preferred format. Otherwise, at least one supported format will
-        // be returned.
-        int colorFormat;
-        if (formatCount == 1 && surfFormats.get(0).format() == VK_FORMAT_UNDEFINED) {
-            colorFormat = VK_FORMAT_B8G8R8A8_UNORM;
-        } else {
-            colorFormat = surfFormats.get(0).format();
-        }
-        int colorSpace = surfFormats.get(0).colorSpace();
-        surfFormats.free();
-
-        ColorFormatAndSpace ret = new ColorFormatAndSpace();
-        ret.colorFormat = colorFormat;
-        ret.colorSpace = colorSpace;
-        return ret;
-    }
-
     private static long createCommandPool(VkDevice device, int queueNodeIndex) {
         VkCommandPoolCreateInfo cmdPoolInfo = VkCommandPoolCreateInfo.calloc()
                 .sType(VK_STRUCTURE_TYPE_COMMAND_POOL_CREATE_INFO)
@@ -359,202 +251,6 @@ public class ClearScreenDemo {
         return new VkQueue(queue, device);
     }
 
-    private static VkCommandBuffer createCommandBuffer(VkDevice device, long commandPool) {
-        VkCommandBufferAllocateInfo cmdBufAllocateInfo = VkCommandBufferAllocateInfo.calloc()
-                .sType(VK_STRUCTURE_TYPE_COMMAND_BUFFER_ALLOCATE_INFO)
-                .commandPool(commandPool)
-                .level(VK_COMMAND_BUFFER_LEVEL_PRIMARY)
-                .commandBufferCount(1);
-        PointerBuffer pCommandBuffer = memAllocPointer(1);
-        int err = vkAllocateCommandBuffers(device, cmdBufAllocateInfo, pCommandBuffer);
-        cmdBufAllocateInfo.free();
-        long commandBuffer = pCommandBuffer.get(0);
-        memFree(pCommandBuffer);
-        if (err != VK_SUCCESS) {
-            throw new AssertionError("Failed to allocate command buffer: " + translateVulkanResult(err));
-        }
-        return new VkCommandBuffer(commandBuffer, device);
-    }
-
-    private static void imageBarrier(VkCommandBuffer cmdbuffer, long image, int aspectMask, int oldImageLayout, int srcAccess, int newImageLayout, int dstAccess) {
-        // Create an image barrier object
-        VkImageMemoryBarrier.Buffer imageMemoryBarrier = VkImageMemoryBarrier.calloc(1)
-                .sType(VK_STRUCTURE_TYPE_IMAGE_MEMORY_BARRIER)
-                .pNext(NULL)
-                .oldLayout(oldImageLayout)
-                .srcAccessMask(srcAccess)
-                .newLayout(newImageLayout)
-                .dstAccessMask(dstAccess)
-                .srcQueueFamilyIndex(VK_QUEUE_FAMILY_IGNORED)
-                .dstQueueFamilyIndex(VK_QUEUE_FAMILY_IGNORED)
-                .image(image);
-        imageMemoryBarrier.subresourceRange()
-                .aspectMask(aspectMask)
-                .baseMipLevel(0)
-                .levelCount(1)
-                .layerCount(1);
-
-        // Put barrier on top
-        int srcStageFlags = VK_PIPELINE_STAGE_TOP_OF_PIPE_BIT;
-        int destStageFlags = VK_PIPELINE_STAGE_TOP_OF_PIPE_BIT;
-        
-        // Put barrier inside setup command buffer
-        vkCmdPipelineBarrier(cmdbuffer, srcStageFlags, destStageFlags, VK_FLAGS_NONE,
-                null, // no memory barriers
-                null, // no buffer memory barriers
-                imageMemoryBarrier); // one image memory barrier
-        imageMemoryBarrier.free();
-    }
-
-    private static class Swapchain {
-        long swapchainHandle;
-        long[] images;
-        long[] imageViews;
-    }
-
-    private static Swapchain createSwapChain(VkDevice device, VkPhysicalDevice physicalDevice, long surface, long oldSwapChain, VkCommandBuffer commandBuffer, int width,
-            int height, int colorFormat, int colorSpace) {
-        int err;
-        // Get physical device surface properties and formats
-        VkSurfaceCapabilitiesKHR surfCaps = VkSurfaceCapabilitiesKHR.calloc();
-        err = vkGetPhysicalDeviceSurfaceCapabilitiesKHR(physicalDevice, surface, surfCaps);
-        if (err != VK_SUCCESS) {
-            throw new AssertionError("Failed to get physical device surface capabilities: " + translateVulkanResult(err));
-        }
-
-        IntBuffer pPresentModeCount = memAllocInt(1);
-        err = vkGetPhysicalDeviceSurfacePresentModesKHR(physicalDevice, surface, pPresentModeCount, null);
-        int presentModeCount = pPresentModeCount.get(0);
-        if (err != VK_SUCCESS) {
-            throw new AssertionError("Failed to get number of physical device surface presentation modes: " + translateVulkanResult(err));
-        }
-
-        IntBuffer pPresentModes = memAllocInt(presentModeCount);
-        err = vkGetPhysicalDeviceSurfacePresentModesKHR(physicalDevice, surface, pPresentModeCount, pPresentModes);
-        memFree(pPresentModeCount);
-        if (err != VK_SUCCESS) {
-            throw new AssertionError("Failed to get physical device surface presentation modes: " + translateVulkanResult(err));
-        }
-
-        // Try to use mailbox mode. Low latency and non-tearing
-        int swapchainPresentMode = VK_PRESENT_MODE_FIFO_KHR;
-        for (int i = 0; i < presentModeCount; i++) {
-            if (pPresentModes.get(i) == VK_PRESENT_MODE_MAILBOX_KHR) {
-                swapchainPresentMode = VK_PRESENT_MODE_MAILBOX_KHR;
-                break;
-            }
-            if ((swapchainPresentMode != VK_PRESENT_MODE_MAILBOX_KHR) && (pPresentModes.get(i) == VK_PRESENT_MODE_IMMEDIATE_KHR)) {
-                swapchainPresentMode = VK_PRESENT_MODE_IMMEDIATE_KHR;
-            }
-        }
-        memFree(pPresentModes);
-
-        // Determine the number of images
-        int desiredNumberOfSwapchainImages = surfCaps.minImageCount() + 1;
-        if ((surfCaps.maxImageCount() > 0) && (desiredNumberOfSwapchainImages > surfCaps.maxImageCount())) {
-            desiredNumberOfSwapchainImages = surfCaps.maxImageCount();
-        }
-
-        int preTransform;
-        if ((surfCaps.supportedTransforms() & VK_SURFACE_TRANSFORM_IDENTITY_BIT_KHR) != 0) {
-            preTransform = VK_SURFACE_TRANSFORM_IDENTITY_BIT_KHR;
-        } else {
-            preTransform = surfCaps.currentTransform();
-        }
-        surfCaps.free();
-
-        VkSwapchainCreateInfoKHR swapchainCI = VkSwapchainCreateInfoKHR.calloc()
-                .sType(VK_STRUCTURE_TYPE_SWAPCHAIN_CREATE_INFO_KHR)
-                .pNext(NULL)
-                .surface(surface)
-                .minImageCount(desiredNumberOfSwapchainImages)
-                .imageFormat(colorFormat)
-                .imageColorSpace(colorSpace)
-                .imageUsage(VK_IMAGE_USAGE_COLOR_ATTACHMENT_BIT)
-                .preTransform(preTransform)
-                .imageArrayLayers(1)
-                .imageSharingMode(VK_SHARING_MODE_EXCLUSIVE)
-                .pQueueFamilyIndices(null)
-                .presentMode(swapchainPresentMode)
-                .oldSwapchain(oldSwapChain)
-                .clipped(true)
-                .compositeAlpha(VK_COMPOSITE_ALPHA_OPAQUE_BIT_KHR);
-        swapchainCI.imageExtent()
-                .width(width)
-                .height(height);
-        LongBuffer pSwapChain = memAllocLong(1);
-        err = vkCreateSwapchainKHR(device, swapchainCI, null, pSwapChain);
-        swapchainCI.free();
-        long swapChain = pSwapChain.get(0);
-        memFree(pSwapChain);
-        if (err != VK_SUCCESS) {
-            throw new AssertionError("Failed to create swap chain: " + translateVulkanResult(err));
-        }
-
-        // If we just re-created an existing swapchain, we should destroy the old swapchain at this point.
-        // Note: destroying the swapchain also cleans up all its associated presentable images once the platform is done with them.
-        if (oldSwapChain != VK_NULL_HANDLE) {
-            vkDestroySwapchainKHR(device, oldSwapChain, null);
-        }
-
-        IntBuffer pImageCount = memAllocInt(1);
-        err = vkGetSwapchainImagesKHR(device, swapChain, pImageCount, null);
-        int imageCount = pImageCount.get(0);
-        if (err != VK_SUCCESS) {
-            throw new AssertionError("Failed to get number of swapchain images: " + translateVulkanResult(err));
-        }
-
-        LongBuffer pSwapchainImages = memAllocLong(imageCount);
-        err = vkGetSwapchainImagesKHR(device, swapChain, pImageCount, pSwapchainImages);
-        if (err != VK_SUCCESS) {
-            throw new AssertionError("Failed to get swapchain images: " + translateVulkanResult(err));
-        }
-        memFree(pImageCount);
-
-        long[] images = new long[imageCount];
-        long[] imageViews = new long[imageCount];
-        LongBuffer pBufferView = memAllocLong(1);
-        VkImageViewCreateInfo colorAttachmentView = VkImageViewCreateInfo.calloc()
-                .sType(VK_STRUCTURE_TYPE_IMAGE_VIEW_CREATE_INFO)
-                .pNext(NULL)
-                .format(colorFormat)
-                .viewType(VK_IMAGE_VIEW_TYPE_2D)
-                .flags(VK_FLAGS_NONE);
-        colorAttachmentView.components()
-                .r(VK_COMPONENT_SWIZZLE_R)
-                .g(VK_COMPONENT_SWIZZLE_G)
-                .b(VK_COMPONENT_SWIZZLE_B)
-                .a(VK_COMPONENT_SWIZZLE_A);
-        colorAttachmentView.subresourceRange()
-                .aspectMask(VK_IMAGE_ASPECT_COLOR_BIT)
-                .baseMipLevel(0)
-                .levelCount(1)
-                .baseArrayLayer(0)
-                .layerCount(1);
-        for (int i = 0; i < imageCount; i++) {
-            images[i] = pSwapchainImages.get(i);
-            // Bring the image from an UNDEFINED state to the VK_ACCESS_COLOR_ATTACHMENT_WRITE_BIT state
-            imageBarrier(commandBuffer, images[i], VK_IMAGE_ASPECT_COLOR_BIT,
-                    VK_IMAGE_LAYOUT_UNDEFINED, 0,
-                    VK_IMAGE_LAYOUT_COLOR_ATTACHMENT_OPTIMAL, VK_ACCESS_COLOR_ATTACHMENT_WRITE_BIT);
-            colorAttachmentView.image(images[i]);
-            err = vkCreateImageView(device, colorAttachmentView, null, pBufferView);
-            imageViews[i] = pBufferView.get(0);
-            if (err != VK_SUCCESS) {
-                throw new AssertionError("Failed to create image view: " + translateVulkanResult(err));
-            }
-        }
-        colorAttachmentView.free();
-        memFree(pBufferView);
-        memFree(pSwapchainImages);
-
-        Swapchain ret = new Swapchain();
-        ret.images = images;
-        ret.imageViews = imageViews;
-        ret.swapchainHandle = swapChain;
-        return ret;
-    }
-
     private static long createClearRenderPass(VkDevice device, int colorFormat) {
         VkAttachmentDescription.Buffer attachments = VkAttachmentDescription.calloc(1)
                 .format(colorFormat)
@@ -563,8 +259,8 @@ public class ClearScreenDemo {
                 .storeOp(VK_ATTACHMENT_STORE_OP_STORE)
                 .stencilLoadOp(VK_ATTACHMENT_LOAD_OP_DONT_CARE)
                 .stencilStoreOp(VK_ATTACHMENT_STORE_OP_DONT_CARE)
-                .initialLayout(VK_IMAGE_LAYOUT_COLOR_ATTACHMENT_OPTIMAL)
-                .finalLayout(VK_IMAGE_LAYOUT_COLOR_ATTACHMENT_OPTIMAL);
+                .initialLayout(VK_IMAGE_LAYOUT_UNDEFINED)
+                .finalLayout(VK_IMAGE_LAYOUT_PRESENT_SRC_KHR);
 
         VkAttachmentReference.Buffer colorReference = VkAttachmentReference.calloc(1)
                 .attachment(0)
@@ -601,7 +297,7 @@ public class ClearScreenDemo {
         return renderPass;
     }
 
-    private static long[] createFramebuffers(VkDevice device, Swapchain swapchain, long renderPass, int width, int height) {
+    private static long[] createFramebuffers(VkDevice device, VKSwapchain swapchain, long renderPass, int width, int height) {
         LongBuffer attachments = memAllocLong(1);
         VkFramebufferCreateInfo fci = VkFramebufferCreateInfo.calloc()
                 .sType(VK_STRUCTURE_TYPE_FRAMEBUFFER_CREATE_INFO)
@@ -613,10 +309,10 @@ public class ClearScreenDemo {
                 .pNext(NULL)
                 .renderPass(renderPass);
         // Create a framebuffer for each swapchain image
-        long[] framebuffers = new long[swapchain.images.length];
+        long[] framebuffers = new long[swapchain.getImageCount()];
         LongBuffer pFramebuffer = memAllocLong(1);
-        for (int i = 0; i < swapchain.images.length; i++) {
-            attachments.put(0, swapchain.imageViews[i]);
+        for (int i = 0; i < swapchain.getImageCount(); i++) {
+            attachments.put(0, swapchain.getImageView(i));
             int err = vkCreateFramebuffer(device, fci, null, pFramebuffer);
             long framebuffer = pFramebuffer.get(0);
             if (err != VK_SUCCESS) {
@@ -630,23 +326,6 @@ public class ClearScreenDemo {
         return framebuffers;
     }
 
-    private static void submitCommandBuffer(VkQueue queue, VkCommandBuffer commandBuffer) {
-        if (commandBuffer == null || commandBuffer.address() == NULL)
-            return;
-        VkSubmitInfo submitInfo = VkSubmitInfo.calloc()
-                .sType(VK_STRUCTURE_TYPE_SUBMIT_INFO);
-        PointerBuffer pCommandBuffers = memAllocPointer(1)
-                .put(commandBuffer)
-                .flip();
-        submitInfo.pCommandBuffers(pCommandBuffers);
-        int err = vkQueueSubmit(queue, submitInfo, VK_NULL_HANDLE);
-        memFree(pCommandBuffers);
-        submitInfo.free();
-        if (err != VK_SUCCESS) {
-            throw new AssertionError("Failed to submit command buffer: " + translateVulkanResult(err));
-        }
-    }
-
     private static VkCommandBuffer[] createRenderCommandBuffers(VkDevice device, long commandPool, long[] framebuffers, long renderPass, int width, int height) {
         // Create the render command buffers (one command buffer per framebuffer image)
         VkCommandBufferAllocateInfo cmdBufAllocateInfo = VkCommandBufferAllocateInfo.calloc()
@@ -726,19 +405,6 @@ public class ClearScreenDemo {
 
             vkCmdEndRenderPass(renderCommandBuffers[i]);
 
-            // Add a present memory barrier to the end of the command buffer
-            // This will transform the frame buffer color attachment to a
-            // new layout for presenting it to the windowing system integration 
-            VkImageMemoryBarrier.Buffer prePresentBarrier = createPrePresentBarrier(swapchain.images[i]);
-            vkCmdPipelineBarrier(renderCommandBuffers[i],
-                VK_PIPELINE_STAGE_COLOR_ATTACHMENT_OUTPUT_BIT,
-                VK_PIPELINE_STAGE_TOP_OF_PIPE_BIT,
-                VK_FLAGS_NONE,
-                null, // No memory barriers
-                null, // No buffer memory barriers
-                prePresentBarrier); // One image memory barrier
-            prePresentBarrier.free();
-
             err = vkEndCommandBuffer(renderCommandBuffers[i]);
             if (err != VK_SUCCESS) {
                 throw new AssertionError("Failed to begin render command buffer: " + translateVulkanResult(err));
@@ -750,80 +416,9 @@ public class ClearScreenDemo {
         return renderCommandBuffers;
     }
 
-    private static VkImageMemoryBarrier.Buffer createPrePresentBarrier(long presentImage) {
-        VkImageMemoryBarrier.Buffer imageMemoryBarrier = VkImageMemoryBarrier.calloc(1)
-                .sType(VK_STRUCTURE_TYPE_IMAGE_MEMORY_BARRIER)
-                .pNext(NULL)
-                .srcAccessMask(VK_ACCESS_COLOR_ATTACHMENT_WRITE_BIT)
-                .dstAccessMask(0)
-                .oldLayout(VK_IMAGE_LAYOUT_COLOR_ATTACHMENT_OPTIMAL)
-                .newLayout(VK_IMAGE_LAYOUT_PRESENT_SRC_KHR)
-                .srcQueueFamilyIndex(VK_QUEUE_FAMILY_IGNORED)
-                .dstQueueFamilyIndex(VK_QUEUE_FAMILY_IGNORED);
-        imageMemoryBarrier.subresourceRange()
-                .aspectMask(VK_IMAGE_ASPECT_COLOR_BIT)
-                .baseMipLevel(0)
-                .levelCount(1)
-                .baseArrayLayer(0)
-                .layerCount(1);
-        imageMemoryBarrier.image(presentImage);
-        return imageMemoryBarrier;
-    }
-
-    private static VkImageMemoryBarrier.Buffer createPostPresentBarrier(long presentImage) {
-        VkImageMemoryBarrier.Buffer imageMemoryBarrier = VkImageMemoryBarrier.calloc(1)
-                .sType(VK_STRUCTURE_TYPE_IMAGE_MEMORY_BARRIER)
-                .pNext(NULL)
-                .srcAccessMask(0)
-                .dstAccessMask(VK_ACCESS_COLOR_ATTACHMENT_WRITE_BIT)
-                .oldLayout(VK_IMAGE_LAYOUT_PRESENT_SRC_KHR)
-                .newLayout(VK_IMAGE_LAYOUT_COLOR_ATTACHMENT_OPTIMAL)
-                .srcQueueFamilyIndex(VK_QUEUE_FAMILY_IGNORED)
-                .dstQueueFamilyIndex(VK_QUEUE_FAMILY_IGNORED);
-        imageMemoryBarrier.subresourceRange()
-                .aspectMask(VK_IMAGE_ASPECT_COLOR_BIT)
-                .baseMipLevel(0)
-                .levelCount(1)
-                .baseArrayLayer(0)
-                .layerCount(1);
-        imageMemoryBarrier.image(presentImage);
-        return imageMemoryBarrier;
-    }
-
-    private static void submitPostPresentBarrier(long image, VkCommandBuffer commandBuffer, VkQueue queue) {
-        VkCommandBufferBeginInfo cmdBufInfo = VkCommandBufferBeginInfo.calloc()
-                .sType(VK_STRUCTURE_TYPE_COMMAND_BUFFER_BEGIN_INFO)
-                .pNext(NULL);
-        int err = vkBeginCommandBuffer(commandBuffer, cmdBufInfo);
-        cmdBufInfo.free();
-        if (err != VK_SUCCESS) {
-            throw new AssertionError("Failed to begin command buffer: " + translateVulkanResult(err));
-        }
-
-        VkImageMemoryBarrier.Buffer postPresentBarrier = createPostPresentBarrier(image);
-        vkCmdPipelineBarrier(
-            commandBuffer,
-            VK_PIPELINE_STAGE_ALL_COMMANDS_BIT,
-            VK_PIPELINE_STAGE_TOP_OF_PIPE_BIT,
-            VK_FLAGS_NONE,
-            null, // No memory barriers,
-            null, // No buffer barriers,
-            postPresentBarrier); // one image barrier
-        postPresentBarrier.free();
-
-        err = vkEndCommandBuffer(commandBuffer);
-        if (err != VK_SUCCESS) {
-            throw new AssertionError("Failed to wait for idle queue: " + translateVulkanResult(err));
-        }
-
-        // Submit the command buffer
-        submitCommandBuffer(queue, commandBuffer);
-    }
-
     /*
      * All resources that must be reallocated on window resize.
      */
-    private static Swapchain swapchain;
     private static long[] framebuffers;
     private static VkCommandBuffer[] renderCommandBuffers;
 
@@ -861,177 +456,68 @@ public class ClearScreenDemo {
         VKData data = new VKData();
         data.instance = instance; // <- set Vulkan instance
         final VKCanvas canvas = new VKCanvas(shell, SWT.NO_BACKGROUND | SWT.NO_REDRAW_RESIZE, data);
-        final long surface = canvas.surface;
+        if (!canvas.getPhysicalDevicePresentationSupport(physicalDevice, queueFamilyIndex)) {
+            throw new AssertionError("Graphics queue cannot present to the canvas");
+        }
 
         // Create static Vulkan resources
-        final ColorFormatAndSpace colorFormatAndSpace = getColorFormatAndSpace(physicalDevice, surface);
-        final long commandPool = createCommandPool(device, queueFamilyIndex);
-        final VkCommandBuffer setupCommandBuffer = createCommandBuffer(device, commandPool);
-        final VkCommandBuffer postPresentCommandBuffer = createCommandBuffer(device, commandPool);
         final VkQueue queue = createDeviceQueue(device, queueFamilyIndex);
-        final long clearRenderPass = createClearRenderPass(device, colorFormatAndSpace.colorFormat);
+        final VKSwapchain swapchain = new VKSwapchain(canvas, physicalDevice, device, queue, 2);
+        final long clearRenderPass = createClearRenderPass(device, swapchain.getFormat());
         final long renderCommandPool = createCommandPool(device, queueFamilyIndex);
 
-        final class SwapchainRecreator {
-            boolean mustRecreate;
-            int width;
-            int height;
-
-            void recreate() {
-                // Begin the setup command buffer (the one we will use for swapchain/framebuffer creation)
-                VkCommandBufferBeginInfo cmdBufInfo = VkCommandBufferBeginInfo.calloc()
-                        .sType(VK_STRUCTURE_TYPE_COMMAND_BUFFER_BEGIN_INFO)
-                        .pNext(NULL);
-                int err = vkBeginCommandBuffer(setupCommandBuffer, cmdBufInfo);
-                cmdBufInfo.free();
-                if (err != VK_SUCCESS) {
-                    throw new AssertionError("Failed to begin setup command buffer: " + translateVulkanResult(err));
-                }
-                long oldChain = swapchain != null ? swapchain.swapchainHandle : VK_NULL_HANDLE;
-                // Create the swapchain (this will also add a memory barrier to initialize the framebuffer images)
-                swapchain = createSwapChain(device, physicalDevice, surface, oldChain, setupCommandBuffer,
-                        width, height, colorFormatAndSpace.colorFormat, colorFormatAndSpace.colorSpace);
-                err = vkEndCommandBuffer(setupCommandBuffer);
-                if (err != VK_SUCCESS) {
-                    throw new AssertionError("Failed to end setup command buffer: " + translateVulkanResult(err));
-                }
-                submitCommandBuffer(queue, setupCommandBuffer);
-                vkQueueWaitIdle(queue);
-
+        // The swapchain waits for all frames in flight before it notifies us, so the old framebuffers can be destroyed right away
+        swapchain.addRecreateListener(new VKSwapchain.RecreateListener() {
+            public void recreated(VKSwapchain swapchain) {
                 if (framebuffers != null) {
                     for (int i = 0; i < framebuffers.length; i++)
                         vkDestroyFramebuffer(device, framebuffers[i], null);
                 }
-                framebuffers = createFramebuffers(device, swapchain, clearRenderPass, width, height);
+                framebuffers = createFramebuffers(device, swapchain, clearRenderPass, swapchain.getWidth(), swapchain.getHeight());
                 // Create render command buffers
                 if (renderCommandBuffers != null) {
                     vkResetCommandPool(device, renderCommandPool, VK_FLAGS_NONE);
                 }
-                renderCommandBuffers = createRenderCommandBuffers(device, renderCommandPool, framebuffers, clearRenderPass, width, height);
-
-                mustRecreate = false;
+                renderCommandBuffers = createRenderCommandBuffers(device, renderCommandPool, framebuffers, clearRenderPass, swapchain.getWidth(),
+                        swapchain.getHeight());
             }
-        }
-        final SwapchainRecreator swapchainRecreator = new SwapchainRecreator();
-        canvas.addControlListener(new ControlAdapter() {
-			public void controlResized(ControlEvent e) {
-				if (canvas.getSize().x <= 0 || canvas.getSize().y <= 0)
-					return;
-				swapchainRecreator.width = canvas.getSize().x;
-				swapchainRecreator.height = canvas.getSize().y;
-				swapchainRecreator.mustRecreate = true;
-			}
-		});
+        });
+        // Tear down the swapchain and the surface while the native window of the canvas still exists
+        canvas.addListener(SWT.Dispose, new Listener() {
+            public void handleEvent(Event event) {
+                swapchain.dispose();
+                vkDestroySurfaceKHR(instance, canvas.surface, null);
+            }
+        });
         int dw = shell.getSize().x - shell.getClientArea().width;
         int dh = shell.getSize().y - shell.getClientArea().height;
         shell.setSize(800 + dw, 600 + dh);
         shell.open();
 
-        // Pre-allocate everything needed in the render loop
-
-        IntBuffer pImageIndex = memAllocInt(1);
-        int currentBuffer = 0;
-        PointerBuffer pCommandBuffers = memAllocPointer(1);
-        LongBuffer pSwapchains = memAllocLong(1);
-        LongBuffer pImageAcquiredSemaphore = memAllocLong(1);
-        LongBuffer pRenderCompleteSemaphore = memAllocLong(1);
-
-        // Info struct to create a semaphore
-        VkSemaphoreCreateInfo semaphoreCreateInfo = VkSemaphoreCreateInfo.calloc()
-                .sType(VK_STRUCTURE_TYPE_SEMAPHORE_CREATE_INFO)
-                .pNext(NULL)
-                .flags(VK_FLAGS_NONE);
-
-        // Info struct to submit a command buffer which will wait on the semaphore
-        IntBuffer pWaitDstStageMask = memAllocInt(1);
-        pWaitDstStageMask.put(0, VK_PIPELINE_STAGE_COLOR_ATTACHMENT_OUTPUT_BIT);
-        VkSubmitInfo submitInfo = VkSubmitInfo.calloc()
-                .sType(VK_STRUCTURE_TYPE_SUBMIT_INFO)
-                .pNext(NULL)
-                .waitSemaphoreCount(pImageAcquiredSemaphore.remaining())
-                .pWaitSemaphores(pImageAcquiredSemaphore)
-                .pWaitDstStageMask(pWaitDstStageMask)
-                .pCommandBuffers(pCommandBuffers)
-                .pSignalSemaphores(pRenderCompleteSemaphore);
-
-        // Info struct to present the current swapchain image to the display
-        VkPresentInfoKHR presentInfo = VkPresentInfoKHR.calloc()
-                .sType(VK_STRUCTURE_TYPE_PRESENT_INFO_KHR)
-                .pNext(NULL)
-                .pWaitSemaphores(pRenderCompleteSemaphore)
-                .swapchainCount(pSwapchains.remaining())
-                .pSwapchains(pSwapchains)
-                .pImageIndices(pImageIndex)
-                .pResults(null);
-
         // The render loop
         while (!shell.isDisposed()) {
-        	int err;
             // Handle window messages. Resize events happen exactly here.
-            // So it is safe to use the new swapchain images and framebuffers afterwards.
+            // The swapchain is recreated on the next acquire() afterwards.
             while (display.readAndDispatch());
             if (display.isDisposed() || shell.isDisposed())
-            	return;
-            if (swapchainRecreator.mustRecreate)
-                swapchainRecreator.recreate();
-
-            // Create a semaphore to wait for the swapchain to acquire the next image
-            err = vkCreateSemaphore(device, semaphoreCreateInfo, null, pImageAcquiredSemaphore);
-            if (err != VK_SUCCESS) {
-                throw new AssertionError("Failed to create image acquired semaphore: " + translateVulkanResult(err));
-            }
-
-            // Create a semaphore to wait for the render to complete, before presenting
-            err = vkCreateSemaphore(device, semaphoreCreateInfo, null, pRenderCompleteSemaphore);
-            if (err != VK_SUCCESS) {
-                throw new AssertionError("Failed to create render complete semaphore: " + translateVulkanResult(err));
-            }
+            	break;
 
             // Get next image from the swap chain (back/front buffer).
-            // This will setup the imageAquiredSemaphore to be signalled when the operation is complete
-            err = vkAcquireNextImageKHR(device, swapchain.swapchainHandle, UINT64_MAX, pImageAcquiredSemaphore.get(0), VK_NULL_HANDLE, pImageIndex);
-            currentBuffer = pImageIndex.get(0);
-            if (err != VK_SUCCESS) {
-                throw new AssertionError("Failed to acquire next swapchain image: " + translateVulkanResult(err));
-            }
-
-            // Select the command buffer for the current framebuffer image/attachment
-            pCommandBuffers.put(0, renderCommandBuffers[currentBuffer]);
-
-            // Submit to the graphics queue
-            err = vkQueueSubmit(queue, submitInfo, VK_NULL_HANDLE);
-            if (err != VK_SUCCESS) {
-                throw new AssertionError("Failed to submit render queue: " + translateVulkanResult(err));
+            // This only waits if the GPU is more than two frames behind.
+            int imageIndex = swapchain.acquire();
+            if (imageIndex == -1) {
+                // Nothing to render into, e.g. because the window is minimized
+                display.sleep();
+                continue;
             }
 
-            // Present the current buffer to the swap chain
-            // This will display the image
-            pSwapchains.put(0, swapchain.swapchainHandle);
-            err = vkQueuePresentKHR(queue, presentInfo);
-            if (err != VK_SUCCESS) {
-                throw new AssertionError("Failed to present the swapchain image: " + translateVulkanResult(err));
-            }
-
-            // Create and submit post present barrier
-            vkQueueWaitIdle(queue);
-
-            // Destroy this semaphore (we will create a new one in the next frame)
-            vkDestroySemaphore(device, pImageAcquiredSemaphore.get(0), null);
-            vkDestroySemaphore(device, pRenderCompleteSemaphore.get(0), null);
-            submitPostPresentBarrier(swapchain.images[currentBuffer], postPresentCommandBuffer, queue);
+            // Submit the command buffer for the acquired image and present it once rendering is complete
+            swapchain.submit(renderCommandBuffers[imageIndex]);
+            swapchain.present();
         }
-        presentInfo.free();
-        memFree(pWaitDstStageMask);
-        submitInfo.free();
-        memFree(pImageAcquiredSemaphore);
-        memFree(pRenderCompleteSemaphore);
-        semaphoreCreateInfo.free();
-        memFree(pSwapchains);
-        memFree(pCommandBuffers);
 
         vkDestroyDebugReportCallbackEXT(instance, debugCallbackHandle, null);
 
-        shell.dispose();
         display.dispose();
 
         // We don't bother disposing of all Vulkan resources.
@@ -0,0 +1,978 @@
+package org.lwjgl.opengl.swt;
+
+import static org.lwjgl.egl.EGL10.*;
+import static org.lwjgl.egl.EGL11.*;
+import static org.lwjgl.egl.EGL12.*;
+import static org.lwjgl.egl.EGL13.*;
+import static org.lwjgl.egl.EGL14.*;
+import static org.lwjgl.egl.EGL15.*;
+import static org.lwjgl.egl.EXTBufferAge.*;
+import static org.lwjgl.egl.EXTCreateContextRobustness.*;
+import static org.lwjgl.egl.EXTDeviceEnumeration.*;
+import static org.lwjgl.egl.EXTPixelFormatFloat.*;
+import static org.lwjgl.egl.EXTPlatformBase.*;
+import static org.lwjgl.egl.EXTPlatformDevice.*;
+import static org.lwjgl.egl.EXTSwapBuffersWithDamage.*;
+import static org.lwjgl.egl.KHRContextFlushControl.*;
+import static org.lwjgl.egl.KHRCreateContext.*;
+import static org.lwjgl.egl.KHRCreateContextNoError.*;
+import static org.lwjgl.egl.KHRGLColorspace.*;
+import static org.lwjgl.egl.KHRPlatformWayland.*;
+import static org.lwjgl.egl.KHRPlatformX11.*;
+import static org.lwjgl.egl.KHRSwapBuffersWithDamage.*;
+import static org.lwjgl.system.MemoryStack.*;
+import static org.lwjgl.system.MemoryUtil.*;
+
+import java.nio.IntBuffer;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.SWTException;
+import org.eclipse.swt.internal.gtk.GDK;
+import org.eclipse.swt.internal.gtk.GTK;
+import org.eclipse.swt.internal.gtk.GdkWindowAttr;
+import org.eclipse.swt.internal.gtk.OS;
+import org.eclipse.swt.widgets.Listener;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.egl.EGL;
+import org.lwjgl.egl.EGLCapabilities;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL14;
+import org.lwjgl.opengl.GL21;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.swt.GLData.API;
+import org.lwjgl.opengl.swt.GLData.Profile;
+import org.lwjgl.opengl.swt.GLData.ReleaseBehavior;
+import org.lwjgl.system.JNI;
+import org.lwjgl.system.Library;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.SharedLibrary;
+
+/**
+ * Linux-specific implementation of methods for GLCanvas using EGL instead of GLX, chosen with {@link GLData#contextCreationAPI}.
+ * <p>
+ * On X11 the drawable is a child window of the canvas, like with GLX. On Wayland, where GDK child windows have no surface of their own, it is a
+ * subsurface of the toplevel window which is kept at the position of the canvas.
+ * <p>
+ * All canvases use the EGL display of the GDK display. EGL is thread-safe, so unlike with GLX, render threads need no display connection of their
+ * own, and contexts can share objects with each other regardless of {@link GLData#renderThread}.
+ * <p>
+ * {@link GLOffscreenCanvas} contexts are headless instead: they are created on a display of the first EGL device or of Mesa's surfaceless platform,
+ * without a surface, and render into a framebuffer object.
+ */
+class PlatformLinuxEGLGLCanvas extends AbstractPlatformGLCanvas {
+
+	/**
+	 * The GdkWindowType of Wayland subsurfaces. SWT's GDK class lacks it.
+	 */
+	private static final int GDK_WINDOW_SUBSURFACE = 6;
+
+	/**
+	 * The platform of EGL_MESA_platform_surfaceless, which LWJGL does not bind.
+	 */
+	private static final int EGL_PLATFORM_SURFACELESS_MESA = 0x31DD;
+
+	@Override
+	public PlatformGLCanvas select(GLData data) {
+		return this;
+	}
+
+	@Override
+	public long create(GLCanvas canvas, GLData data, GLData effective) {
+
+		// Validate context attributes
+		validateAttributes(data);
+
+		// make sure our canvas has resources assigned
+		GTK.gtk_widget_realize(canvas.handle);
+		long window = GTK.gtk_widget_get_window(canvas.handle);
+
+		// everything which can be rejected is checked before creating any resources
+		Display display;
+		IntBuffer contextAttribs = BufferUtils.createIntBuffer(64);
+		long share;
+		try {
+			display = display();
+			validateEGLAttributes(data);
+			validateSurfaceAttributes(data, display.caps);
+			populateContextAttribs(data, contextAttribs, display.caps);
+			share = shareContext(data);
+		} catch (SWTException e) {
+			canvas.dispose();
+			throw e;
+		}
+		long eglDisplay = display.eglDisplay;
+
+		// ask for a matching config
+		IntBuffer attribList = BufferUtils.createIntBuffer(64);
+		canvas.fbConfig = chooseConfig(display, data, EGL_WINDOW_BIT, attribList, effective);
+		if (canvas.fbConfig == 0) {
+			canvas.dispose();
+			throw new SWTException("Unable to find matching EGL config");
+		}
+
+		createWindowSurface(canvas, display, window, data, effective);
+
+		// create the context for the client API, which is selected per thread
+		eglBindAPI(clientAPI(data.api));
+		long context = eglCreateContext(eglDisplay, canvas.fbConfig, share, contextAttribs);
+		if (context == EGL_NO_CONTEXT) {
+			int error = eglGetError();
+			deleteContext(canvas, 0);
+			canvas.dispose();
+			throw new SWTException("Unable to create context: 0x" + Integer.toHexString(error));
+		}
+		if (data.swapInterval != null && !initSwapInterval(canvas, context, data.swapInterval.intValue())) {
+			deleteContext(canvas, context);
+			canvas.dispose();
+			throw new SWTException("Swap interval " + data.swapInterval + " requested but EGL does not support it");
+		}
+
+		addListeners(canvas, context);
+		return context;
+	}
+
+	/**
+	 * Create the native window of the canvas for its config and the EGL window surface for it, disposing the canvas if that fails.
+	 */
+	private void createWindowSurface(GLCanvas canvas, Display display, long window, GLData data, GLData effective) {
+		long eglDisplay = display.eglDisplay;
+		long nativeWindow;
+		if (display.wayland) {
+			createSubsurface(canvas);
+			nativeWindow = canvas.wlEglWindow;
+		} else {
+			PlatformLinuxGLCanvas.createChildWindow(canvas, window, configAttrib(eglDisplay, canvas.fbConfig, EGL_NATIVE_VISUAL_ID, BufferUtils.createIntBuffer(1)));
+			nativeWindow = canvas.xWindow;
+		}
+		IntBuffer attribList = BufferUtils.createIntBuffer(8);
+		populateSurfaceAttribs(data, attribList);
+		canvas.eglSurface = eglCreateWindowSurface(eglDisplay, canvas.fbConfig, nativeWindow, attribList);
+		if (canvas.eglSurface == EGL_NO_SURFACE) {
+			int error = eglGetError();
+			deleteContext(canvas, 0);
+			canvas.dispose();
+			throw new SWTException("Unable to create EGL window surface: 0x" + Integer.toHexString(error));
+		}
+		attribList.put(0, 0);
+		eglQuerySurface(eglDisplay, canvas.eglSurface, EGL_RENDER_BUFFER, attribList);
+		effective.doubleBuffer = attribList.get(0) == EGL_BACK_BUFFER;
+	}
+
+	@Override
+	public long share(GLCanvas canvas, GLCanvas source, GLData data, GLData effective) {
+		GTK.gtk_widget_realize(canvas.handle);
+		long window = GTK.gtk_widget_get_window(canvas.handle);
+
+		// the context can only be made current with surfaces of a compatible config
+		Display display = display();
+		canvas.fbConfig = source.fbConfig;
+		populateEffectiveAttribs(display, canvas.fbConfig, source.effective, effective);
+		createWindowSurface(canvas, display, window, source.effective, effective);
+		canvas.joinContext(source);
+		effective.contextSource = source;
+		if (data.swapInterval != null && !initSwapInterval(canvas, source.context, data.swapInterval.intValue())) {
+			deleteContext(canvas, source.context);
+			canvas.dispose();
+			throw new SWTException("Swap interval " + data.swapInterval + " requested but EGL does not support it");
+		}
+		addListeners(canvas, source.context);
+		return source.context;
+	}
+
+	/**
+	 * Create the subsurface of the toplevel window which becomes the drawable of the canvas on Wayland.
+	 */
+	private void createSubsurface(GLCanvas canvas) {
+		Wayland wayland = wayland();
+		long toplevel = GTK.gtk_widget_get_window(GTK.gtk_widget_get_toplevel(canvas.handle));
+
+		GdkWindowAttr winAttrs = new GdkWindowAttr();
+		winAttrs.width = 1;
+		winAttrs.height = 1;
+		winAttrs.event_mask = PlatformLinuxGLCanvas.EVENT_MASK;
+		winAttrs.window_type = GDK_WINDOW_SUBSURFACE;
+
+		// subsurfaces are created like toplevels and attached to their parent surface by being transient for it
+		canvas.glWindow = GDK.gdk_window_new(0, winAttrs, 0);
+		GDK.gdk_window_set_user_data(canvas.glWindow, canvas.handle);
+		JNI.invokePPV(canvas.glWindow, toplevel, wayland.gdk_window_set_transient_for);
+		GDK.gdk_window_show(canvas.glWindow);
+
+		long surface = JNI.invokePP(canvas.glWindow, wayland.gdk_wayland_window_get_wl_surface);
+		canvas.wlEglWindow = JNI.invokePP(surface, 1, 1, wayland.wl_egl_window_create);
+	}
+
+	/**
+	 * Set up SWT event listeners to handle disposal and paint. Resizes are applied by the canvas according to its resize policy, see
+	 * {@link #resize(GLCanvas, int, int, int, int)}.
+	 */
+	private void addListeners(GLCanvas canvas, long context) {
+		Listener listener = event -> {
+			switch (event.type) {
+			case SWT.Paint:
+				if (canvas.renderThread != null)
+					canvas.renderThread.post(SWT.Paint, 0, 0);
+				break;
+			case SWT.Move:
+				// a subsurface is positioned relative to the toplevel, so it has to follow the canvas within its parent
+				moveSubsurface(canvas, 0, 0);
+				break;
+			case SWT.Dispose:
+				// the render thread must let go of the context and the surface before we destroy them
+				canvas.beforeDeleteContext();
+				deleteContext(canvas, context);
+				break;
+			}
+		};
+		canvas.addListener(SWT.Paint, listener);
+		if (canvas.wlEglWindow != 0) {
+			canvas.addListener(SWT.Move, listener);
+			// a subsurface is no child of the canvas window, so it has to follow the visibility of the canvas, which is derived from Show, Hide,
+			// Iconify and Deiconify
+			canvas.addVisibilityListener((c, visibility) -> {
+				if (visibility == GLCanvas.Visibility.VISIBLE)
+					GDK.gdk_window_show(canvas.glWindow);
+				else
+					GDK.gdk_window_hide(canvas.glWindow);
+			});
+		}
+		canvas.addListener(SWT.Dispose, listener);
+	}
+
+	@Override
+	public void resize(GLCanvas canvas, int x, int y, int width, int height) {
+		if (canvas.wlEglWindow == 0) {
+			// the child window is the X11 drawable, so this reallocates its buffers
+			GDK.gdk_window_move_resize(canvas.glWindow, x, y, width, height);
+			return;
+		}
+		// the EGL window takes the new size with the next swap
+		JNI.invokePV(canvas.wlEglWindow, width, height, 0, 0, wayland().wl_egl_window_resize);
+		GDK.gdk_window_resize(canvas.glWindow, Math.max(width, 1), Math.max(height, 1));
+		moveSubsurface(canvas, x, y);
+	}
+
+	private void moveSubsurface(GLCanvas canvas, int x, int y) {
+		int[] dx = new int[1], dy = new int[1];
+		GTK.gtk_widget_translate_coordinates(canvas.handle, GTK.gtk_widget_get_toplevel(canvas.handle), x, y, dx, dy);
+		GDK.gdk_window_move(canvas.glWindow, dx[0], dy[0]);
+	}
+
+	@Override
+	public boolean drawableFollowsWidget(GLCanvas canvas) {
+		// both the X11 child window and the Wayland EGL window keep their size until resize() is called
+		return false;
+	}
+
+	@Override
+	public boolean isViewable(GLCanvas canvas) {
+		boolean mapped = GTK.gtk_widget_get_mapped(canvas.handle);
+		// the subsurface follows the visibility derived from this, see addListeners
+		if (canvas.wlEglWindow != 0)
+			return mapped;
+		return mapped && (GDK.gdk_window_get_state(canvas.glWindow) & PlatformLinuxGLCanvas.GDK_WINDOW_STATE_WITHDRAWN) == 0;
+	}
+
+	@Override
+	public long create(GLOffscreenCanvas canvas, GLData data, GLData effective) {
+
+		// Validate context attributes
+		validateAttributes(data);
+		validateEGLAttributes(data);
+		if (data.shareContext != null) {
+			throw new SWTException("Headless contexts cannot share objects with canvases");
+		}
+		if (data.api == API.GLES && data.majorVersion == 1) {
+			throw new SWTException("Headless contexts render into framebuffer objects, which OpenGL ES 1 lacks");
+		}
+		Display display = headless();
+		if (!display.caps.EGL_KHR_surfaceless_context) {
+			throw new SWTException("Headless context requested but EGL_KHR_surfaceless_context is unavailable");
+		}
+		IntBuffer attribList = BufferUtils.createIntBuffer(64);
+		populateContextAttribs(data, attribList, display.caps);
+
+		// there is no surface, so the config only selects the client API and the framebuffer object provides the buffers
+		IntBuffer configAttribs = BufferUtils.createIntBuffer(5);
+		configAttribs.put(EGL_SURFACE_TYPE).put(0);
+		configAttribs.put(EGL_RENDERABLE_TYPE).put(renderableType(data));
+		configAttribs.put(EGL_NONE);
+		configAttribs.flip();
+		canvas.fbConfig = firstConfig(display.eglDisplay, configAttribs);
+		if (canvas.fbConfig == 0) {
+			throw new SWTException("Unable to find matching EGL config");
+		}
+
+		eglBindAPI(clientAPI(data.api));
+		long context = eglCreateContext(display.eglDisplay, canvas.fbConfig, EGL_NO_CONTEXT, attribList);
+		if (context == EGL_NO_CONTEXT) {
+			int error = eglGetError();
+			canvas.fbConfig = 0;
+			throw new SWTException("Unable to create context: 0x" + Integer.toHexString(error));
+		}
+		populateFramebufferEffectiveAttribs(data, effective);
+		if (!createFramebuffer(canvas, context, effective)) {
+			deleteContext(canvas, context);
+			throw new SWTException("Unable to create framebuffer object for headless context");
+		}
+		return context;
+	}
+
+	/**
+	 * Report the formats of the renderbuffers {@link #createFramebuffer(GLOffscreenCanvas, long, GLData)} creates for <code>data</code> in
+	 * <code>effective</code>.
+	 */
+	private void populateFramebufferEffectiveAttribs(GLData data, GLData effective) {
+		int colorSize = data.pixelFormatFloat ? 16 : 8;
+		effective.redSize = colorSize;
+		effective.greenSize = colorSize;
+		effective.blueSize = colorSize;
+		effective.alphaSize = data.alphaSize > 0 ? colorSize : 0;
+		effective.depthSize = data.depthSize > 0 || data.stencilSize > 0 ? 24 : 0;
+		effective.stencilSize = data.stencilSize > 0 ? 8 : 0;
+		effective.doubleBuffer = false;
+		effective.sampleBuffers = data.samples > 0 ? 1 : 0;
+		effective.samples = data.samples;
+		effective.pixelFormatFloat = data.pixelFormatFloat;
+		effective.sRGB = data.sRGB && !data.pixelFormatFloat;
+		populateContextEffectiveAttribs(data, effective);
+	}
+
+	/**
+	 * Create the framebuffer object of a headless context with renderbuffers in the formats reported in <code>effective</code>, and leave it bound.
+	 *
+	 * @return whether the framebuffer object is complete
+	 */
+	private boolean createFramebuffer(GLOffscreenCanvas canvas, long context, GLData effective) {
+		Framebuffers fb = framebuffers();
+		if (fb == null)
+			return false;
+		long eglDisplay = headless.eglDisplay;
+		long previousDisplay = eglGetCurrentDisplay();
+		long previousDraw = eglGetCurrentSurface(EGL_DRAW);
+		long previousRead = eglGetCurrentSurface(EGL_READ);
+		long previousContext = eglGetCurrentContext();
+		eglMakeCurrent(eglDisplay, EGL_NO_SURFACE, EGL_NO_SURFACE, context);
+		try (MemoryStack stack = stackPush()) {
+			IntBuffer names = stack.mallocInt(2);
+			JNI.invokePV(1, memAddress(names), fb.glGenFramebuffers);
+			canvas.framebuffer = names.get(0);
+			JNI.invokeV(GL30.GL_FRAMEBUFFER, canvas.framebuffer, fb.glBindFramebuffer);
+
+			// the renderbuffers belong to the context alone and are deleted together with it
+			JNI.invokePV(2, memAddress(names), fb.glGenRenderbuffers);
+			int colorFormat = effective.pixelFormatFloat ? GL30.GL_RGBA16F
+					: effective.sRGB ? GL21.GL_SRGB8_ALPHA8 : effective.alphaSize > 0 ? GL11.GL_RGBA8 : GL11.GL_RGB8;
+			attachRenderbuffer(fb, canvas, effective.samples, names.get(0), colorFormat, GL30.GL_COLOR_ATTACHMENT0);
+			if (effective.stencilSize > 0) {
+				attachRenderbuffer(fb, canvas, effective.samples, names.get(1), GL30.GL_DEPTH24_STENCIL8, GL30.GL_DEPTH_ATTACHMENT);
+				JNI.invokeV(GL30.GL_FRAMEBUFFER, GL30.GL_STENCIL_ATTACHMENT, GL30.GL_RENDERBUFFER, names.get(1), fb.glFramebufferRenderbuffer);
+			} else if (effective.depthSize > 0) {
+				attachRenderbuffer(fb, canvas, effective.samples, names.get(1), GL14.GL_DEPTH_COMPONENT24, GL30.GL_DEPTH_ATTACHMENT);
+			}
+			return JNI.invokeI(GL30.GL_FRAMEBUFFER, fb.glCheckFramebufferStatus) == GL30.GL_FRAMEBUFFER_COMPLETE;
+		} finally {
+			if (previousContext != EGL_NO_CONTEXT)
+				eglMakeCurrent(previousDisplay, previousDraw, previousRead, previousContext);
+			else
+				eglMakeCurrent(eglDisplay, EGL_NO_SURFACE, EGL_NO_SURFACE, EGL_NO_CONTEXT);
+		}
+	}
+
+	private void attachRenderbuffer(Framebuffers fb, GLOffscreenCanvas canvas, int samples, int renderbuffer, int format, int attachment) {
+		JNI.invokeV(GL30.GL_RENDERBUFFER, renderbuffer, fb.glBindRenderbuffer);
+		if (samples > 0)
+			JNI.invokeV(GL30.GL_RENDERBUFFER, samples, format, canvas.width, canvas.height, fb.glRenderbufferStorageMultisample);
+		else
+			JNI.invokeV(GL30.GL_RENDERBUFFER, format, canvas.width, canvas.height, fb.glRenderbufferStorage);
+		JNI.invokeV(GL30.GL_FRAMEBUFFER, attachment, GL30.GL_RENDERBUFFER, renderbuffer, fb.glFramebufferRenderbuffer);
+	}
+
+	@Override
+	public boolean makeCurrent(GLOffscreenCanvas canvas, long context) {
+		eglBindAPI(clientAPI(canvas.effective.api));
+		return eglMakeCurrent(headless.eglDisplay, EGL_NO_SURFACE, EGL_NO_SURFACE, context);
+	}
+
+	@Override
+	public boolean releaseCurrent(GLOffscreenCanvas canvas) {
+		return eglMakeCurrent(headless.eglDisplay, EGL_NO_SURFACE, EGL_NO_SURFACE, EGL_NO_CONTEXT);
+	}
+
+	@Override
+	public boolean deleteContext(GLOffscreenCanvas canvas, long context) {
+		long eglDisplay = headless.eglDisplay;
+		if (context != 0) {
+			if (eglGetCurrentContext() == context) {
+				eglMakeCurrent(eglDisplay, EGL_NO_SURFACE, EGL_NO_SURFACE, EGL_NO_CONTEXT);
+			}
+			eglDestroyContext(eglDisplay, context);
+		}
+		canvas.framebuffer = 0;
+		canvas.fbConfig = 0;
+		return true;
+	}
+
+	@Override
+	public boolean swapBuffers(GLOffscreenCanvas canvas) {
+		// a framebuffer object has no back buffer
+		return true;
+	}
+
+	/**
+	 * Check the attributes EGL has no equivalent for, or only with extensions.
+	 */
+	private void validateEGLAttributes(GLData data) {
+		if (data.stereo) {
+			throw new SWTException("Stereo rendering requested but EGL does not support it");
+		}
+		if (data.accumRedSize > 0 || data.accumGreenSize > 0 || data.accumBlueSize > 0 || data.accumAlphaSize > 0) {
+			throw new SWTException("Accumulation buffer requested but EGL does not support it");
+		}
+		if (data.colorSamplesNV > 0) {
+			throw new SWTException("Color samples requested but EGL does not support them");
+		}
+	}
+
+	/**
+	 * Check the attributes of window surfaces which need extensions.
+	 */
+	private void validateSurfaceAttributes(GLData data, EGLCapabilities caps) {
+		if (data.sRGB && !caps.EGL15 && !caps.EGL_KHR_gl_colorspace) {
+			throw new SWTException("sRGB framebuffer requested but neither EGL 1.5 nor EGL_KHR_gl_colorspace is available");
+		}
+		if (data.pixelFormatFloat && !caps.EGL_EXT_pixel_format_float) {
+			throw new SWTException("Floating point pixel format requested but EGL_EXT_pixel_format_float is unavailable");
+		}
+	}
+
+	private long shareContext(GLData data) {
+		if (data.shareContext == null)
+			return EGL_NO_CONTEXT;
+		if (data.shareContext.platform != this) {
+			throw new SWTException("Objects can only be shared with canvases whose context was created with EGL");
+		}
+		return data.shareContext.context;
+	}
+
+	private static int clientAPI(API api) {
+		return api == API.GLES ? EGL_OPENGL_ES_API : EGL_OPENGL_API;
+	}
+
+	/**
+	 * Choose the best config for <code>data</code> and report its attributes in <code>effective</code>. Like for GLX, the choice is remembered by
+	 * config ID in the {@link GLConfigCache}.
+	 *
+	 * @return the EGLConfig, or <code>0</code> if none matches
+	 */
+	private long chooseConfig(Display display, GLData data, int surfaceType, IntBuffer attribList, GLData effective) {
+		long eglDisplay = display.eglDisplay;
+		String key = GLConfigCache.key(display.driverIdentity + '/' + data.api, surfaceType, data);
+		GLConfigCache.Entry cached = GLConfigCache.get(key);
+		if (cached != null) {
+			attribList.clear();
+			attribList.put(EGL_CONFIG_ID).put(cached.id).put(EGL_NONE).flip();
+			long config = firstConfig(eglDisplay, attribList);
+			if (config != 0) {
+				populateEffectiveAttribs(display, config, data, effective);
+				if (cached.matches(effective))
+					return config;
+			}
+			// the driver changed, so probe again
+			GLConfigCache.remove(key);
+		}
+		attribList.clear();
+		populateConfigAttribs(data, surfaceType, attribList);
+		long config = firstConfig(eglDisplay, attribList);
+		if (config == 0)
+			return 0;
+		populateEffectiveAttribs(display, config, data, effective);
+		// config IDs are only valid for the display they were queried on, which is recreated in every process
+		GLConfigCache.put(key, configAttrib(eglDisplay, config, EGL_CONFIG_ID, BufferUtils.createIntBuffer(1)), effective, false);
+		return config;
+	}
+
+	private long firstConfig(long eglDisplay, IntBuffer attribList) {
+		try (MemoryStack stack = stackPush()) {
+			PointerBuffer config = stack.mallocPointer(1);
+			IntBuffer count = stack.mallocInt(1);
+			if (!eglChooseConfig(eglDisplay, attribList, config, count) || count.get(0) == 0)
+				return 0;
+			return config.get(0);
+		}
+	}
+
+	/**
+	 * Report the attributes of the chosen config in <code>effective</code>.
+	 */
+	private void populateEffectiveAttribs(Display display, long config, GLData data, GLData effective) {
+		long eglDisplay = display.eglDisplay;
+		IntBuffer value = BufferUtils.createIntBuffer(1);
+		effective.redSize = configAttrib(eglDisplay, config, EGL_RED_SIZE, value);
+		effective.greenSize = configAttrib(eglDisplay, config, EGL_GREEN_SIZE, value);
+		effective.blueSize = configAttrib(eglDisplay, config, EGL_BLUE_SIZE, value);
+		effective.alphaSize = configAttrib(eglDisplay, config, EGL_ALPHA_SIZE, value);
+		effective.depthSize = configAttrib(eglDisplay, config, EGL_DEPTH_SIZE, value);
+		effective.stencilSize = configAttrib(eglDisplay, config, EGL_STENCIL_SIZE, value);
+		// EGL surfaces are double-buffered unless a single-buffered one is requested, see populateSurfaceAttribs()
+		effective.doubleBuffer = data.doubleBuffer;
+		effective.sampleBuffers = configAttrib(eglDisplay, config, EGL_SAMPLE_BUFFERS, value);
+		effective.samples = configAttrib(eglDisplay, config, EGL_SAMPLES, value);
+		effective.pixelFormatFloat = display.caps.EGL_EXT_pixel_format_float
+				&& configAttrib(eglDisplay, config, EGL_COLOR_COMPONENT_TYPE_EXT, value) == EGL_COLOR_COMPONENT_TYPE_FLOAT_EXT;
+		effective.sRGB = data.sRGB;
+		populateContextEffectiveAttribs(data, effective);
+	}
+
+	/**
+	 * Report the requested context attributes in <code>effective</code>, since creating the context fails unless it has them.
+	 */
+	private void populateContextEffectiveAttribs(GLData data, GLData effective) {
+		effective.api = data.api;
+		effective.majorVersion = data.majorVersion;
+		effective.minorVersion = data.minorVersion;
+		effective.profile = data.profile;
+		effective.forwardCompatible = data.forwardCompatible;
+		effective.debug = data.debug;
+		effective.robustness = data.robustness;
+		effective.shareContext = data.shareContext;
+		effective.contextCreationAPI = GLData.ContextCreationAPI.EGL;
+	}
+
+	private int configAttrib(long eglDisplay, long config, int attribute, IntBuffer value) {
+		value.put(0, 0);
+		eglGetConfigAttrib(eglDisplay, config, attribute, value);
+		return value.get(0);
+	}
+
+	private void populateConfigAttribs(GLData data, int surfaceType, IntBuffer attribList) {
+		attribList.put(EGL_SURFACE_TYPE).put(surfaceType);
+		attribList.put(EGL_RENDERABLE_TYPE).put(renderableType(data));
+		if (data.redSize > 0) attribList.put(EGL_RED_SIZE).put(data.redSize);
+		if (data.greenSize > 0) attribList.put(EGL_GREEN_SIZE).put(data.greenSize);
+		if (data.blueSize > 0) attribList.put(EGL_BLUE_SIZE).put(data.blueSize);
+		if (data.alphaSize > 0) attribList.put(EGL_ALPHA_SIZE).put(data.alphaSize);
+
+		if (data.depthSize > 0) attribList.put(EGL_DEPTH_SIZE).put(data.depthSize);
+		if (data.stencilSize > 0) attribList.put(EGL_STENCIL_SIZE).put(data.stencilSize);
+
+		if (data.pixelFormatFloat) attribList.put(EGL_COLOR_COMPONENT_TYPE_EXT).put(EGL_COLOR_COMPONENT_TYPE_FLOAT_EXT);
+
+		if (data.samples > 0) {
+			attribList.put(EGL_SAMPLE_BUFFERS).put(1);
+			attribList.put(EGL_SAMPLES).put(data.samples);
+		}
+
+		attribList.put(EGL_NONE);
+		attribList.flip();
+	}
+
+	private static int renderableType(GLData data) {
+		if (data.api == API.GLES)
+			return data.majorVersion == 1 ? EGL_OPENGL_ES_BIT : EGL_OPENGL_ES2_BIT;
+		return EGL_OPENGL_BIT;
+	}
+
+	private void populateSurfaceAttribs(GLData data, IntBuffer attribList) {
+		if (!data.doubleBuffer) attribList.put(EGL_RENDER_BUFFER).put(EGL_SINGLE_BUFFER);
+		if (data.sRGB) attribList.put(EGL_GL_COLORSPACE_KHR).put(EGL_GL_COLORSPACE_SRGB_KHR);
+		attribList.put(EGL_NONE);
+		attribList.flip();
+	}
+
+	private void populateContextAttribs(GLData data, IntBuffer attribList, EGLCapabilities caps) {
+		// EGL 1.5 has the attributes of EGL_KHR_create_context, but as separate booleans instead of flags
+		boolean khr = caps.EGL_KHR_create_context;
+		boolean egl15 = caps.EGL15;
+
+		if (data.api == API.GLES) {
+			// this is the major version attribute of EGL_KHR_create_context, and OpenGL ES 1 would be the default
+			attribList.put(EGL_CONTEXT_CLIENT_VERSION).put(data.majorVersion > 0 ? data.majorVersion : 2);
+			if (data.minorVersion > 0) {
+				requireCreateContext(khr || egl15, "OpenGL ES minor version");
+				attribList.put(EGL_CONTEXT_MINOR_VERSION_KHR).put(data.minorVersion);
+			}
+		} else if (data.majorVersion > 0) {
+			requireCreateContext(khr || egl15, "OpenGL context version");
+			attribList.put(EGL_CONTEXT_MAJOR_VERSION_KHR).put(data.majorVersion);
+			attribList.put(EGL_CONTEXT_MINOR_VERSION_KHR).put(data.minorVersion);
+		}
+
+		if (data.api == API.GL && data.profile != null) {
+			requireCreateContext(khr || egl15, "OpenGL profile");
+			attribList.put(EGL_CONTEXT_OPENGL_PROFILE_MASK_KHR).put(data.profile == Profile.CORE
+					? EGL_CONTEXT_OPENGL_CORE_PROFILE_BIT_KHR : EGL_CONTEXT_OPENGL_COMPATIBILITY_PROFILE_BIT_KHR);
+		}
+
+		// Context Flags
+		int contextFlags = 0;
+		if (data.debug) {
+			requireCreateContext(khr || egl15, "Debug context");
+			if (khr) contextFlags |= EGL_CONTEXT_OPENGL_DEBUG_BIT_KHR;
+			else attribList.put(EGL_CONTEXT_OPENGL_DEBUG).put(EGL_TRUE);
+		}
+		if (data.forwardCompatible) {
+			requireCreateContext(khr || egl15, "Forward-compatible context");
+			if (khr) contextFlags |= EGL_CONTEXT_OPENGL_FORWARD_COMPATIBLE_BIT_KHR;
+			else attribList.put(EGL_CONTEXT_OPENGL_FORWARD_COMPATIBLE).put(EGL_TRUE);
+		}
+		if (data.noErrorContext) {
+			if (!caps.EGL_KHR_create_context_no_error) {
+				throw new SWTException("No error context requested but EGL_KHR_create_context_no_error is unavailable");
+			}
+			attribList.put(EGL_CONTEXT_OPENGL_NO_ERROR_KHR).put(EGL_TRUE);
+		}
+		if (data.robustness) {
+			if (data.contextResetIsolation) {
+				throw new SWTException("Robustness isolation requested but EGL does not support it");
+			}
+			if (data.api == API.GLES && caps.EGL_EXT_create_context_robustness) {
+				attribList.put(EGL_CONTEXT_OPENGL_ROBUST_ACCESS_EXT).put(EGL_TRUE);
+				if (data.loseContextOnReset)
+					attribList.put(EGL_CONTEXT_OPENGL_RESET_NOTIFICATION_STRATEGY_EXT).put(EGL_LOSE_CONTEXT_ON_RESET_EXT);
+			} else {
+				requireCreateContext(khr || egl15, "Context with robust buffer access");
+				if (khr) contextFlags |= EGL_CONTEXT_OPENGL_ROBUST_ACCESS_BIT_KHR;
+				else attribList.put(EGL_CONTEXT_OPENGL_ROBUST_ACCESS).put(EGL_TRUE);
+				// Note: EGL_NO_RESET_NOTIFICATION is default behaviour and need not be specified.
+				if (data.loseContextOnReset)
+					attribList.put(EGL_CONTEXT_OPENGL_RESET_NOTIFICATION_STRATEGY_KHR).put(EGL_LOSE_CONTEXT_ON_RESET_KHR);
+			}
+		}
+		if (contextFlags > 0) attribList.put(EGL_CONTEXT_FLAGS_KHR).put(contextFlags);
+
+		// Release behavior
+		if (data.contextReleaseBehavior != null) {
+			if (!caps.EGL_KHR_context_flush_control) {
+				throw new SWTException("Context release behavior requested but EGL_KHR_context_flush_control is unavailable");
+			}
+			if (data.contextReleaseBehavior == ReleaseBehavior.NONE)
+				attribList.put(EGL_CONTEXT_RELEASE_BEHAVIOR_KHR).put(EGL_CONTEXT_RELEASE_BEHAVIOR_NONE_KHR);
+			else if (data.contextReleaseBehavior == ReleaseBehavior.FLUSH)
+				attribList.put(EGL_CONTEXT_RELEASE_BEHAVIOR_KHR).put(EGL_CONTEXT_RELEASE_BEHAVIOR_FLUSH_KHR);
+		}
+		attribList.put(EGL_NONE);
+		attribList.flip();
+	}
+
+	private static void requireCreateContext(boolean available, String feature) {
+		if (!available) {
+			throw new SWTException(feature + " requested but neither EGL 1.5 nor EGL_KHR_create_context is available");
+		}
+	}
+
+	@Override
+	public boolean isCurrent(long context) {
+		return eglGetCurrentContext() == context;
+	}
+
+	@Override
+	public boolean isCurrent(GLCanvas canvas, long context) {
+		return eglGetCurrentContext() == context && eglGetCurrentSurface(EGL_DRAW) == canvas.eglSurface;
+	}
+
+	@Override
+	public boolean makeCurrent(GLCanvas canvas, long context) {
+		// the client API is per thread, and the render thread may not have selected it yet
+		eglBindAPI(clientAPI(canvas.effective.api));
+		return eglMakeCurrent(display.eglDisplay, canvas.eglSurface, canvas.eglSurface, context);
+	}
+
+	@Override
+	public boolean releaseCurrent(GLCanvas canvas) {
+		return eglMakeCurrent(display.eglDisplay, EGL_NO_SURFACE, EGL_NO_SURFACE, EGL_NO_CONTEXT);
+	}
+
+	@Override
+	public boolean deleteContext(GLCanvas canvas, long context) {
+		long eglDisplay = display.eglDisplay;
+		// other canvases may still render with a context shared through GLData.contextSource
+		boolean lastUser = canvas.leaveContext();
+		if (context != 0) {
+			if (eglGetCurrentContext() == context && (lastUser || eglGetCurrentSurface(EGL_DRAW) == canvas.eglSurface)) {
+				eglMakeCurrent(eglDisplay, EGL_NO_SURFACE, EGL_NO_SURFACE, EGL_NO_CONTEXT);
+			}
+			if (lastUser)
+				eglDestroyContext(eglDisplay, context);
+			canvas.context = 0;
+		}
+		if (canvas.eglSurface != EGL_NO_SURFACE) {
+			eglDestroySurface(eglDisplay, canvas.eglSurface);
+			canvas.eglSurface = EGL_NO_SURFACE;
+		}
+		if (canvas.wlEglWindow != 0) {
+			JNI.invokePV(canvas.wlEglWindow, wayland().wl_egl_window_destroy);
+			canvas.wlEglWindow = 0;
+		}
+		if (canvas.glWindow != 0) {
+			GDK.gdk_window_destroy(canvas.glWindow);
+			canvas.glWindow = 0;
+		}
+		canvas.xWindow = 0;
+		canvas.fbConfig = 0;
+		return true;
+	}
+
+	@Override
+	public boolean swapBuffers(GLCanvas canvas) {
+		return eglSwapBuffers(display.eglDisplay, canvas.eglSurface);
+	}
+
+	@Override
+	public boolean swapBuffers(GLCanvas canvas, int[] damage) {
+		EGLCapabilities caps = display.caps;
+		if (caps.EGL_KHR_swap_buffers_with_damage)
+			return eglSwapBuffersWithDamageKHR(display.eglDisplay, canvas.eglSurface, damage);
+		if (caps.EGL_EXT_swap_buffers_with_damage)
+			return eglSwapBuffersWithDamageEXT(display.eglDisplay, canvas.eglSurface, damage);
+		return swapBuffers(canvas);
+	}
+
+	@Override
+	public int getBufferAge(GLCanvas canvas) {
+		if (!display.caps.EGL_EXT_buffer_age)
+			return 0;
+		try (MemoryStack stack = stackPush()) {
+			IntBuffer age = stack.ints(0);
+			eglQuerySurface(display.eglDisplay, canvas.eglSurface, EGL_BUFFER_AGE_EXT, age);
+			return age.get(0);
+		}
+	}
+
+	@Override
+	public int glGetSwapInterval(GLCanvas canvas) {
+		// EGL cannot query the swap interval, and it starts at 1
+		return canvas.effective.swapInterval != null ? canvas.effective.swapInterval.intValue() : 1;
+	}
+
+	@Override
+	public boolean glSwapInterval(GLCanvas canvas, int interval) {
+		// there is no adaptive vsync in EGL
+		if (interval < 0 || !eglSwapInterval(display.eglDisplay, interval))
+			return false;
+		// EGL silently clamps the interval to the range of the config
+		try (MemoryStack stack = stackPush()) {
+			IntBuffer value = stack.mallocInt(1);
+			int min = configAttrib(display.eglDisplay, canvas.fbConfig, EGL_MIN_SWAP_INTERVAL, value);
+			int max = configAttrib(display.eglDisplay, canvas.fbConfig, EGL_MAX_SWAP_INTERVAL, value);
+			canvas.effective.swapInterval = Integer.valueOf(Math.max(min, Math.min(max, interval)));
+		}
+		return true;
+	}
+
+	/**
+	 * Apply {@link GLData#swapInterval} to a newly created canvas, temporarily making its context current as eglSwapInterval() requires.
+	 *
+	 * @return whether the interval could be set
+	 */
+	private boolean initSwapInterval(GLCanvas canvas, long context, int interval) {
+		long eglDisplay = display.eglDisplay;
+		long previousDisplay = eglGetCurrentDisplay();
+		long previousDraw = eglGetCurrentSurface(EGL_DRAW);
+		long previousRead = eglGetCurrentSurface(EGL_READ);
+		long previousContext = eglGetCurrentContext();
+		eglMakeCurrent(eglDisplay, canvas.eglSurface, canvas.eglSurface, context);
+		try {
+			return glSwapInterval(canvas, interval);
+		} finally {
+			if (previousContext != EGL_NO_CONTEXT)
+				eglMakeCurrent(previousDisplay, previousDraw, previousRead, previousContext);
+			else
+				eglMakeCurrent(eglDisplay, EGL_NO_SURFACE, EGL_NO_SURFACE, EGL_NO_CONTEXT);
+		}
+	}
+
+	@Override
+	public GLCanvas.SwapControl getSwapControl(GLCanvas canvas) {
+		return GLCanvas.SwapControl.SET_ONLY;
+	}
+
+	@Override
+	public boolean delayBeforeSwapNV(GLCanvas canvas, float seconds) {
+		return false;
+	}
+
+	/**
+	 * An initialized EGL display, together with its capabilities.
+	 */
+	private static final class Display {
+		final boolean wayland;
+		final long eglDisplay;
+		final EGLCapabilities caps;
+		final String driverIdentity;
+
+		Display(long eglDisplay, boolean wayland) {
+			if (eglDisplay == EGL_NO_DISPLAY) {
+				throw new SWTException("Unable to get EGL display");
+			}
+			try (MemoryStack stack = stackPush()) {
+				IntBuffer major = stack.mallocInt(1);
+				IntBuffer minor = stack.mallocInt(1);
+				if (!eglInitialize(eglDisplay, major, minor)) {
+					throw new SWTException("Unable to initialize EGL display: 0x" + Integer.toHexString(eglGetError()));
+				}
+				caps = EGL.createDisplayCapabilities(eglDisplay, major.get(0), minor.get(0));
+			}
+			this.eglDisplay = eglDisplay;
+			this.wayland = wayland;
+			driverIdentity = "egl:" + eglQueryString(eglDisplay, EGL_VENDOR) + '/' + eglQueryString(eglDisplay, EGL_VERSION);
+		}
+
+		private static long platformDisplay(int platform, long nativeDisplay) {
+			EGLCapabilities clientCaps = EGL.getCapabilities();
+			if (clientCaps.eglGetPlatformDisplay != 0L)
+				return eglGetPlatformDisplay(platform, nativeDisplay, (PointerBuffer) null);
+			if (clientCaps.eglGetPlatformDisplayEXT != 0L)
+				return eglGetPlatformDisplayEXT(platform, nativeDisplay, (IntBuffer) null);
+			throw new SWTException("Unable to get EGL display: neither EGL 1.5 nor EGL_EXT_platform_base is available");
+		}
+
+		/**
+		 * Returns the display of the GDK display, on X11 or Wayland.
+		 */
+		static Display gdk() {
+			long gdkDisplay = GDK.gdk_display_get_default();
+			if (!OS.isX11()) {
+				long nativeDisplay = JNI.invokePP(gdkDisplay, wayland().gdk_wayland_display_get_wl_display);
+				return new Display(platformDisplay(EGL_PLATFORM_WAYLAND_KHR, nativeDisplay), true);
+			}
+			long nativeDisplay = GDK.gdk_x11_display_get_xdisplay(gdkDisplay);
+			EGLCapabilities clientCaps = EGL.getCapabilities();
+			if (clientCaps.eglGetPlatformDisplay == 0L && clientCaps.eglGetPlatformDisplayEXT == 0L)
+				// EGL 1.4 without platform extensions takes Xlib displays
+				return new Display(eglGetDisplay(nativeDisplay), false);
+			return new Display(platformDisplay(EGL_PLATFORM_X11_KHR, nativeDisplay), false);
+		}
+
+		/**
+		 * Returns a display which needs no window system: the first EGL device, or else Mesa's surfaceless platform.
+		 */
+		static Display headless() {
+			EGLCapabilities clientCaps = EGL.getCapabilities();
+			if (clientCaps.EGL_EXT_platform_device && clientCaps.eglQueryDevicesEXT != 0L) {
+				try (MemoryStack stack = stackPush()) {
+					PointerBuffer device = stack.mallocPointer(1);
+					IntBuffer count = stack.mallocInt(1);
+					if (eglQueryDevicesEXT(device, count) && count.get(0) > 0) {
+						long eglDisplay = platformDisplay(EGL_PLATFORM_DEVICE_EXT, device.get(0));
+						if (eglDisplay != EGL_NO_DISPLAY)
+							return new Display(eglDisplay, false);
+					}
+				}
+			}
+			// LWJGL does not know EGL_MESA_platform_surfaceless, so look for it in the client extensions
+			String extensions = eglQueryString(EGL_NO_DISPLAY, EGL_EXTENSIONS);
+			if (extensions != null && (" " + extensions + " ").contains(" EGL_MESA_platform_surfaceless ")) {
+				return new Display(platformDisplay(EGL_PLATFORM_SURFACELESS_MESA, EGL_DEFAULT_DISPLAY), false);
+			}
+			throw new SWTException("Headless context requested but neither EGL_EXT_platform_device nor EGL_MESA_platform_surfaceless is available");
+		}
+	}
+
+	private static volatile Display display;
+	private static volatile Display headless;
+
+	private static Display display() {
+		Display d = display;
+		if (d == null) {
+			synchronized (PlatformLinuxEGLGLCanvas.class) {
+				d = display;
+				if (d == null)
+					display = d = Display.gdk();
+			}
+		}
+		return d;
+	}
+
+	private static Display headless() {
+		Display d = headless;
+		if (d == null) {
+			synchronized (PlatformLinuxEGLGLCanvas.class) {
+				d = headless;
+				if (d == null)
+					headless = d = Display.headless();
+			}
+		}
+		return d;
+	}
+
+	/**
+	 * The framebuffer object functions for headless contexts, which are needed before the application creates its GL capabilities. They have the
+	 * same names in OpenGL 3.0 and OpenGL ES 2.0.
+	 */
+	private static final class Framebuffers {
+		final long glGenFramebuffers = eglGetProcAddress("glGenFramebuffers");
+		final long glBindFramebuffer = eglGetProcAddress("glBindFramebuffer");
+		final long glGenRenderbuffers = eglGetProcAddress("glGenRenderbuffers");
+		final long glBindRenderbuffer = eglGetProcAddress("glBindRenderbuffer");
+		final long glRenderbufferStorage = eglGetProcAddress("glRenderbufferStorage");
+		final long glRenderbufferStorageMultisample = eglGetProcAddress("glRenderbufferStorageMultisample");
+		final long glFramebufferRenderbuffer = eglGetProcAddress("glFramebufferRenderbuffer");
+		final long glCheckFramebufferStatus = eglGetProcAddress("glCheckFramebufferStatus");
+
+		boolean isComplete() {
+			return glGenFramebuffers != 0L && glBindFramebuffer != 0L && glGenRenderbuffers != 0L && glBindRenderbuffer != 0L
+					&& glRenderbufferStorage != 0L && glRenderbufferStorageMultisample != 0L && glFramebufferRenderbuffer != 0L
+					&& glCheckFramebufferStatus != 0L;
+		}
+	}
+
+	private static volatile Framebuffers framebuffers;
+
+	/**
+	 * Returns the framebuffer object functions, or <code>null</code> if EGL does not provide all of them.
+	 */
+	private static Framebuffers framebuffers() {
+		Framebuffers f = framebuffers;
+		if (f == null)
+			framebuffers = f = new Framebuffers();
+		return f.isComplete() ? f : null;
+	}
+
+	/**
+	 * The Wayland-specific GDK functions and libwayland-egl, which LWJGL does not bind.
+	 */
+	private static final class Wayland {
+		final long gdk_wayland_display_get_wl_display;
+		final long gdk_wayland_window_get_wl_surface;
+		final long gdk_window_set_transient_for;
+		final long wl_egl_window_create;
+		final long wl_egl_window_resize;
+		final long wl_egl_window_destroy;
+
+		Wayland() {
+			// both libraries stay loaded for the lifetime of the process
+			SharedLibrary gdk = Library.loadNative(PlatformLinuxEGLGLCanvas.class, "org.lwjgl", "libgdk-3.so.0");
+			SharedLibrary waylandEGL = Library.loadNative(PlatformLinuxEGLGLCanvas.class, "org.lwjgl", "libwayland-egl.so.1");
+			gdk_wayland_display_get_wl_display = function(gdk, "gdk_wayland_display_get_wl_display");
+			gdk_wayland_window_get_wl_surface = function(gdk, "gdk_wayland_window_get_wl_surface");
+			gdk_window_set_transient_for = function(gdk, "gdk_window_set_transient_for");
+			wl_egl_window_create = function(waylandEGL, "wl_egl_window_create");
+			wl_egl_window_resize = function(waylandEGL, "wl_egl_window_resize");
+			wl_egl_window_destroy = function(waylandEGL, "wl_egl_window_destroy");
+		}
+
+		private static long function(SharedLibrary library, String name) {
+			long address = library.getFunctionAddress(name);
+			if (address == 0L) {
+				throw new SWTException("Unable to find " + name + " in " + library.getName());
+			}
+			return address;
+		}
+	}
+
+	private static volatile Wayland wayland;
+
+	private static Wayland wayland() {
+		Wayland w = wayland;
+		if (w == null) {
+			synchronized (PlatformLinuxEGLGLCanvas.class) {
+				w = wayland;
+				if (w == null)
+					wayland = w = new Wayland();
+			}
+		}
+		return w;
+	}
+}
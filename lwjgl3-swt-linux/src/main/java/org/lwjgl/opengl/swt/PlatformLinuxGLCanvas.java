@@ -1,6 +1,7 @@
 package org.lwjgl.opengl.swt;
 
 import static org.lwjgl.opengl.GLX.*;
+import static org.lwjgl.opengl.GLX11.*;
 import static org.lwjgl.opengl.GLX13.*;
 import static org.lwjgl.opengl.GLXARBContextFlushControl.*;
 import static org.lwjgl.opengl.GLXARBCreateContext.*;
@@ -9,33 +10,43 @@ import static org.lwjgl.opengl.GLXARBCreateContextProfile.*;
 import static org.lwjgl.opengl.GLXARBCreateContextRobustness.*;
 import static org.lwjgl.opengl.GLXARBMultisample.*;
 import static org.lwjgl.opengl.GLXARBRobustnessApplicationIsolation.*;
+import static org.lwjgl.opengl.GLXEXTBufferAge.*;
+import static org.lwjgl.opengl.GLXEXTSwapControl.*;
+import static org.lwjgl.opengl.GLXEXTSwapControlTear.*;
 import static org.lwjgl.opengl.GLXEXTCreateContextES2Profile.*;
 import static org.lwjgl.opengl.GLXEXTFramebufferSRGB.*;
 import static org.lwjgl.opengl.GLXNVDelayBeforeSwap.*;
 import static org.lwjgl.opengl.GLXNVMultisampleCoverage.*;
+import static org.lwjgl.opengl.GLXSGISwapControl.*;
+import static org.lwjgl.opengl.GLXSGIVideoSync.*;
+import static org.lwjgl.system.MemoryStack.*;
+import static org.lwjgl.system.MemoryUtil.*;
+import static org.lwjgl.system.dyncall.DynCall.*;
 
 import java.nio.IntBuffer;
+import java.nio.LongBuffer;
 
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.SWTException;
-import org.eclipse.swt.graphics.Rectangle;
-
-import org.eclipse.swt.internal.DPIUtil;
 import org.eclipse.swt.internal.gtk.GDK;
 import org.eclipse.swt.internal.gtk.GTK;
 import org.eclipse.swt.internal.gtk.GdkWindowAttr;
+import org.eclipse.swt.internal.gtk.OS;
 
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Listener;
 import org.lwjgl.BufferUtils;
 import org.lwjgl.PointerBuffer;
 import org.lwjgl.opengl.GL;
 import org.lwjgl.opengl.GLXCapabilities;
-import org.lwjgl.opengl.GLXEXTSwapControl;
-import org.lwjgl.opengl.GLXSGISwapControl;
 import org.lwjgl.opengl.KHRNoError;
 import org.lwjgl.opengl.swt.GLData.API;
 import org.lwjgl.opengl.swt.GLData.Profile;
 import org.lwjgl.opengl.swt.GLData.ReleaseBehavior;
+import org.lwjgl.system.FunctionProvider;
+import org.lwjgl.system.JNI;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.linux.X11;
 import org.lwjgl.system.linux.XVisualInfo;
 
 /**
@@ -45,47 +56,146 @@ import org.lwjgl.system.linux.XVisualInfo;
  */
 class PlatformLinuxGLCanvas extends AbstractPlatformGLCanvas {
 
+	/**
+	 * GdkWindowState flag of windows which are not mapped. SWT's GDK class lacks it.
+	 */
+	static final int GDK_WINDOW_STATE_WITHDRAWN = 1 << 0;
+
+	/**
+	 * Whether {@link #swapBuffers(GLCanvas, int[])} copies the damaged regions to the front buffer with <code>GLX_MESA_copy_sub_buffer</code> instead of
+	 * swapping. The copy is not synchronized to the vertical retrace, so it is only used when the system property
+	 * <code>org.lwjgl.opengl.swt.copySubBuffer</code> is <code>true</code>.
+	 */
+	private static final boolean COPY_SUB_BUFFER = Boolean.getBoolean("org.lwjgl.opengl.swt.copySubBuffer");
+
+	/**
+	 * The events the window of a canvas delivers to the canvas widget.
+	 */
+	static final int EVENT_MASK = GDK.GDK_KEY_PRESS_MASK | GDK.GDK_KEY_RELEASE_MASK | GDK.GDK_FOCUS_CHANGE_MASK
+			| GDK.GDK_POINTER_MOTION_MASK | GDK.GDK_BUTTON_PRESS_MASK | GDK.GDK_BUTTON_RELEASE_MASK
+			| GDK.GDK_ENTER_NOTIFY_MASK | GDK.GDK_LEAVE_NOTIFY_MASK | GDK.GDK_EXPOSURE_MASK
+			| GDK.GDK_POINTER_MOTION_HINT_MASK;
+
+	private static volatile PlatformLinuxEGLGLCanvas egl;
+
+	@Override
+	public PlatformGLCanvas select(GLData data) {
+		GLData.ContextCreationAPI api = data.contextCreationAPI;
+		if (api == null) {
+			// GLX needs an X server, so GTK running on Wayland implies EGL. GDK can only be asked on a thread running an SWT display.
+			boolean requested = "egl".equalsIgnoreCase(System.getProperty("org.lwjgl.opengl.swt.contextCreationAPI"));
+			boolean wayland = Display.getCurrent() != null && !OS.isX11();
+			api = requested || wayland ? GLData.ContextCreationAPI.EGL : GLData.ContextCreationAPI.NATIVE;
+		}
+		if (api == GLData.ContextCreationAPI.NATIVE)
+			return this;
+		PlatformLinuxEGLGLCanvas platform = egl;
+		if (platform == null) {
+			synchronized (PlatformLinuxGLCanvas.class) {
+				platform = egl;
+				if (platform == null)
+					egl = platform = new PlatformLinuxEGLGLCanvas();
+			}
+		}
+		return platform;
+	}
+
 	@Override
 	public long create(GLCanvas canvas, GLData data, GLData effective) {
 
 		// Validate context attributes
 		validateAttributes(data);
+		long share;
+		try {
+			share = shareContext(data);
+		} catch (SWTException e) {
+			canvas.dispose();
+			throw e;
+		}
 
 		// make sure our canvas has resources assigned
 		GTK.gtk_widget_realize(canvas.handle);
 		
-		// grab handles to our window/display
+		// grab handles to our window/display - they are cached in the canvas, so per-frame calls need no further lookups
 		long window = GTK.gtk_widget_get_window(canvas.handle);
-		long xDisplay = gdk_x11_display_get_xdisplay(window);
+		long xDisplay;
+		if (data.renderThread) {
+			// Xlib is not initialized for concurrent use of GTK's display connection, so a render thread gets its own
+			xDisplay = X11.XOpenDisplay((CharSequence) null);
+			if (xDisplay == 0) {
+				canvas.dispose();
+				throw new SWTException("Unable to open X display connection for render thread");
+			}
+			canvas.ownsXDisplay = true;
+		} else {
+			xDisplay = gdk_x11_display_get_xdisplay(window);
+		}
+		canvas.xDisplay = xDisplay;
 
 		// generate a list of config options for our frame buffer from the supplied data
         IntBuffer attribList = BufferUtils.createIntBuffer(64);
-        populateFBConfigAttribs(data, attribList);
         
         // ask for matching frame buffer configs
-		PointerBuffer fbCfg = glXChooseFBConfig(xDisplay, 0, attribList);
-		if (fbCfg == null || !fbCfg.hasRemaining()) {
+		canvas.fbConfig = chooseFBConfig(xDisplay, data, GLX_WINDOW_BIT, attribList, effective);
+		if (canvas.fbConfig == 0) {
+			deleteContext(canvas, 0);
 			canvas.dispose();
 			throw new SWTException("Unable to find matching FB Config");
 		}
 
+		createGLWindow(canvas, window);
+
+		// context generation time - put we'll use our fbconfig here to get a core compatible context
+		// start by generating our list of attributes
+		attribList.clear();
+		GLXCapabilities caps = GL.getCapabilitiesGLX();
+		populateContextAttribs(data, attribList, caps);
+
+		// create the context... pass our display, fbconfig, attributes and any shared context
+		long context = glXCreateContextAttribsARB(xDisplay, canvas.fbConfig, share, true, attribList);
+		if (context == 0) {
+			deleteContext(canvas, 0);
+			canvas.dispose();
+			throw new SWTException("Unable to create context");
+		}
+		if (data.swapInterval != null && !initSwapInterval(canvas, context, data.swapInterval.intValue())) {
+			deleteContext(canvas, context);
+			canvas.dispose();
+			throw new SWTException("Swap interval " + data.swapInterval + " requested but no GLX swap control extension supports it");
+		}
+
+		addListeners(canvas, context);
+
+		// Done!  Return our context.
+		return context;
+	}
+
+	/**
+	 * Create the child window of the canvas with the visual of its FBConfig.
+	 */
+	private void createGLWindow(GLCanvas canvas, long window) {
 		// convert our fbconfig to a visualinfo so we can apply it to the widget
-		XVisualInfo viz = glXGetVisualFromFBConfig(xDisplay, fbCfg.get(0));
-		
+		XVisualInfo viz = glXGetVisualFromFBConfig(canvas.xDisplay, canvas.fbConfig);
+		int visualid = (int) viz.visualid();
+		X11.nXFree(viz.address());
+		createChildWindow(canvas, window, visualid);
+	}
+
+	/**
+	 * Create the child window of the canvas with the given X visual, which becomes the drawable of the canvas.
+	 */
+	static void createChildWindow(GLCanvas canvas, long window, int visualid) {
 		// grab our default screen for the default display
 		long screen = GDK.gdk_screen_get_default();
 		
 		// ask the screen for a GdkVisual that matches the given info
-		long gdkvisual = GDK.gdk_x11_screen_lookup_visual(screen, (int) viz.visualid());
+		long gdkvisual = GDK.gdk_x11_screen_lookup_visual(screen, visualid);
 
 		// put together attributes for a new window using the visual
 		GdkWindowAttr winAttrs = new GdkWindowAttr();
 		winAttrs.width = 1;
 		winAttrs.height = 1;
-		winAttrs.event_mask = GDK.GDK_KEY_PRESS_MASK | GDK.GDK_KEY_RELEASE_MASK | GDK.GDK_FOCUS_CHANGE_MASK
-				| GDK.GDK_POINTER_MOTION_MASK | GDK.GDK_BUTTON_PRESS_MASK | GDK.GDK_BUTTON_RELEASE_MASK
-				| GDK.GDK_ENTER_NOTIFY_MASK | GDK.GDK_LEAVE_NOTIFY_MASK | GDK.GDK_EXPOSURE_MASK
-				| GDK.GDK_POINTER_MOTION_HINT_MASK;
+		winAttrs.event_mask = EVENT_MASK;
 		winAttrs.window_type = GDK.GDK_WINDOW_CHILD;
 		winAttrs.visual = gdkvisual;
 
@@ -99,39 +209,334 @@ class PlatformLinuxGLCanvas extends AbstractPlatformGLCanvas {
 		// get the X id of the new window and call to show it
 		canvas.xWindow = GDK.gdk_x11_window_get_xid(canvas.glWindow);
 		GDK.gdk_window_show(canvas.glWindow);
+	}
 
-		// context generation time - put we'll use our fbconfig here to get a core compatible context
-		// start by generating our list of attributes
-		attribList.rewind();
-		GLXCapabilities caps = GL.getCapabilitiesGLX();
-		populateContextAttribs(data, attribList, caps);
-
-		// create the context... pass our display, fbconfig, attributes and any shared context
-		long share = data.shareContext != null ? data.shareContext.context : 0;
-		long context = glXCreateContextAttribsARB(xDisplay, fbCfg.get(0), share, true, attribList);
-		if (context == 0) throw new SWTException("Unable to create context");
-
-		// Set up SWT event listeners to handle disposal and resize
+	/**
+	 * Set up SWT event listeners to handle disposal and paint. Resizes are applied by the canvas according to its resize policy, see
+	 * {@link #resize(GLCanvas, int, int, int, int)}.
+	 */
+	private void addListeners(GLCanvas canvas, long context) {
 		Listener listener = event -> {
 			switch (event.type) {
-			case SWT.Resize:
-				Rectangle clientArea = DPIUtil.autoScaleUp(canvas.getClientArea());
-				GDK.gdk_window_move(canvas.glWindow, clientArea.x, clientArea.y);
-				GDK.gdk_window_resize(canvas.glWindow, clientArea.width, clientArea.height);
+			case SWT.Paint:
+				if (canvas.renderThread != null)
+					canvas.renderThread.post(SWT.Paint, 0, 0);
 				break;
 			case SWT.Dispose:
+				// the render thread must let go of the context and the window before we destroy them
+				canvas.beforeDeleteContext();
 				deleteContext(canvas, context);
 				break;
 			}
 		};
-		canvas.addListener(SWT.Resize, listener);
+		canvas.addListener(SWT.Paint, listener);
 		canvas.addListener(SWT.Dispose, listener);
-		
-		// Done!  Return our context.
+	}
+
+	@Override
+	public void resize(GLCanvas canvas, int x, int y, int width, int height) {
+		// the child window is the GLX drawable, so this reallocates its buffers
+		GDK.gdk_window_move_resize(canvas.glWindow, x, y, width, height);
+	}
+
+	@Override
+	public boolean drawableFollowsWidget(GLCanvas canvas) {
+		// the child window keeps its size until resize() is called
+		return false;
+	}
+
+	@Override
+	public boolean isViewable(GLCanvas canvas) {
+		// GTK unmaps the canvas together with hidden ancestors, and our child window may have been hidden on its own
+		return GTK.gtk_widget_get_mapped(canvas.handle)
+				&& (GDK.gdk_window_get_state(canvas.glWindow) & GDK_WINDOW_STATE_WITHDRAWN) == 0;
+	}
+
+	@Override
+	public boolean supportsPooling() {
+		return true;
+	}
+
+	@Override
+	public long create(GLContextPool.PooledContext pooled, GLData data, GLData effective, long shareContext) {
+
+		// Validate context attributes
+		validateAttributes(data);
+		IntBuffer contextAttribs = BufferUtils.createIntBuffer(64);
+		populateContextAttribs(data, contextAttribs, GL.getCapabilitiesGLX());
+
+		// the context may be created on a background thread and is later used on another one, so it gets its own display connection
+		long xDisplay = X11.XOpenDisplay((CharSequence) null);
+		if (xDisplay == 0) {
+			throw new SWTException("Unable to open X display connection");
+		}
+		pooled.xDisplay = xDisplay;
+		pooled.fbConfig = chooseFBConfig(xDisplay, data, GLX_WINDOW_BIT, BufferUtils.createIntBuffer(64), effective);
+		if (pooled.fbConfig == 0) {
+			deleteContext(pooled);
+			throw new SWTException("Unable to find matching FB Config");
+		}
+		pooled.context = glXCreateContextAttribsARB(xDisplay, pooled.fbConfig, shareContext, true, contextAttribs);
+		if (pooled.context == 0) {
+			deleteContext(pooled);
+			throw new SWTException("Unable to create context");
+		}
+		// there is no drawable yet, so the swap interval is applied when the context is attached
+		pooled.swapInterval = data.swapInterval;
+		return pooled.context;
+	}
+
+	@Override
+	public long attach(GLCanvas canvas, GLContextPool.PooledContext pooled) {
+		GTK.gtk_widget_realize(canvas.handle);
+		long window = GTK.gtk_widget_get_window(canvas.handle);
+
+		// the canvas takes over the display connection of the context
+		canvas.xDisplay = pooled.xDisplay;
+		canvas.ownsXDisplay = true;
+		canvas.fbConfig = pooled.fbConfig;
+		createGLWindow(canvas, window);
+		if (pooled.swapInterval != null && !initSwapInterval(canvas, pooled.context, pooled.swapInterval.intValue())) {
+			deleteContext(canvas, pooled.context);
+			canvas.dispose();
+			throw new SWTException("Swap interval " + pooled.swapInterval + " requested but no GLX swap control extension supports it");
+		}
+		addListeners(canvas, pooled.context);
+		return pooled.context;
+	}
+
+	@Override
+	public long share(GLCanvas canvas, GLCanvas source, GLData data, GLData effective) {
+		GTK.gtk_widget_realize(canvas.handle);
+		long window = GTK.gtk_widget_get_window(canvas.handle);
+
+		// the context can only be made current with drawables of its display connection and FBConfig
+		canvas.xDisplay = source.xDisplay;
+		canvas.fbConfig = source.fbConfig;
+		canvas.joinContext(source);
+		createGLWindow(canvas, window);
+		populateEffectiveAttribs(canvas.xDisplay, canvas.fbConfig, source.effective, effective);
+		effective.contextSource = source;
+		if (data.swapInterval != null && !initSwapInterval(canvas, source.context, data.swapInterval.intValue())) {
+			deleteContext(canvas, source.context);
+			canvas.dispose();
+			throw new SWTException("Swap interval " + data.swapInterval + " requested but no GLX swap control extension supports it");
+		}
+		addListeners(canvas, source.context);
+		return source.context;
+	}
+
+	@Override
+	public boolean deleteContext(GLContextPool.PooledContext pooled) {
+		if (pooled.context != 0) {
+			glXDestroyContext(pooled.xDisplay, pooled.context);
+			pooled.context = 0;
+		}
+		if (pooled.xDisplay != 0) {
+			X11.XCloseDisplay(pooled.xDisplay);
+			pooled.xDisplay = 0;
+		}
+		pooled.fbConfig = 0;
+		return true;
+	}
+
+	@Override
+	public long create(GLOffscreenCanvas canvas, GLData data, GLData effective) {
+
+		// Validate context attributes
+		validateAttributes(data);
+		long share = shareContext(data);
+
+		// an offscreen canvas has no widget and may be used from any thread, so it always gets its own display connection
+		long xDisplay = X11.XOpenDisplay((CharSequence) null);
+		if (xDisplay == 0) {
+			throw new SWTException("Unable to open X display connection");
+		}
+		canvas.xDisplay = xDisplay;
+		try {
+			return createPbufferContext(canvas, data, effective, share);
+		} catch (RuntimeException e) {
+			// frees the pbuffer, if any, and closes the display connection
+			deleteContext(canvas, 0);
+			throw e;
+		}
+	}
+
+	/**
+	 * Create the pbuffer of the offscreen canvas and the context on the display connection of the canvas.
+	 */
+	private long createPbufferContext(GLOffscreenCanvas canvas, GLData data, GLData effective, long share) {
+		long xDisplay = canvas.xDisplay;
+
+		// ask for frame buffer configs which can be used for pbuffers
+        IntBuffer attribList = BufferUtils.createIntBuffer(64);
+		canvas.fbConfig = chooseFBConfig(xDisplay, data, GLX_PBUFFER_BIT, attribList, effective);
+		if (canvas.fbConfig == 0) {
+			throw new SWTException("Unable to find matching FB Config");
+		}
+
+		// create the pbuffer - its contents need not be preserved since we never share it with another drawable
+		IntBuffer pbufferAttribs = BufferUtils.createIntBuffer(7);
+		pbufferAttribs.put(GLX_PBUFFER_WIDTH).put(canvas.width);
+		pbufferAttribs.put(GLX_PBUFFER_HEIGHT).put(canvas.height);
+		pbufferAttribs.put(GLX_LARGEST_PBUFFER).put(0);
+		pbufferAttribs.put(0);
+		pbufferAttribs.flip();
+		canvas.drawable = glXCreatePbuffer(xDisplay, canvas.fbConfig, pbufferAttribs);
+		if (canvas.drawable == 0) {
+			throw new SWTException("Unable to create pbuffer");
+		}
+
+		// create the context with the same attributes as for a window
+		attribList.clear();
+		GLXCapabilities caps = GL.getCapabilitiesGLX();
+		populateContextAttribs(data, attribList, caps);
+		long context = glXCreateContextAttribsARB(xDisplay, canvas.fbConfig, share, true, attribList);
+		if (context == 0) {
+			throw new SWTException("Unable to create context");
+		}
 		return context;
 	}
 
-	private void populateFBConfigAttribs(GLData data, IntBuffer attribList) {
+	@Override
+	public boolean makeCurrent(GLOffscreenCanvas canvas, long context) {
+		return glXMakeContextCurrent(canvas.xDisplay, canvas.drawable, canvas.drawable, context);
+	}
+
+	@Override
+	public boolean releaseCurrent(GLOffscreenCanvas canvas) {
+		return glXMakeContextCurrent(canvas.xDisplay, 0, 0, 0);
+	}
+
+	@Override
+	public boolean deleteContext(GLOffscreenCanvas canvas, long context) {
+		long xDisplay = canvas.xDisplay;
+		if (context != 0) {
+			if (glXGetCurrentContext() == context) {
+				glXMakeContextCurrent(xDisplay, 0, 0, 0);
+			}
+			glXDestroyContext(xDisplay, context);
+		}
+		if (canvas.drawable != 0) {
+			glXDestroyPbuffer(xDisplay, canvas.drawable);
+			canvas.drawable = 0;
+		}
+		if (xDisplay != 0) {
+			X11.XCloseDisplay(xDisplay);
+			canvas.xDisplay = 0;
+		}
+		canvas.fbConfig = 0;
+		return true;
+	}
+
+	@Override
+	public boolean swapBuffers(GLOffscreenCanvas canvas) {
+		if (canvas.effective.doubleBuffer)
+			glXSwapBuffers(canvas.xDisplay, canvas.drawable);
+		return true;
+	}
+
+	/**
+	 * Choose the best frame buffer config for <code>data</code> and report its attributes in <code>effective</code>.
+	 * <p>
+	 * The choice is remembered by FBConfig ID in the {@link GLConfigCache}, so later canvases with the same attributes look up that single config
+	 * instead of having the driver match and sort all of them again.
+	 *
+	 * @return the FBConfig, or <code>0</code> if none matches
+	 */
+	private long chooseFBConfig(long xDisplay, GLData data, int drawableType, IntBuffer attribList, GLData effective) {
+		String key = GLConfigCache.key(driverIdentity(xDisplay), drawableType, data);
+		GLConfigCache.Entry cached = GLConfigCache.get(key);
+		if (cached != null) {
+			attribList.clear();
+			attribList.put(GLX_FBCONFIG_ID).put(cached.id).put(0).flip();
+			long fbConfig = firstFBConfig(xDisplay, attribList);
+			if (fbConfig != 0) {
+				populateEffectiveAttribs(xDisplay, fbConfig, data, effective);
+				if (cached.matches(effective))
+					return fbConfig;
+			}
+			// the driver changed, so probe again
+			GLConfigCache.remove(key);
+		}
+		attribList.clear();
+		populateFBConfigAttribs(data, drawableType, attribList);
+		long fbConfig = firstFBConfig(xDisplay, attribList);
+		if (fbConfig == 0)
+			return 0;
+		populateEffectiveAttribs(xDisplay, fbConfig, data, effective);
+		GLConfigCache.put(key, fbConfigAttrib(xDisplay, fbConfig, GLX_FBCONFIG_ID, BufferUtils.createIntBuffer(1)), effective, true);
+		return fbConfig;
+	}
+
+	private long firstFBConfig(long xDisplay, IntBuffer attribList) {
+		PointerBuffer fbCfg = glXChooseFBConfig(xDisplay, 0, attribList);
+		if (fbCfg == null)
+			return 0;
+		long fbConfig = fbCfg.hasRemaining() ? fbCfg.get(0) : 0;
+		X11.XFree(fbCfg);
+		return fbConfig;
+	}
+
+	/**
+	 * Identify the GLX implementation on both ends of the display connection, so that cached configs are not used with another driver.
+	 */
+	private String driverIdentity(long xDisplay) {
+		return "glx:" + glXGetClientString(xDisplay, GLX_VENDOR) + '/' + glXGetClientString(xDisplay, GLX_VERSION)
+				+ '/' + glXQueryServerString(xDisplay, 0, GLX_VENDOR) + '/' + glXQueryServerString(xDisplay, 0, GLX_VERSION);
+	}
+
+	/**
+	 * Report the attributes of the chosen frame buffer config in <code>effective</code>.
+	 */
+	private void populateEffectiveAttribs(long xDisplay, long fbConfig, GLData data, GLData effective) {
+		IntBuffer value = BufferUtils.createIntBuffer(1);
+		effective.redSize = fbConfigAttrib(xDisplay, fbConfig, GLX_RED_SIZE, value);
+		effective.greenSize = fbConfigAttrib(xDisplay, fbConfig, GLX_GREEN_SIZE, value);
+		effective.blueSize = fbConfigAttrib(xDisplay, fbConfig, GLX_BLUE_SIZE, value);
+		effective.alphaSize = fbConfigAttrib(xDisplay, fbConfig, GLX_ALPHA_SIZE, value);
+		effective.depthSize = fbConfigAttrib(xDisplay, fbConfig, GLX_DEPTH_SIZE, value);
+		effective.stencilSize = fbConfigAttrib(xDisplay, fbConfig, GLX_STENCIL_SIZE, value);
+		effective.doubleBuffer = fbConfigAttrib(xDisplay, fbConfig, GLX_DOUBLEBUFFER, value) != 0;
+		effective.stereo = fbConfigAttrib(xDisplay, fbConfig, GLX_STEREO, value) != 0;
+		effective.accumRedSize = fbConfigAttrib(xDisplay, fbConfig, GLX_ACCUM_RED_SIZE, value);
+		effective.accumGreenSize = fbConfigAttrib(xDisplay, fbConfig, GLX_ACCUM_GREEN_SIZE, value);
+		effective.accumBlueSize = fbConfigAttrib(xDisplay, fbConfig, GLX_ACCUM_BLUE_SIZE, value);
+		effective.accumAlphaSize = fbConfigAttrib(xDisplay, fbConfig, GLX_ACCUM_ALPHA_SIZE, value);
+		effective.sampleBuffers = fbConfigAttrib(xDisplay, fbConfig, GLX_SAMPLE_BUFFERS_ARB, value);
+		effective.samples = fbConfigAttrib(xDisplay, fbConfig, GLX_SAMPLES_ARB, value);
+		effective.sRGB = data.sRGB;
+		effective.api = data.api;
+		effective.majorVersion = data.majorVersion;
+		effective.minorVersion = data.minorVersion;
+		effective.profile = data.profile;
+		effective.forwardCompatible = data.forwardCompatible;
+		effective.debug = data.debug;
+		effective.robustness = data.robustness;
+		effective.shareContext = data.shareContext;
+		effective.contextCreationAPI = GLData.ContextCreationAPI.NATIVE;
+	}
+
+	/**
+	 * Returns the context to share objects with, which GLX can only do with its own contexts.
+	 */
+	private long shareContext(GLData data) {
+		if (data.shareContext == null)
+			return 0;
+		if (data.shareContext.platform != this) {
+			throw new SWTException("Objects can only be shared with canvases whose context was created with GLX");
+		}
+		return data.shareContext.context;
+	}
+
+	private int fbConfigAttrib(long xDisplay, long fbConfig, int attribute, IntBuffer value) {
+		value.put(0, 0);
+		glXGetFBConfigAttrib(xDisplay, fbConfig, attribute, value);
+		return value.get(0);
+	}
+
+	private void populateFBConfigAttribs(GLData data, int drawableType, IntBuffer attribList) {
+		attribList.put(GLX_DRAWABLE_TYPE).put(drawableType);
 		if (data.redSize > 0) attribList.put(GLX_RED_SIZE).put(data.redSize);
         if (data.greenSize > 0) attribList.put(GLX_GREEN_SIZE).put(data.greenSize);
         if (data.blueSize > 0) attribList.put(GLX_BLUE_SIZE).put(data.blueSize);
@@ -235,63 +640,312 @@ class PlatformLinuxGLCanvas extends AbstractPlatformGLCanvas {
 		return glXGetCurrentContext () == context;
 	}
 
+	@Override
+	public boolean isCurrent(GLCanvas canvas, long context) {
+		return glXGetCurrentContext() == context && glXGetCurrentDrawable() == canvas.xWindow;
+	}
+
 	@Override
 	public boolean makeCurrent(GLCanvas canvas, long context) {
-		long window = GTK.gtk_widget_get_window(canvas.handle);
-		long xDisplay = gdk_x11_display_get_xdisplay(window);
-		return glXMakeCurrent(xDisplay, canvas.xWindow, context);
+		return glXMakeCurrent(canvas.xDisplay, canvas.xWindow, context);
+	}
+
+	@Override
+	public boolean releaseCurrent(GLCanvas canvas) {
+		return glXMakeCurrent(canvas.xDisplay, 0, 0);
 	}
 
 	@Override
 	public boolean deleteContext(GLCanvas canvas, long context) {
-		long window = GTK.gtk_widget_get_window(canvas.handle);
-		long xDisplay = gdk_x11_display_get_xdisplay(window);
+		long xDisplay = canvas.xDisplay;
+		// other canvases may still render with a context shared through GLData.contextSource
+		boolean lastUser = canvas.leaveContext();
 		if (context != 0) {
-			if (glXGetCurrentContext() == context) {
+			if (glXGetCurrentContext() == context && (lastUser || glXGetCurrentDrawable() == canvas.xWindow)) {
 				glXMakeCurrent(xDisplay, 0, 0);
 			}
-			glXDestroyContext(xDisplay, context);
+			if (lastUser)
+				glXDestroyContext(xDisplay, context);
 			canvas.context = 0;
 		}
 		if (canvas.glWindow != 0) {
 			GDK.gdk_window_destroy(canvas.glWindow);
 			canvas.glWindow = 0;
 		}
+		if (canvas.ownsXDisplay) {
+			X11.XCloseDisplay(xDisplay);
+			canvas.ownsXDisplay = false;
+		}
+		canvas.xDisplay = 0;
+		canvas.fbConfig = 0;
 		return true;
 	}
 
 	@Override
 	public boolean swapBuffers(GLCanvas canvas) {
-		long window = GTK.gtk_widget_get_window(canvas.handle);
-		long xDisplay = gdk_x11_display_get_xdisplay(window);
-		glXSwapBuffers(xDisplay, canvas.xWindow);
+		glXSwapBuffers(canvas.xDisplay, canvas.xWindow);
+		canvas.backBufferKept = false;
 		return false;
 	}
 
+	@Override
+	public boolean swapBuffers(GLCanvas canvas, int[] damage) {
+		// GLX has no damage hint, a full swap keeps vsync and the buffer age tells the application what to redraw
+		long function = COPY_SUB_BUFFER ? extensions(canvas.xDisplay).glXCopySubBufferMESA : 0L;
+		if (function == 0L)
+			return swapBuffers(canvas);
+		copySubBuffer(function, canvas.xDisplay, canvas.xWindow, damage);
+		canvas.backBufferKept = true;
+		return true;
+	}
+
+	/**
+	 * Call <code>glXCopySubBufferMESA(Display*, GLXDrawable, int, int, int, int)</code> for each rectangle. No JNI invoker of LWJGL has this signature,
+	 * so the call goes through dyncall.
+	 */
+	private static void copySubBuffer(long function, long xDisplay, long drawable, int[] rects) {
+		long vm = dcNewCallVM(64);
+		try {
+			dcMode(vm, DC_CALL_C_DEFAULT);
+			for (int i = 0; i < rects.length; i += 4) {
+				dcReset(vm);
+				dcArgPointer(vm, xDisplay);
+				dcArgLong(vm, drawable);
+				dcArgInt(vm, rects[i]);
+				dcArgInt(vm, rects[i + 1]);
+				dcArgInt(vm, rects[i + 2]);
+				dcArgInt(vm, rects[i + 3]);
+				dcCallVoid(vm, function);
+			}
+		} finally {
+			dcFree(vm);
+		}
+	}
+
+	@Override
+	public int getBufferAge(GLCanvas canvas) {
+		// copying leaves the back buffer with the previous frame
+		if (canvas.backBufferKept)
+			return 1;
+		if (!extensions(canvas.xDisplay).bufferAge)
+			return 0;
+		return glXQueryDrawable(canvas.xDisplay, canvas.xWindow, GLX_BACK_BUFFER_AGE_EXT);
+	}
+
 	@Override
 	public int glGetSwapInterval(GLCanvas canvas) {
-		return canvas.effective.swapInterval.intValue();
+		Extensions ext = extensions(canvas.xDisplay);
+		if (ext.swapControlEXT) {
+			int interval = glXQueryDrawable(canvas.xDisplay, canvas.xWindow, GLX_SWAP_INTERVAL_EXT);
+			// the interval is reported as its absolute value, and late swaps only tear for negative ones
+			if (ext.swapControlTear && glXQueryDrawable(canvas.xDisplay, canvas.xWindow, GLX_LATE_SWAPS_TEAR_EXT) != 0)
+				interval = -interval;
+			return interval;
+		}
+		if (ext.glXGetSwapIntervalMESA != 0L)
+			return JNI.invokeI(ext.glXGetSwapIntervalMESA);
+		// GLX_SGI_swap_control cannot be queried, and starts at 1
+		return canvas.effective.swapInterval != null ? canvas.effective.swapInterval.intValue() : 1;
 	}
 
 	@Override
 	public boolean glSwapInterval(GLCanvas canvas, int interval) {
-		// There is also GLXSGISwapControl.glXSwapIntervalSGI(int interval), but I am unsure which one should be used and when...
-		
-		long window = GTK.gtk_widget_get_window(canvas.handle);
-		long xDisplay = gdk_x11_display_get_xdisplay(window);
-		GLXEXTSwapControl.glXSwapIntervalEXT(xDisplay, window, interval);
-		canvas.effective.swapInterval = Integer.valueOf(interval);
+		if (!setSwapInterval(canvas, interval))
+			return false;
+		canvas.effective.swapInterval = Integer.valueOf(glGetSwapInterval(canvas));
 		return true;
 	}
 
+	/**
+	 * Set the swap interval with the most capable swap control extension supporting it. GLX_EXT_swap_control applies to the drawable, the others to
+	 * the drawable of the current context.
+	 */
+	private boolean setSwapInterval(GLCanvas canvas, int interval) {
+		Extensions ext = extensions(canvas.xDisplay);
+		if (ext.swapControlEXT && (interval >= 0 || ext.swapControlTear)) {
+			glXSwapIntervalEXT(canvas.xDisplay, canvas.xWindow, interval);
+			return true;
+		}
+		if (interval < 0)
+			return false;
+		if (ext.glXSwapIntervalMESA != 0L)
+			return JNI.invokeI(interval, ext.glXSwapIntervalMESA) == 0;
+		if (ext.swapControlSGI && interval > 0)
+			return glXSwapIntervalSGI(interval) == 0;
+		return false;
+	}
+
+	/**
+	 * Apply {@link GLData#swapInterval} to a newly created canvas, temporarily making its context current if the extension requires it.
+	 *
+	 * @return whether the interval could be set
+	 */
+	private boolean initSwapInterval(GLCanvas canvas, long context, int interval) {
+		long previousDisplay = glXGetCurrentDisplay();
+		long previousDrawable = glXGetCurrentDrawable();
+		long previousContext = glXGetCurrentContext();
+		glXMakeCurrent(canvas.xDisplay, canvas.xWindow, context);
+		try {
+			if (!setSwapInterval(canvas, interval))
+				return false;
+			canvas.effective.swapInterval = Integer.valueOf(glGetSwapInterval(canvas));
+			return true;
+		} finally {
+			if (previousContext != 0L)
+				glXMakeCurrent(previousDisplay, previousDrawable, previousContext);
+			else
+				glXMakeCurrent(canvas.xDisplay, 0, 0);
+		}
+	}
+
+	@Override
+	public GLCanvas.SwapControl getSwapControl(GLCanvas canvas) {
+		Extensions ext = extensions(canvas.xDisplay);
+		if (ext.swapControlTear)
+			return GLCanvas.SwapControl.ADAPTIVE;
+		if (ext.swapControlEXT || ext.glXSwapIntervalMESA != 0L)
+			return GLCanvas.SwapControl.QUERYABLE;
+		if (ext.swapControlSGI)
+			return GLCanvas.SwapControl.SET_ONLY;
+		return GLCanvas.SwapControl.NONE;
+	}
+
 	@Override
 	public boolean delayBeforeSwapNV(GLCanvas canvas, float seconds) {
-		long window = GTK.gtk_widget_get_window(canvas.handle);
-		long xDisplay = gdk_x11_display_get_xdisplay(window);
-        return glXDelayBeforeSwapNV(xDisplay, canvas.xWindow, seconds);
+        return glXDelayBeforeSwapNV(canvas.xDisplay, canvas.xWindow, seconds);
+	}
+
+	/**
+	 * The GLX extensions for swap control, presentation timing and partial presentation, including the entry points of those LWJGL does not bind,
+	 * i.e. GLX_OML_sync_control, GLX_MESA_swap_control and GLX_MESA_copy_sub_buffer. They are looked up once per process, as all canvases are on the same X server.
+	 */
+	private static final class Extensions {
+		final long glXGetSyncValuesOML;
+		final long glXGetMscRateOML;
+		final long glXSwapBuffersMscOML;
+		final long glXWaitForSbcOML;
+		final boolean videoSync;
+		final long glXSwapIntervalMESA;
+		final long glXGetSwapIntervalMESA;
+		final boolean swapControlEXT;
+		final boolean swapControlTear;
+		final boolean swapControlSGI;
+		final long glXCopySubBufferMESA;
+		final boolean bufferAge;
+
+		Extensions(long xDisplay) {
+			String extensions = glXQueryExtensionsString(xDisplay, X11.XDefaultScreen(xDisplay));
+			FunctionProvider functions = GL.getFunctionProvider();
+			boolean oml = hasExtension(extensions, "GLX_OML_sync_control");
+			glXGetSyncValuesOML = oml ? functions.getFunctionAddress("glXGetSyncValuesOML") : 0L;
+			glXGetMscRateOML = oml ? functions.getFunctionAddress("glXGetMscRateOML") : 0L;
+			glXSwapBuffersMscOML = oml ? functions.getFunctionAddress("glXSwapBuffersMscOML") : 0L;
+			glXWaitForSbcOML = oml ? functions.getFunctionAddress("glXWaitForSbcOML") : 0L;
+			GLXCapabilities caps = GL.getCapabilitiesGLX();
+			videoSync = hasExtension(extensions, "GLX_SGI_video_sync") && caps.glXGetVideoSyncSGI != 0L && caps.glXWaitVideoSyncSGI != 0L;
+			boolean mesa = hasExtension(extensions, "GLX_MESA_swap_control");
+			glXSwapIntervalMESA = mesa ? functions.getFunctionAddress("glXSwapIntervalMESA") : 0L;
+			glXGetSwapIntervalMESA = mesa ? functions.getFunctionAddress("glXGetSwapIntervalMESA") : 0L;
+			swapControlEXT = hasExtension(extensions, "GLX_EXT_swap_control") && caps.glXSwapIntervalEXT != 0L;
+			swapControlTear = swapControlEXT && hasExtension(extensions, "GLX_EXT_swap_control_tear");
+			swapControlSGI = hasExtension(extensions, "GLX_SGI_swap_control") && caps.glXSwapIntervalSGI != 0L;
+			glXCopySubBufferMESA = hasExtension(extensions, "GLX_MESA_copy_sub_buffer") ? functions.getFunctionAddress("glXCopySubBufferMESA") : 0L;
+			bufferAge = hasExtension(extensions, "GLX_EXT_buffer_age");
+		}
+
+		private static boolean hasExtension(String extensions, String name) {
+			return extensions != null && (" " + extensions + " ").contains(" " + name + " ");
+		}
+	}
+
+	private static volatile Extensions extensions;
+
+	private static Extensions extensions(long xDisplay) {
+		Extensions ext = extensions;
+		if (ext == null) {
+			synchronized (PlatformLinuxGLCanvas.class) {
+				ext = extensions;
+				if (ext == null)
+					extensions = ext = new Extensions(xDisplay);
+			}
+		}
+		return ext;
+	}
+
+	@Override
+	public boolean getSyncValues(GLCanvas canvas, GLSyncValues values) {
+		long function = extensions(canvas.xDisplay).glXGetSyncValuesOML;
+		if (function == 0L)
+			return false;
+		try (MemoryStack stack = stackPush()) {
+			LongBuffer counters = stack.mallocLong(3);
+			long address = memAddress(counters);
+			if (JNI.invokePPPPPI(canvas.xDisplay, canvas.xWindow, address, address + 8, address + 16, function) == 0)
+				return false;
+			values.ust = counters.get(0);
+			values.msc = counters.get(1);
+			values.sbc = counters.get(2);
+			return true;
+		}
+	}
+
+	@Override
+	public double getRefreshRate(GLCanvas canvas) {
+		long function = extensions(canvas.xDisplay).glXGetMscRateOML;
+		if (function == 0L)
+			return 0.0;
+		try (MemoryStack stack = stackPush()) {
+			IntBuffer rate = stack.mallocInt(2);
+			long address = memAddress(rate);
+			if (JNI.invokePPPPI(canvas.xDisplay, canvas.xWindow, address, address + 4, function) == 0 || rate.get(1) == 0)
+				return 0.0;
+			return (double) rate.get(0) / rate.get(1);
+		}
+	}
+
+	@Override
+	public long swapBuffersMsc(GLCanvas canvas, long targetMsc, long divisor, long remainder) {
+		long function = extensions(canvas.xDisplay).glXSwapBuffersMscOML;
+		if (function == 0L) {
+			swapBuffers(canvas);
+			return -1L;
+		}
+		canvas.backBufferKept = false;
+		// The int64_t arguments are passed like pointers, which is the same on all 64-bit ABIs LWJGL supports on Linux
+		return JNI.invokePPPPPP(canvas.xDisplay, canvas.xWindow, targetMsc, divisor, remainder, function);
+	}
+
+	@Override
+	public boolean waitForSbc(GLCanvas canvas, long targetSbc, GLSyncValues values) {
+		long function = extensions(canvas.xDisplay).glXWaitForSbcOML;
+		if (function == 0L)
+			return false;
+		try (MemoryStack stack = stackPush()) {
+			LongBuffer counters = stack.mallocLong(3);
+			long address = memAddress(counters);
+			if (JNI.invokePPPPPPI(canvas.xDisplay, canvas.xWindow, targetSbc, address, address + 8, address + 16, function) == 0)
+				return false;
+			values.ust = counters.get(0);
+			values.msc = counters.get(1);
+			values.sbc = counters.get(2);
+			return true;
+		}
+	}
+
+	@Override
+	public boolean waitForVBlank(GLCanvas canvas) {
+		if (!extensions(canvas.xDisplay).videoSync)
+			return false;
+		try (MemoryStack stack = stackPush()) {
+			IntBuffer count = stack.mallocInt(1);
+			if (glXGetVideoSyncSGI(count) != 0)
+				return false;
+			// Wait until the retrace counter changes its parity, i.e. for the next retrace
+			return glXWaitVideoSyncSGI(2, (count.get(0) + 1) & 1, count) == 0;
+		}
 	}
 
-	private long gdk_x11_display_get_xdisplay(long window) {
+	static long gdk_x11_display_get_xdisplay(long window) {
 		long display = GDK.gdk_window_get_display(window);
 		return GDK.gdk_x11_display_get_xdisplay(display);
 	}
@@ -0,0 +1,104 @@
+package org.lwjgl.vulkan.swt;
+
+import static org.lwjgl.system.MemoryStack.*;
+import static org.lwjgl.vulkan.KHRXlibSurface.*;
+import static org.lwjgl.vulkan.VK10.*;
+
+import java.nio.LongBuffer;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.SWTException;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.internal.DPIUtil;
+import org.eclipse.swt.internal.gtk.GDK;
+import org.eclipse.swt.internal.gtk.GTK;
+import org.eclipse.swt.internal.gtk.GdkWindowAttr;
+import org.eclipse.swt.internal.gtk.OS;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Listener;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.linux.Visual;
+import org.lwjgl.vulkan.VkPhysicalDevice;
+import org.lwjgl.vulkan.VkXlibSurfaceCreateInfoKHR;
+
+/**
+ * Linux-specific implementation of methods for VKCanvas.
+ * <p>
+ * Like the GLX implementation of GLCanvas, this renders into a dedicated child GDK window, which is created with the system visual of the default
+ * screen and kept at the size of the canvas. The surface is an Xlib surface on GTK's X display connection, so the instance must have been created with
+ * <code>VK_KHR_xlib_surface</code> enabled, and GTK must run on X11.
+ * <p>
+ * The child window is destroyed together with the window of the canvas, after all {@link SWT#Dispose} listeners of the canvas have run, so that the
+ * application can still destroy its swapchain and the surface there.
+ */
+public class PlatformLinuxVKCanvas implements PlatformVKCanvas {
+
+    public int checkStyle(Composite parent, int style) {
+        return style;
+    }
+
+    public void resetStyle(Composite parent) {
+    }
+
+    @Override
+    public long create(Composite composite, VKData data) {
+        VKCanvas canvas = (VKCanvas) composite;
+        if (!OS.isX11())
+            throw new SWTException("Vulkan surfaces of a VKCanvas require GTK to run on X11");
+
+        // make sure our canvas has resources assigned
+        GTK.gtk_widget_realize(canvas.handle);
+        long window = GTK.gtk_widget_get_window(canvas.handle);
+        long xDisplay = GDK.gdk_x11_display_get_xdisplay(GDK.gdk_window_get_display(window));
+
+        // create a child window with the visual we report presentation support for
+        GdkWindowAttr winAttrs = new GdkWindowAttr();
+        winAttrs.width = 1;
+        winAttrs.height = 1;
+        winAttrs.event_mask = GDK.GDK_KEY_PRESS_MASK | GDK.GDK_KEY_RELEASE_MASK | GDK.GDK_FOCUS_CHANGE_MASK
+                | GDK.GDK_POINTER_MOTION_MASK | GDK.GDK_BUTTON_PRESS_MASK | GDK.GDK_BUTTON_RELEASE_MASK
+                | GDK.GDK_ENTER_NOTIFY_MASK | GDK.GDK_LEAVE_NOTIFY_MASK | GDK.GDK_EXPOSURE_MASK
+                | GDK.GDK_POINTER_MOTION_HINT_MASK;
+        winAttrs.window_type = GDK.GDK_WINDOW_CHILD;
+        winAttrs.visual = GDK.gdk_screen_get_system_visual(GDK.gdk_screen_get_default());
+        canvas.gdkWindow = GDK.gdk_window_new(window, winAttrs, GDK.GDK_WA_VISUAL);
+        GDK.gdk_window_set_user_data(canvas.gdkWindow, canvas.handle);
+        canvas.xWindow = GDK.gdk_x11_window_get_xid(canvas.gdkWindow);
+        GDK.gdk_window_show(canvas.gdkWindow);
+
+        long surface;
+        try (MemoryStack stack = stackPush()) {
+            VkXlibSurfaceCreateInfoKHR sci = VkXlibSurfaceCreateInfoKHR.callocStack(stack)
+                    .sType(VK_STRUCTURE_TYPE_XLIB_SURFACE_CREATE_INFO_KHR)
+                    .dpy(xDisplay)
+                    .window(canvas.xWindow);
+            LongBuffer pSurface = stack.mallocLong(1);
+            int err = vkCreateXlibSurfaceKHR(data.instance, sci, null, pSurface);
+            if (err != VK_SUCCESS) {
+                GDK.gdk_window_destroy(canvas.gdkWindow);
+                canvas.gdkWindow = 0;
+                throw new SWTException("Calling vkCreateXlibSurfaceKHR failed with error: " + err);
+            }
+            surface = pSurface.get(0);
+        }
+
+        // keep the child window at the size of the canvas. GDK destroys it together with the window of the canvas, which outlives the Dispose listeners.
+        Listener listener = event -> {
+            Rectangle clientArea = DPIUtil.autoScaleUp(canvas.getClientArea());
+            GDK.gdk_window_move_resize(canvas.gdkWindow, clientArea.x, clientArea.y, Math.max(1, clientArea.width), Math.max(1, clientArea.height));
+        };
+        canvas.addListener(SWT.Resize, listener);
+        return surface;
+    }
+
+    public boolean getPhysicalDevicePresentationSupport(VkPhysicalDevice physicalDevice, int queueFamily) {
+        // Xlib surfaces cannot be created without an X server
+        if (!OS.isX11())
+            return false;
+        long xDisplay = GDK.gdk_x11_display_get_xdisplay(GDK.gdk_display_get_default());
+        long gdkVisual = GDK.gdk_screen_get_system_visual(GDK.gdk_screen_get_default());
+        long visualId = Visual.create(GDK.gdk_x11_visual_get_xvisual(gdkVisual)).visualid();
+        return vkGetPhysicalDeviceXlibPresentationSupportKHR(physicalDevice, queueFamily, xDisplay, visualId);
+    }
+
+}
@@ -0,0 +1,60 @@
+package org.lwjgl.opengl.swt;
+
+import static org.lwjgl.opengl.GL11.*;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.CTabFolder;
+import org.eclipse.swt.custom.CTabItem;
+import org.eclipse.swt.layout.FillLayout;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+import org.lwjgl.opengl.GL;
+
+/**
+ * Opens a new tab with a {@link GLCanvas} on every press of Ctrl+T, taking the contexts from a {@link GLContextPool} and printing how long
+ * constructing each canvas took.
+ */
+public class ContextPoolDemo {
+    public static void main(String[] args) {
+        final Display display = new Display();
+        final Shell shell = new Shell(display, SWT.SHELL_TRIM);
+        shell.setText("Press Ctrl+T to open a tab");
+        shell.setLayout(new FillLayout());
+        final CTabFolder folder = new CTabFolder(shell, SWT.CLOSE);
+        GLData data = new GLData();
+        data.doubleBuffer = true;
+        final GLContextPool pool = new GLContextPool(data, 2);
+
+        display.addFilter(SWT.KeyDown, event -> {
+            if (event.stateMask != SWT.CTRL || event.keyCode != 't')
+                return;
+            long start = System.nanoTime();
+            final GLCanvas canvas = new GLCanvas(folder, SWT.NO_BACKGROUND | SWT.NO_REDRAW_RESIZE, pool);
+            long micros = (System.nanoTime() - start) / 1000L;
+            System.out.println("GLCanvas created in " + micros + " us, " + pool.getAvailable() + " contexts ready");
+            CTabItem item = new CTabItem(folder, SWT.NONE);
+            item.setText("Canvas " + folder.getItemCount());
+            item.setControl(canvas);
+            item.addListener(SWT.Dispose, e -> canvas.dispose());
+            folder.setSelection(item);
+            final float shade = folder.getItemCount() % 4 / 4.0f;
+            canvas.setCurrent();
+            GL.createCapabilities();
+            canvas.addListener(SWT.Paint, e -> {
+                canvas.setCurrent();
+                glClearColor(0.2f, 0.4f, 0.6f + shade * 0.4f, 1.0f);
+                glClear(GL_COLOR_BUFFER_BIT);
+                canvas.swapBuffers();
+            });
+        });
+
+        shell.setSize(800, 600);
+        shell.open();
+        while (!shell.isDisposed()) {
+            if (!display.readAndDispatch())
+                display.sleep();
+        }
+        pool.dispose();
+        display.dispose();
+    }
+}
@@ -0,0 +1,41 @@
+package org.lwjgl.opengl.swt;
+
+import static org.lwjgl.opengl.GL11.*;
+
+import java.nio.ByteBuffer;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL;
+
+/**
+ * Renders without any window, e.g. under <code>xvfb-run</code>, and reads the result back.
+ */
+public class OffscreenDemo {
+    public static void main(String[] args) {
+        int width = 256;
+        int height = 256;
+        GLData data = new GLData();
+        data.doubleBuffer = false;
+        GLOffscreenCanvas canvas = new GLOffscreenCanvas(data, width, height);
+        GLData effective = canvas.getGLData();
+        System.out.println("RGBA bits: " + effective.redSize + "/" + effective.greenSize + "/" + effective.blueSize + "/" + effective.alphaSize
+                + ", depth bits: " + effective.depthSize);
+        canvas.setCurrent();
+        GL.createCapabilities();
+        System.out.println("Renderer: " + glGetString(GL_RENDERER));
+
+        glViewport(0, 0, width, height);
+        glClearColor(0.2f, 0.4f, 0.6f, 1.0f);
+        glClear(GL_COLOR_BUFFER_BIT);
+        glFinish();
+
+        ByteBuffer pixels = BufferUtils.createByteBuffer(width * height * 4);
+        glReadPixels(0, 0, width, height, GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+        int center = (height / 2 * width + width / 2) * 4;
+        System.out.println("Center pixel: " + (pixels.get(center) & 0xFF) + " " + (pixels.get(center + 1) & 0xFF) + " "
+                + (pixels.get(center + 2) & 0xFF) + " " + (pixels.get(center + 3) & 0xFF));
+
+        GL.setCapabilities(null);
+        canvas.dispose();
+    }
+}
@@ -150,7 +150,13 @@ class PlatformMacOSXGLCanvas extends AbstractPlatformGLCanvas {
 		Listener listener = event -> {
 			switch (event.type) {
 
+				case SWT.Paint:
+					if (canvas.renderThread != null)
+						canvas.renderThread.post(SWT.Paint, 0, 0);
+					break;
 				case SWT.Dispose:
+					// the render thread must let go of the context before we release it
+					canvas.beforeDeleteContext();
 					canvas.setData(GLCONTEXT_KEY, null);
 					NSNotificationCenter.defaultCenter().removeObserver(view);
 
@@ -165,6 +171,7 @@ class PlatformMacOSXGLCanvas extends AbstractPlatformGLCanvas {
 					break;
 			}
 		};
+		canvas.addListener(SWT.Paint, listener);
 		canvas.addListener(SWT.Dispose, listener);
 
 		long[] longptr = new long[1];
@@ -213,6 +220,12 @@ class PlatformMacOSXGLCanvas extends AbstractPlatformGLCanvas {
 		return true;
 	}
 
+	@Override
+	public boolean releaseCurrent(GLCanvas canvas) {
+		NSOpenGLContext.clearCurrentContext();
+		return true;
+	}
+
 	@Override
 	public boolean deleteContext(GLCanvas canvas, long context) {
 		canvas.setData(GLCONTEXT_KEY, null);
@@ -254,6 +267,12 @@ class PlatformMacOSXGLCanvas extends AbstractPlatformGLCanvas {
 		return true;
 	}
 
+	@Override
+	public GLCanvas.SwapControl getSwapControl(GLCanvas canvas) {
+		// NSOpenGLCPSwapInterval takes 0 and 1, and CGL reports it back
+		return GLCanvas.SwapControl.QUERYABLE;
+	}
+
 	@Override
 	public boolean delayBeforeSwapNV(GLCanvas canvas, float seconds) {
 		// It seems that there's no support for this on OSX 
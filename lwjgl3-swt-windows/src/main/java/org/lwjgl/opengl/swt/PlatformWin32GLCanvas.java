@@ -57,6 +57,10 @@ class PlatformWin32GLCanvas extends AbstractPlatformGLCanvas {
     private long wglDelayBeforeSwapNVAddr = 0L;
     private boolean wglDelayBeforeSwapNVAddr_set = false;
 
+    // the parsed WGL extensions of the last created context, which are the same for every context of the process in practice
+    private static String lastWglExtensions;
+    private static Set<String> lastWglExtensionsList;
+
     /**
      * Encode the pixel format attributes stored in the given {@link GLData} into the given {@link IntBuffer} for wglChoosePixelFormatARB to
      * consume.
@@ -121,31 +125,69 @@ class PlatformWin32GLCanvas extends AbstractPlatformGLCanvas {
     }
 
     public long create(GLCanvas canvas, GLData attribs, GLData effective) {
-        Canvas dummycanvas = new Canvas(canvas.getParent(), checkStyle(canvas.getParent(), canvas.getStyle()));
+        // Pixel format indices are only meaningful to the driver loaded by this process, so they are not persisted
+        String cacheKey = GLConfigCache.key("wgl", WGLARBPixelFormat.WGL_DRAW_TO_WINDOW_ARB, attribs);
+        GLConfigCache.Entry cached = GLConfigCache.get(cacheKey);
+        // A pixel format cached before a driver or display change may be gone, so probe again instead of failing
+        if (cached != null && !setPixelFormat(canvas.handle, cached.id)) {
+            GLConfigCache.remove(cacheKey);
+            cached = null;
+        }
+        // With a known pixel format, the real window can host the temporary context, so no dummy window is needed
+        Canvas dummycanvas = cached == null ? new Canvas(canvas.getParent(), checkStyle(canvas.getParent(), canvas.getStyle())) : null;
         long context = 0L;
         MemoryStack stack = MemoryStack.stackGet(); int ptr = stack.getPointer();
         try {
-            context = create(canvas.handle, dummycanvas.handle, attribs, effective);
+            context = create(canvas.handle, dummycanvas != null ? dummycanvas.handle : canvas.handle, attribs, effective, cacheKey, cached);
         } catch (SWTException e) {
             stack.setPointer(ptr);
+            if (cached != null)
+                GLConfigCache.remove(cacheKey);
             SWT.error(SWT.ERROR_UNSUPPORTED_DEPTH, e);
         }
         final long finalContext = context;
-        dummycanvas.dispose();
+        if (dummycanvas != null)
+            dummycanvas.dispose();
         Listener listener = new Listener() {
             public void handleEvent(Event event) {
                 switch (event.type) {
+                case SWT.Paint:
+                    if (canvas.renderThread != null)
+                        canvas.renderThread.post(SWT.Paint, 0, 0);
+                    break;
                 case SWT.Dispose:
+                    // the render thread must let go of the context before we delete it
+                    canvas.beforeDeleteContext();
                     deleteContext(canvas, finalContext);
                     break;
                 }
             }
         };
+        canvas.addListener(SWT.Paint, listener);
         canvas.addListener(SWT.Dispose, listener);
         return context;
     }
 
-    private long create(long windowHandle, long dummyWindowHandle, GLData attribs, GLData effective) throws SWTException {
+    /**
+     * Set the given pixel format on the window, unless it already has it.
+     *
+     * @return whether the window has the pixel format now
+     */
+    private static boolean setPixelFormat(long windowHandle, int pixelFormat) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            PIXELFORMATDESCRIPTOR pfd = PIXELFORMATDESCRIPTOR.callocStack(stack);
+            long hDC = User32.GetDC(windowHandle);
+            try {
+                return GDI32.DescribePixelFormat(hDC, pixelFormat, pfd) != 0
+                        && (GDI32.GetPixelFormat(hDC) == pixelFormat || GDI32.SetPixelFormat(hDC, pixelFormat, pfd));
+            } finally {
+                User32.ReleaseDC(windowHandle, hDC);
+            }
+        }
+    }
+
+    private long create(long windowHandle, long dummyWindowHandle, GLData attribs, GLData effective, String cacheKey, GLConfigCache.Entry cached)
+            throws SWTException {
         MemoryStack stack = MemoryStack.stackGet();
         long bufferAddr = stack.nmalloc(4, (4*2) << 2);
 
@@ -176,11 +218,22 @@ class PlatformWin32GLCanvas extends AbstractPlatformGLCanvas {
         pfd.cAccumAlphaBits((byte) attribs.accumAlphaSize);
         pfd.cAccumBits((byte) (attribs.accumRedSize + attribs.accumGreenSize + attribs.accumBlueSize + attribs.accumAlphaSize));
         long hDCdummy = User32.GetDC(dummyWindowHandle);
-        int pixelFormat = GDI32.ChoosePixelFormat(hDCdummy, pfd);
-        if (pixelFormat == 0 || !GDI32.SetPixelFormat(hDCdummy, pixelFormat, pfd)) {
-            // Pixel format unsupported
-            User32.ReleaseDC(dummyWindowHandle, hDCdummy);
-            throw new SWTException("Unsupported pixel format");
+        int pixelFormat;
+        if (cached != null) {
+            // The cached pixel format is the final one, so it can be set on the real window right away
+            pixelFormat = cached.id;
+            if (GDI32.DescribePixelFormat(hDCdummy, pixelFormat, pfd) == 0
+                    || GDI32.GetPixelFormat(hDCdummy) != pixelFormat && !GDI32.SetPixelFormat(hDCdummy, pixelFormat, pfd)) {
+                User32.ReleaseDC(dummyWindowHandle, hDCdummy);
+                throw new SWTException("Cached pixel format is no longer supported");
+            }
+        } else {
+            pixelFormat = GDI32.ChoosePixelFormat(hDCdummy, pfd);
+            if (pixelFormat == 0 || !GDI32.SetPixelFormat(hDCdummy, pixelFormat, pfd)) {
+                // Pixel format unsupported
+                User32.ReleaseDC(dummyWindowHandle, hDCdummy);
+                throw new SWTException("Unsupported pixel format");
+            }
         }
 
         /*
@@ -230,10 +283,17 @@ class PlatformWin32GLCanvas extends AbstractPlatformGLCanvas {
                 wglExtensions = "";
             }
         }
-        String[] splitted = wglExtensions.split(" ");
-        Set<String> wglExtensionsList = new HashSet<String>(splitted.length);
-        for (String str : splitted) {
-            wglExtensionsList.add(str);
+        Set<String> wglExtensionsList;
+        synchronized (PlatformWin32GLCanvas.class) {
+            if (!wglExtensions.equals(lastWglExtensions)) {
+                String[] splitted = wglExtensions.split(" ");
+                lastWglExtensionsList = new HashSet<String>(splitted.length);
+                for (String str : splitted) {
+                    lastWglExtensionsList.add(str);
+                }
+                lastWglExtensions = wglExtensions;
+            }
+            wglExtensionsList = lastWglExtensionsList;
         }
         success = User32.ReleaseDC(dummyWindowHandle, hDCdummy);
         if (!success) {
@@ -334,19 +394,8 @@ class PlatformWin32GLCanvas extends AbstractPlatformGLCanvas {
                 WGL.wglDeleteContext(context);
                 throw new SWTException("Could not release DC");
             }
-            effective.redSize = pfd.cRedBits();
-            effective.greenSize = pfd.cGreenBits();
-            effective.blueSize = pfd.cBlueBits();
-            effective.alphaSize = pfd.cAlphaBits();
-            effective.depthSize = pfd.cDepthBits();
-            effective.stencilSize = pfd.cStencilBits();
-            int pixelFormatFlags = pfd.dwFlags();
-            effective.doubleBuffer = (pixelFormatFlags & GDI32.PFD_DOUBLEBUFFER) != 0;
-            effective.stereo = (pixelFormatFlags & GDI32.PFD_STEREO) != 0;
-            effective.accumRedSize = pfd.cAccumRedBits();
-            effective.accumGreenSize = pfd.cAccumGreenBits();
-            effective.accumBlueSize = pfd.cAccumBlueBits();
-            effective.accumAlphaSize = pfd.cAccumAlphaBits();
+            populateEffectiveAttribs(pfd, effective);
+            GLConfigCache.put(cacheKey, pixelFormat, effective, false);
 
             // Restore old context
             WGL.wglMakeCurrent(currentDc, currentContext);
@@ -425,75 +474,81 @@ class PlatformWin32GLCanvas extends AbstractPlatformGLCanvas {
                     throw new SWTException("Floating-point format requested but WGL_ARB_pixel_format_float is unavailable");
                 }
             }
-            // Query matching pixel formats
-            encodePixelFormatAttribs(attribList, attribs);
-            success = JNI.callPPPPPI(hDC, attribListAddr, 0L, 1, bufferAddr + 4, bufferAddr, wglChoosePixelFormatAddr) == 1;
-            int numFormats = MemoryUtil.memGetInt(bufferAddr);
-            if (!success || numFormats == 0) {
-                User32.ReleaseDC(windowHandle, hDC);
-                WGL.wglDeleteContext(dummyContext);
-                WGL.wglMakeCurrent(currentDc, currentContext);
-                throw new SWTException("No supported pixel format found.");
-            }
-            pixelFormat = MemoryUtil.memGetInt(bufferAddr + 4);
-            // Describe pixel format for the PIXELFORMATDESCRIPTOR to match the chosen format
-            int pixFmtIndex = GDI32.DescribePixelFormat(hDC, pixelFormat, pfd);
-            if (pixFmtIndex == 0) {
-                User32.ReleaseDC(windowHandle, hDC);
-                WGL.wglDeleteContext(dummyContext);
-                WGL.wglMakeCurrent(currentDc, currentContext);
-                throw new SWTException("Failed to validate supported pixel format.");
-            }
-            // Obtain extended pixel format attributes
-            long wglGetPixelFormatAttribivAddr = WGL.wglGetProcAddress("wglGetPixelFormatAttribivARB");
-            if (wglGetPixelFormatAttribivAddr == 0L) {
-                // Try EXT function (function signature is the same)
-                wglGetPixelFormatAttribivAddr = WGL.wglGetProcAddress("wglGetPixelFormatAttribivEXT");
+            if (cached != null) {
+                // Already set up in the beginning, and described by the cache
+                cached.applyTo(effective);
+            } else {
+                // Query matching pixel formats
+                encodePixelFormatAttribs(attribList, attribs);
+                success = JNI.callPPPPPI(hDC, attribListAddr, 0L, 1, bufferAddr + 4, bufferAddr, wglChoosePixelFormatAddr) == 1;
+                int numFormats = MemoryUtil.memGetInt(bufferAddr);
+                if (!success || numFormats == 0) {
+                    User32.ReleaseDC(windowHandle, hDC);
+                    WGL.wglDeleteContext(dummyContext);
+                    WGL.wglMakeCurrent(currentDc, currentContext);
+                    throw new SWTException("No supported pixel format found.");
+                }
+                pixelFormat = MemoryUtil.memGetInt(bufferAddr + 4);
+                // Describe pixel format for the PIXELFORMATDESCRIPTOR to match the chosen format
+                int pixFmtIndex = GDI32.DescribePixelFormat(hDC, pixelFormat, pfd);
+                if (pixFmtIndex == 0) {
+                    User32.ReleaseDC(windowHandle, hDC);
+                    WGL.wglDeleteContext(dummyContext);
+                    WGL.wglMakeCurrent(currentDc, currentContext);
+                    throw new SWTException("Failed to validate supported pixel format.");
+                }
+                // Obtain extended pixel format attributes
+                long wglGetPixelFormatAttribivAddr = WGL.wglGetProcAddress("wglGetPixelFormatAttribivARB");
                 if (wglGetPixelFormatAttribivAddr == 0L) {
+                    // Try EXT function (function signature is the same)
+                    wglGetPixelFormatAttribivAddr = WGL.wglGetProcAddress("wglGetPixelFormatAttribivEXT");
+                    if (wglGetPixelFormatAttribivAddr == 0L) {
+                        User32.ReleaseDC(windowHandle, hDC);
+                        WGL.wglDeleteContext(dummyContext);
+                        WGL.wglMakeCurrent(currentDc, currentContext);
+                        throw new SWTException("No support for wglGetPixelFormatAttribivARB/EXT. Cannot get effective pixel format attributes.");
+                    }
+                }
+                attribList.rewind();
+                attribList.put(WGLARBPixelFormat.WGL_DOUBLE_BUFFER_ARB);
+                attribList.put(WGLARBPixelFormat.WGL_STEREO_ARB);
+                attribList.put(WGLARBPixelFormat.WGL_PIXEL_TYPE_ARB);
+                attribList.put(WGLARBPixelFormat.WGL_RED_BITS_ARB);
+                attribList.put(WGLARBPixelFormat.WGL_GREEN_BITS_ARB);
+                attribList.put(WGLARBPixelFormat.WGL_BLUE_BITS_ARB);
+                attribList.put(WGLARBPixelFormat.WGL_ALPHA_BITS_ARB);
+                attribList.put(WGLARBPixelFormat.WGL_ACCUM_RED_BITS_ARB);
+                attribList.put(WGLARBPixelFormat.WGL_ACCUM_GREEN_BITS_ARB);
+                attribList.put(WGLARBPixelFormat.WGL_ACCUM_BLUE_BITS_ARB);
+                attribList.put(WGLARBPixelFormat.WGL_ACCUM_ALPHA_BITS_ARB);
+                attribList.put(WGLARBPixelFormat.WGL_DEPTH_BITS_ARB);
+                attribList.put(WGLARBPixelFormat.WGL_STENCIL_BITS_ARB);
+                IntBuffer attribValues = BufferUtils.createIntBuffer(attribList.position());
+                long attribValuesAddr = MemoryUtil.memAddress(attribValues);
+                success = JNI.callPPPI(hDC, pixelFormat, GDI32.PFD_MAIN_PLANE, attribList.position(), attribListAddr,
+                        attribValuesAddr, wglGetPixelFormatAttribivAddr) == 1;
+                if (!success) {
                     User32.ReleaseDC(windowHandle, hDC);
                     WGL.wglDeleteContext(dummyContext);
                     WGL.wglMakeCurrent(currentDc, currentContext);
-                    throw new SWTException("No support for wglGetPixelFormatAttribivARB/EXT. Cannot get effective pixel format attributes.");
+                    throw new SWTException("Failed to get pixel format attributes.");
                 }
+                effective.doubleBuffer = attribValues.get(0) == 1;
+                effective.stereo = attribValues.get(1) == 1;
+                int pixelType = attribValues.get(2);
+                effective.pixelFormatFloat = pixelType == WGLARBPixelFormatFloat.WGL_TYPE_RGBA_FLOAT_ARB;
+                effective.redSize = attribValues.get(3);
+                effective.greenSize = attribValues.get(4);
+                effective.blueSize = attribValues.get(5);
+                effective.alphaSize = attribValues.get(6);
+                effective.accumRedSize = attribValues.get(7);
+                effective.accumGreenSize = attribValues.get(8);
+                effective.accumBlueSize = attribValues.get(9);
+                effective.accumAlphaSize = attribValues.get(10);
+                effective.depthSize = attribValues.get(11);
+                effective.stencilSize = attribValues.get(12);
+                GLConfigCache.put(cacheKey, pixelFormat, effective, false);
             }
-            attribList.rewind();
-            attribList.put(WGLARBPixelFormat.WGL_DOUBLE_BUFFER_ARB);
-            attribList.put(WGLARBPixelFormat.WGL_STEREO_ARB);
-            attribList.put(WGLARBPixelFormat.WGL_PIXEL_TYPE_ARB);
-            attribList.put(WGLARBPixelFormat.WGL_RED_BITS_ARB);
-            attribList.put(WGLARBPixelFormat.WGL_GREEN_BITS_ARB);
-            attribList.put(WGLARBPixelFormat.WGL_BLUE_BITS_ARB);
-            attribList.put(WGLARBPixelFormat.WGL_ALPHA_BITS_ARB);
-            attribList.put(WGLARBPixelFormat.WGL_ACCUM_RED_BITS_ARB);
-            attribList.put(WGLARBPixelFormat.WGL_ACCUM_GREEN_BITS_ARB);
-            attribList.put(WGLARBPixelFormat.WGL_ACCUM_BLUE_BITS_ARB);
-            attribList.put(WGLARBPixelFormat.WGL_ACCUM_ALPHA_BITS_ARB);
-            attribList.put(WGLARBPixelFormat.WGL_DEPTH_BITS_ARB);
-            attribList.put(WGLARBPixelFormat.WGL_STENCIL_BITS_ARB);
-            IntBuffer attribValues = BufferUtils.createIntBuffer(attribList.position());
-            long attribValuesAddr = MemoryUtil.memAddress(attribValues);
-            success = JNI.callPPPI(hDC, pixelFormat, GDI32.PFD_MAIN_PLANE, attribList.position(), attribListAddr,
-                    attribValuesAddr, wglGetPixelFormatAttribivAddr) == 1;
-            if (!success) {
-                User32.ReleaseDC(windowHandle, hDC);
-                WGL.wglDeleteContext(dummyContext);
-                WGL.wglMakeCurrent(currentDc, currentContext);
-                throw new SWTException("Failed to get pixel format attributes.");
-            }
-            effective.doubleBuffer = attribValues.get(0) == 1;
-            effective.stereo = attribValues.get(1) == 1;
-            int pixelType = attribValues.get(2);
-            effective.pixelFormatFloat = pixelType == WGLARBPixelFormatFloat.WGL_TYPE_RGBA_FLOAT_ARB;
-            effective.redSize = attribValues.get(3);
-            effective.greenSize = attribValues.get(4);
-            effective.blueSize = attribValues.get(5);
-            effective.alphaSize = attribValues.get(6);
-            effective.accumRedSize = attribValues.get(7);
-            effective.accumGreenSize = attribValues.get(8);
-            effective.accumBlueSize = attribValues.get(9);
-            effective.accumAlphaSize = attribValues.get(10);
-            effective.depthSize = attribValues.get(11);
-            effective.stencilSize = attribValues.get(12);
         }
 
         // Compose the attributes list
@@ -586,14 +641,20 @@ class PlatformWin32GLCanvas extends AbstractPlatformGLCanvas {
                         .put(WGLARBContextFlushControl.WGL_CONTEXT_RELEASE_BEHAVIOR_FLUSH_ARB);
         }
         attribList.put(0).put(0);
-        // Set pixelformat
-        success = GDI32.SetPixelFormat(hDC, pixelFormat, pfd);
+        // Set pixelformat, unless the cached one was set already
+        success = GDI32.GetPixelFormat(hDC) == pixelFormat || GDI32.SetPixelFormat(hDC, pixelFormat, pfd);
         if (!success) {
             User32.ReleaseDC(windowHandle, hDC);
             WGL.wglDeleteContext(dummyContext);
             WGL.wglMakeCurrent(currentDc, currentContext);
             throw new SWTException("Failed to set pixel format.");
         }
+        if (cached == null && attribs.samples == 0 && !attribs.sRGB && !attribs.pixelFormatFloat
+                && GDI32.DescribePixelFormat(hDC, pixelFormat, pfd) != 0) {
+            // The legacy pixel format was kept, so remember it for the next canvas
+            populateEffectiveAttribs(pfd, effective);
+            GLConfigCache.put(cacheKey, pixelFormat, effective, false);
+        }
         // And create new context with it
         long newCtx = JNI.callPPPP(hDC, attribs.shareContext != null ? attribs.shareContext.context : 0L, attribListAddr, wglCreateContextAttribsARBAddr);
         WGL.wglDeleteContext(dummyContext);
@@ -697,6 +758,22 @@ class PlatformWin32GLCanvas extends AbstractPlatformGLCanvas {
         return newCtx;
     }
 
+    private static void populateEffectiveAttribs(PIXELFORMATDESCRIPTOR pfd, GLData effective) {
+        effective.redSize = pfd.cRedBits();
+        effective.greenSize = pfd.cGreenBits();
+        effective.blueSize = pfd.cBlueBits();
+        effective.alphaSize = pfd.cAlphaBits();
+        effective.depthSize = pfd.cDepthBits();
+        effective.stencilSize = pfd.cStencilBits();
+        int pixelFormatFlags = pfd.dwFlags();
+        effective.doubleBuffer = (pixelFormatFlags & GDI32.PFD_DOUBLEBUFFER) != 0;
+        effective.stereo = (pixelFormatFlags & GDI32.PFD_STEREO) != 0;
+        effective.accumRedSize = pfd.cAccumRedBits();
+        effective.accumGreenSize = pfd.cAccumGreenBits();
+        effective.accumBlueSize = pfd.cAccumBlueBits();
+        effective.accumAlphaSize = pfd.cAccumAlphaBits();
+    }
+
     private void wglNvSwapGroupAndBarrier(GLData attribs, long bufferAddr, long hDC) throws SWTException {
         int success;
         long wglQueryMaxSwapGroupsNVAddr = WGL.wglGetProcAddress("wglQueryMaxSwapGroupsNV");
@@ -743,6 +820,10 @@ class PlatformWin32GLCanvas extends AbstractPlatformGLCanvas {
         return ret;
     }
 
+    public boolean releaseCurrent(GLCanvas canvas) {
+        return WGL.wglMakeCurrent(0L, 0L);
+    }
+
     public boolean deleteContext(GLCanvas canvas, long context) {
         boolean ret = WGL.wglDeleteContext(context);
         return ret;
@@ -771,6 +852,13 @@ class PlatformWin32GLCanvas extends AbstractPlatformGLCanvas {
         return JNI.callI(interval, wglSwapIntervalEXTAddr) == 1;
     }
 
+    public GLCanvas.SwapControl getSwapControl(GLCanvas canvas) {
+        Set<String> extensions = lastWglExtensionsList;
+        if (extensions == null || !extensions.contains("WGL_EXT_swap_control"))
+            return GLCanvas.SwapControl.NONE;
+        return extensions.contains("WGL_EXT_swap_control_tear") ? GLCanvas.SwapControl.ADAPTIVE : GLCanvas.SwapControl.QUERYABLE;
+    }
+
     public boolean delayBeforeSwapNV(GLCanvas canvas, float seconds) {
         if (!wglDelayBeforeSwapNVAddr_set) {
             wglDelayBeforeSwapNVAddr = WGL.wglGetProcAddress("wglDelayBeforeSwapNV");
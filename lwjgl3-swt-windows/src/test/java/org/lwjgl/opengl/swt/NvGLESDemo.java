@@ -8,7 +8,6 @@ import java.nio.IntBuffer;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.KeyEvent;
 import org.eclipse.swt.events.KeyAdapter;
-import org.eclipse.swt.graphics.Rectangle;
 import org.eclipse.swt.layout.FillLayout;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Event;
@@ -62,14 +61,6 @@ public class NvGLESDemo {
 
 		GLES.createCapabilities();
 
-		final Rectangle rect = new Rectangle(0, 0, 0, 0);
-		canvas.addListener(SWT.Resize, new Listener() {
-			public void handleEvent(@SuppressWarnings("unused") Event event) {
-				Rectangle bounds = canvas.getBounds();
-				rect.width = bounds.width;
-				rect.height = bounds.height;
-			}
-		});
 		shell.addListener(SWT.Traverse, new Listener() {
 			public void handleEvent(Event event) {
 				switch (event.detail) {
@@ -140,33 +131,35 @@ public class NvGLESDemo {
 		shell.setSize(800, 600);
 		shell.open();
 
-		display.asyncExec(new Runnable() {
+		GLAnimator animator = new GLAnimator(display, GLAnimator.Mode.VSYNC);
+		animator.add(canvas, new GLRenderer() {
 			float rot;
 			long lastTime = System.nanoTime();
-			public void run() {
-				if (!canvas.isDisposed()) {
-					canvas.setCurrent();
-					glClear(GL_COLOR_BUFFER_BIT);
-					glViewport(0, 0, rect.width, rect.height);
-
-					float aspect = (float) rect.width / rect.height;
-					glUniform1f(aspectLocation, aspect);
-					glUniform1f(rotLocation, rot);
-					glDrawElements(GL_TRIANGLES, 6, GL_UNSIGNED_INT, 0);
-
-					canvas.swapBuffers();
-					display.asyncExec(this);
-
-					long thisTime = System.nanoTime();
-					float delta = (thisTime - lastTime) / 1E9f;
-					rot += delta * 0.1f;
-					if (rot > 2.0 * Math.PI) {
-						rot -= 2.0f * (float) Math.PI;
-					}
-					lastTime = thisTime;
+			public void init(GLCanvas canvas) {
+			}
+			public void resized(GLCanvas canvas, int width, int height) {
+				glViewport(0, 0, width, height);
+				float aspect = (float) width / height;
+				glUniform1f(aspectLocation, aspect);
+			}
+			public boolean render(GLCanvas canvas) {
+				glClear(GL_COLOR_BUFFER_BIT);
+				glUniform1f(rotLocation, rot);
+				glDrawElements(GL_TRIANGLES, 6, GL_UNSIGNED_INT, 0);
+
+				long thisTime = System.nanoTime();
+				float delta = (thisTime - lastTime) / 1E9f;
+				rot += delta * 0.1f;
+				if (rot > 2.0 * Math.PI) {
+					rot -= 2.0f * (float) Math.PI;
 				}
+				lastTime = thisTime;
+				return true;
+			}
+			public void dispose(GLCanvas canvas) {
 			}
 		});
+		animator.start();
 
 		while (!shell.isDisposed()) {
 			if (!display.readAndDispatch())
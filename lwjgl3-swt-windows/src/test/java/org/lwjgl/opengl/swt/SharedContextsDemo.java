@@ -138,37 +138,44 @@ public class SharedContextsDemo {
             glUseProgram(program);
         }
         
-        display.asyncExec(new Runnable() {
-            float rot;
-            long lastTime = System.nanoTime();
+        // Render in each context
+        GLAnimator animator = new GLAnimator(display, GLAnimator.Mode.VSYNC);
+        for (GLCanvas canvas : canvases) {
+            animator.add(canvas, new GLRenderer() {
+                float rot;
+                float aspect;
+                long lastTime = System.nanoTime();
 
-            public void run() {
-                // Render in each context
-                for (int i = 0; i < canvases.length; i++) {
-                    GLCanvas canvas = canvases[i];
-                    if (canvas.isDisposed()) {
-                    	return;
-                    }
-                    canvas.setCurrent();
+                public void init(GLCanvas canvas) {
+                }
+
+                public void resized(GLCanvas canvas, int width, int height) {
+                    glViewport(0, 0, width, height);
+                    aspect = (float) width / height;
+                }
+
+                public boolean render(GLCanvas canvas) {
                     glClear(GL_COLOR_BUFFER_BIT);
-                    glViewport(0, 0, canvas.getSize().x, canvas.getSize().y);
-                    float aspect = (float) canvas.getSize().x / canvas.getSize().y;
+                    // the program is shared by both contexts, so its uniforms must be set for each canvas
                     glUniform1f(aspectLocation, aspect);
                     glUniform1f(rotLocation, rot);
                     glDrawElements(GL11.GL_TRIANGLES, 6, GL_UNSIGNED_INT, 0);
-                    canvas.swapBuffers();
+
+                    long thisTime = System.nanoTime();
+                    float delta = (thisTime - lastTime) / 1E9f;
+                    rot += delta * 0.1f;
+                    if (rot > 2.0 * Math.PI) {
+                        rot -= 2.0f * (float) Math.PI;
+                    }
+                    lastTime = thisTime;
+                    return true;
                 }
-                display.asyncExec(this);
 
-                long thisTime = System.nanoTime();
-                float delta = (thisTime - lastTime) / 1E9f;
-                rot += delta * 0.1f;
-                if (rot > 2.0 * Math.PI) {
-                    rot -= 2.0f * (float) Math.PI;
+                public void dispose(GLCanvas canvas) {
                 }
-                lastTime = thisTime;
-            }
-        });
+            });
+        }
+        animator.start();
 
         while (!shell.isDisposed()) {
             if (!display.readAndDispatch())